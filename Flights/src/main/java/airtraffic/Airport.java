@@ -1,7 +1,7 @@
 package airtraffic;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /**
@@ -20,6 +20,7 @@ public class Airport implements Comparable<Airport>, GeoLocation {
    private String country;
    private double latitude;
    private double longitude;
+   private GeoVector vector;     // cached, cleared when the location changes
 
    public String getIATA() {
       return iata;
@@ -67,6 +68,7 @@ public class Airport implements Comparable<Airport>, GeoLocation {
 
    public void setLatitude(double latitude) {
       this.latitude = latitude;
+      this.vector = null;
    }
 
    public double getLongitude() {
@@ -75,6 +77,20 @@ public class Airport implements Comparable<Airport>, GeoLocation {
 
    public void setLongitude(double longitude) {
       this.longitude = longitude;
+      this.vector = null;
+   }
+
+   /**
+    * Returns the location as a vector, which is worked out once. Vectors are
+    * immutable, so threads that race to work it out get equal vectors.
+    */
+   @Override
+   public GeoVector getVector() {
+      GeoVector result = vector;
+      if(result == null) {
+         vector = result = GeoVector.of(this);
+      }
+      return result;
    }
 
    @Override
@@ -82,14 +98,24 @@ public class Airport implements Comparable<Airport>, GeoLocation {
       return this.iata.compareTo(other.iata);
    }
 
+   /**
+    * Airports are identified by their IATA code. The repository hands out a
+    * single instance per code, so most comparisons end at the identity check.
+    */
    @Override
    public boolean equals(Object obj) {
-      return EqualsBuilder.reflectionEquals(this, obj, false);
+      if(this == obj) {
+         return true;
+      }
+      if(!(obj instanceof Airport)) {
+         return false;
+      }
+      return Objects.equals(this.iata, ((Airport) obj).iata);
    }
 
    @Override
    public int hashCode() {
-      return HashCodeBuilder.reflectionHashCode(this, false);
+      return Objects.hashCode(this.iata);
    }
 
    @Override
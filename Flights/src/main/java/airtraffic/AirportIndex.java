@@ -0,0 +1,192 @@
+package airtraffic;
+
+import static java.lang.Math.sin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Spatial index of airports for finding the airports near a location. Each
+ * airport is stored as its {@link GeoVector} point in a k-d tree. The
+ * straight line distance between two such points grows with the great
+ * circle distance between them, so searching the tree needs no
+ * trigonometry. Airports cache their vectors, so sines and cosines are only
+ * worked out once per airport, and once per query for the location. A
+ * distance in miles or kilometers is only worked out for the airports
+ * returned.
+ *
+ * An index is immutable, so it can be shared by any number of threads. Use
+ * {@link Repository#getAirportIndex()} to get the index of every airport.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class AirportIndex {
+   /**
+    * An airport found by a search, with its distance from the location.
+    */
+   public static final class Neighbor {
+      private final Airport airport;
+      private final double distance;
+
+      Neighbor(Airport airport, double distance) {
+         this.airport = airport;
+         this.distance = distance;
+      }
+
+      public Airport getAirport() {
+         return airport;
+      }
+
+      public double getDistance() {
+         return distance;
+      }
+   }
+
+   private static final int DIMENSIONS = 3;
+
+   private final Airport[] airports;   // in tree order
+   private final double[] points;      // x, y and z of each airport, in tree order
+
+   AirportIndex(Collection<Airport> airports) {
+      Airport[] values = airports.toArray(new Airport[airports.size()]);
+      GeoVector[] vectors = new GeoVector[values.length];
+      for(int i = 0; i < values.length; i++) {
+         vectors[i] = values[i].getVector();
+      }
+      Integer[] order = new Integer[values.length];
+      for(int i = 0; i < order.length; i++) {
+         order[i] = i;
+      }
+      build(order, vectors, 0, order.length, 0);
+      this.airports = new Airport[values.length];
+      this.points = new double[values.length * DIMENSIONS];
+      for(int i = 0; i < order.length; i++) {
+         this.airports[i] = values[order[i]];
+         GeoVector vector = vectors[order[i]];
+         points[i * DIMENSIONS] = vector.getX();
+         points[i * DIMENSIONS + 1] = vector.getY();
+         points[i * DIMENSIONS + 2] = vector.getZ();
+      }
+   }
+
+   /**
+    * Orders the points so the median of each range along the axis for its
+    * depth sits in the middle of the range, with the points before it on
+    * one side and the points after it on the other.
+    */
+   private static void build(Integer[] order, GeoVector[] vectors, int from, int to, int depth) {
+      if(to - from <= 1) {
+         return;
+      }
+      int axis = depth % DIMENSIONS;
+      Arrays.sort(order, from, to, Comparator.comparingDouble(i -> coordinate(vectors[i], axis)));
+      int middle = (from + to) >>> 1;
+      build(order, vectors, from, middle, depth + 1);
+      build(order, vectors, middle + 1, to, depth + 1);
+   }
+
+   private static double coordinate(GeoVector vector, int axis) {
+      return axis == 0 ? vector.getX() : axis == 1 ? vector.getY() : vector.getZ();
+   }
+
+   private static double[] toVector(GeoLocation location) {
+      GeoVector vector = location.getVector();
+      return new double[] { vector.getX(), vector.getY(), vector.getZ() };
+   }
+
+   public int size() {
+      return airports.length;
+   }
+
+   /**
+    * Returns the airports no further than the given distance from the
+    * location, nearest first.
+    */
+   public List<Neighbor> withinDistance(GeoLocation location, double distance,
+      GeoLocation.Units units) {
+      double[] target = toVector(location);
+      double angle = Math.min(GeoHelper.toAngle(distance, units), Math.PI);
+      double chord = 2 * sin(angle / 2);
+      List<Integer> found = new ArrayList<>();
+      search(target, chord * chord, 0, airports.length, 0, found);
+      return toNeighbors(target, found, units);
+   }
+
+   private void search(double[] target, double limit, int from, int to, int depth,
+      List<Integer> found) {
+      if(from >= to) {
+         return;
+      }
+      int middle = (from + to) >>> 1;
+      if(squaredDistance(target, middle) <= limit) {
+         found.add(middle);
+      }
+      double offset = target[depth % DIMENSIONS] - points[middle * DIMENSIONS + depth % DIMENSIONS];
+      search(target, limit, offset <= 0 ? from : middle + 1, offset <= 0 ? middle : to, 
+             depth + 1, found);
+      if(offset * offset <= limit) {
+         search(target, limit, offset <= 0 ? middle + 1 : from, offset <= 0 ? to : middle, 
+                depth + 1, found);
+      }
+   }
+
+   /**
+    * Returns the given number of airports nearest to the location, nearest
+    * first.
+    */
+   public List<Neighbor> nearest(GeoLocation location, int count, GeoLocation.Units units) {
+      if(count <= 0) {
+         return Collections.emptyList();
+      }
+      double[] target = toVector(location);
+      // the furthest of the nearest airports found so far is at the head
+      PriorityQueue<Integer> nearest = new PriorityQueue<>(count + 1, 
+         Comparator.comparingDouble((Integer i) -> squaredDistance(target, i)).reversed());
+      search(target, count, 0, airports.length, 0, nearest);
+      return toNeighbors(target, new ArrayList<>(nearest), units);
+   }
+
+   private void search(double[] target, int count, int from, int to, int depth,
+      PriorityQueue<Integer> nearest) {
+      if(from >= to) {
+         return;
+      }
+      int middle = (from + to) >>> 1;
+      nearest.add(middle);
+      if(nearest.size() > count) {
+         nearest.poll();
+      }
+      double offset = target[depth % DIMENSIONS] - points[middle * DIMENSIONS + depth % DIMENSIONS];
+      search(target, count, offset <= 0 ? from : middle + 1, offset <= 0 ? middle : to, 
+             depth + 1, nearest);
+      if(nearest.size() < count || offset * offset <= squaredDistance(target, nearest.peek())) {
+         search(target, count, offset <= 0 ? middle + 1 : from, offset <= 0 ? to : middle, 
+                depth + 1, nearest);
+      }
+   }
+
+   private double squaredDistance(double[] target, int node) {
+      int base = node * DIMENSIONS;
+      double dx = target[0] - points[base];
+      double dy = target[1] - points[base + 1];
+      double dz = target[2] - points[base + 2];
+      return dx * dx + dy * dy + dz * dz;
+   }
+
+   private List<Neighbor> toNeighbors(double[] target, List<Integer> nodes, 
+      GeoLocation.Units units) {
+      List<Neighbor> result = new ArrayList<>(nodes.size());
+      for(int node : nodes) {
+         double chord = Math.sqrt(squaredDistance(target, node));
+         double angle = 2 * Math.asin(Math.min(1, chord / 2));
+         result.add(new Neighbor(airports[node], GeoHelper.toDistance(angle, units)));
+      }
+      result.sort(Comparator.comparingDouble(Neighbor::getDistance));
+      return result;
+   }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Assigns a dense int code to each distinct key found while reading flight
+ * data and keeps the value that key resolves to. Keys are matched directly
+ * against the bytes of a row, so a String is only created the first time a
+ * key is seen and the resolver runs once per key rather than once per row.
+ *
+ * Lookups do not lock. New keys are added under a lock and published by
+ * replacing the immutable hash table, so a dictionary can be shared by all
+ * of the threads reading a parallel stream.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class CodeDictionary<T> {
+   private static final int INITIAL_CAPACITY = 1 << 6;
+
+   private final Function<String, T> resolver;
+   private volatile Entries entries = new Entries(INITIAL_CAPACITY);
+
+   CodeDictionary(Function<String, T> resolver) {
+      this.resolver = resolver;
+   }
+
+   /**
+    * Returns the code for the key held in the given range of bytes, adding
+    * the key if it has not been seen before.
+    */
+   int encode(byte[] buffer, int offset, int length) {
+      int hash = hash(buffer, offset, length);
+      int code = entries.find(buffer, offset, length, hash);
+      return code >= 0 ? code : add(buffer, offset, length, hash);
+   }
+
+   int encode(String key) {
+      byte[] bytes = key.getBytes(ISO_8859_1);
+      return encode(bytes, 0, bytes.length);
+   }
+
+   /**
+    * Returns the code for the given key, or -1 if it has not been seen.
+    */
+   int lookup(String key) {
+      byte[] bytes = key.getBytes(ISO_8859_1);
+      return entries.find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length));
+   }
+
+   @SuppressWarnings("unchecked")
+   T decode(int code) {
+      return (T) entries.values[code];
+   }
+
+   /**
+    * Returns the key that was given the code, whether or not it resolved to
+    * a value.
+    */
+   String getKey(int code) {
+      return new String(entries.keys[code], ISO_8859_1);
+   }
+
+   T get(String key) {
+      return decode(encode(key));
+   }
+
+   /**
+    * Returns the number of codes assigned so far. Codes are always less
+    * than this value.
+    */
+   int size() {
+      return entries.size;
+   }
+
+   private synchronized int add(byte[] buffer, int offset, int length, int hash) {
+      Entries current = entries;
+      int code = current.find(buffer, offset, length, hash);
+      if(code < 0) {
+         byte[] key = Arrays.copyOfRange(buffer, offset, offset + length);
+         T value = resolver.apply(new String(key, ISO_8859_1));
+         code = current.size;
+         entries = current.add(key, hash, value);
+      }
+      return code;
+   }
+
+   private static int hash(byte[] buffer, int offset, int length) {
+      int hash = 0;
+      for(int i = offset; i < offset + length; i++) {
+         hash = 31 * hash + buffer[i];
+      }
+      return hash ^ (hash >>> 16);
+   }
+
+   /**
+    * Open addressing hash table from key to code. The key, hash and value
+    * arrays are indexed by code and are only ever appended to, so they are
+    * shared between versions. The slot array is copied for every new key.
+    */
+   private static final class Entries {
+      private final int[] slots;       // code + 1, or zero for an empty slot
+      private final byte[][] keys;
+      private final int[] hashes;
+      private final Object[] values;
+      private final int size;
+
+      Entries(int capacity) {
+         this(new int[capacity * 2], new byte[capacity][], new int[capacity],
+              new Object[capacity], 0);
+      }
+
+      private Entries(int[] slots, byte[][] keys, int[] hashes, Object[] values, int size) {
+         this.slots = slots;
+         this.keys = keys;
+         this.hashes = hashes;
+         this.values = values;
+         this.size = size;
+      }
+
+      int find(byte[] buffer, int offset, int length, int hash) {
+         int mask = slots.length - 1;
+         for(int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int code = slots[i] - 1;
+            if(hashes[code] == hash && matches(keys[code], buffer, offset, length)) {
+               return code;
+            }
+         }
+         return -1;
+      }
+
+      Entries add(byte[] key, int hash, Object value) {
+         byte[][] keys = this.keys;
+         int[] hashes = this.hashes;
+         Object[] values = this.values;
+         int[] slots;
+         if(size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            slots = new int[capacity * 2];
+            for(int code = 0; code < size; code++) {
+               insert(slots, hashes[code], code);
+            }
+         } else {
+            slots = this.slots.clone();
+         }
+         keys[size] = key;
+         hashes[size] = hash;
+         values[size] = value;
+         insert(slots, hash, size);
+         return new Entries(slots, keys, hashes, values, size + 1);
+      }
+
+      private static void insert(int[] slots, int hash, int code) {
+         int mask = slots.length - 1;
+         int i = hash & mask;
+         while(slots[i] != 0) {
+            i = (i + 1) & mask;
+         }
+         slots[i] = code + 1;
+      }
+
+      private static boolean matches(byte[] key, byte[] buffer, int offset, int length) {
+         if(key.length != length) {
+            return false;
+         }
+         for(int i = 0; i < length; i++) {
+            if(key[i] != buffer[offset + i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+}
@@ -14,6 +14,9 @@ public final class Config {
    private String carrierPath;
    private String planePath;
    private Map<Integer, String> flightPaths;
+   private String livePath;
+   private boolean lazyFlights;
+   private int flightTableCacheSize = 2;
 
    public String getAirportPath() {
       return airportPath;
@@ -47,6 +50,30 @@ public final class Config {
       this.flightPaths = flightPaths;
    }
 
+   public String getLivePath() {
+      return livePath;
+   }
+
+   public void setLivePath(String livePath) {
+      this.livePath = livePath;
+   }
+
+   public boolean isLazyFlights() {
+      return lazyFlights;
+   }
+
+   public void setLazyFlights(boolean lazyFlights) {
+      this.lazyFlights = lazyFlights;
+   }
+
+   public int getFlightTableCacheSize() {
+      return flightTableCacheSize;
+   }
+
+   public void setFlightTableCacheSize(int flightTableCacheSize) {
+      this.flightTableCacheSize = flightTableCacheSize;
+   }
+
    @Override
    public String toString() {
       return ToStringBuilder.reflectionToString(this);
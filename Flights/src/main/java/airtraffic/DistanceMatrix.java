@@ -0,0 +1,242 @@
+package airtraffic;
+
+import static airtraffic.GeoLocation.Units.MILES;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Great circle distances between every pair of airports, in statute miles
+ * like the distances of the flights. Each airport has an index given by
+ * the order of the IATA codes and the distances are held in a triangular
+ * array of floats with one entry per pair, so looking up a distance by
+ * index is a single array read. The 3,376 airports of the reference data
+ * take about 23MB.
+ *
+ * The matrix is built the first time it is needed, one row per task in
+ * parallel, and saved next to the airports CSV file with a .distances
+ * extension. Like the cubes it records the size and modification time of
+ * the CSV file and is only built again when either changes.
+ *
+ * A matrix is immutable, so it can be shared by any number of threads. Use
+ * {@link Repository#getDistanceMatrix()} to get the matrix of every
+ * airport.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class DistanceMatrix {
+   private static final Logger logger = LoggerFactory.getLogger(DistanceMatrix.class);
+   private static final String EXTENSION = ".distances";
+   private static final int MAGIC = 0x464C5444;     // "FLTD"
+   private static final int VERSION = 1;
+   private static final int HEADER_SIZE = 24;
+   private static final int MAX_SIZE = 46340;       // keeps the row offsets within an int
+
+   private final String[] codes;                    // in IATA order
+   private final Map<String, Integer> indexes;
+   private final float[] distances;
+
+   private DistanceMatrix(String[] codes, float[] distances) {
+      this.codes = codes;
+      this.distances = distances;
+      this.indexes = new HashMap<>(codes.length * 2);
+      for(int i = 0; i < codes.length; i++) {
+         indexes.put(codes[i], i);
+      }
+   }
+
+   /**
+    * Returns the location of the matrix for the given airports CSV file.
+    */
+   static Path getPath(Path source) {
+      String name = source.getFileName().toString();
+      int index = name.lastIndexOf('.');
+      return source.resolveSibling((index > 0 ? name.substring(0, index) : name) + EXTENSION);
+   }
+
+   /**
+    * Opens the saved matrix for the airports CSV file, or builds and saves
+    * it from the airports if there is none or it is out of date.
+    */
+   static DistanceMatrix load(Path source, Collection<Airport> airports) {
+      DistanceMatrix matrix = open(source);
+      return matrix == null ? build(source, airports) : matrix;
+   }
+
+   /**
+    * Opens the saved matrix for the airports CSV file. Returns null if there
+    * is no matrix or if it is out of date or was written by another version.
+    */
+   static DistanceMatrix open(Path source) {
+      Path path = getPath(source);
+      if(Files.notExists(path)) {
+         return null;
+      }
+      try(FileChannel channel = FileChannel.open(path, READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         if(channel.read(header, 0) < HEADER_SIZE) {
+            return null;
+         }
+         header.flip();
+         if(header.getInt() != MAGIC || header.getInt() != VERSION ||
+            header.getLong() != Files.size(source) ||
+            header.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+            return null;
+         }
+         ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+         buffer.position(HEADER_SIZE);
+         String[] codes = new String[buffer.getInt()];
+         for(int i = 0; i < codes.length; i++) {
+            byte[] code = new byte[buffer.getShort()];
+            buffer.get(code);
+            codes[i] = new String(code, ISO_8859_1);
+         }
+         float[] distances = new float[pairs(codes.length)];
+         buffer.asFloatBuffer().get(distances);
+         return new DistanceMatrix(codes, distances);
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   /**
+    * Builds the matrix for the airports and saves it, replacing any existing
+    * matrix. If the matrix cannot be saved it is kept in memory.
+    */
+   static DistanceMatrix build(Path source, Collection<Airport> airports) {
+      List<Airport> sorted = new ArrayList<>(airports);
+      sorted.sort(Comparator.comparing(Airport::getIATA));
+      String[] codes = new String[sorted.size()];
+      for(int i = 0; i < codes.length; i++) {
+         codes[i] = sorted.get(i).getIATA();
+      }
+      GeoPoints points = new GeoPoints(sorted);
+      float[] distances = new float[pairs(codes.length)];
+      IntStream.range(1, codes.length)
+               .parallel()
+               .forEach(i -> {
+                  double[] row = new double[i];
+                  points.getDistances(i, MILES, row, 0, i);
+                  int offset = offset(i);
+                  for(int j = 0; j < i; j++) {
+                     distances[offset + j] = (float) row[j];
+                  }
+               });
+
+      Path path = getPath(source);
+      try {
+         write(path, source, codes, distances);
+      } catch (IOException e) {
+         logger.warn("Unable to save distances {}: {}", path, e.getMessage());
+      }
+      return new DistanceMatrix(codes, distances);
+   }
+
+   /**
+    * Writes the matrix under a temporary name and then moves it into place,
+    * so a partially written matrix is never opened.
+    */
+   private static void write(Path path, Path source, String[] codes, float[] distances)
+      throws IOException {
+      long length = HEADER_SIZE + 4 + 4L * distances.length;
+      for(String code : codes) {
+         length += 2 + code.length();
+      }
+      if(length > Integer.MAX_VALUE) {
+         throw new IOException("Distances too large for one file");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) length);
+      buffer.putInt(MAGIC)
+            .putInt(VERSION)
+            .putLong(Files.size(source))
+            .putLong(Files.getLastModifiedTime(source).toMillis())
+            .putInt(codes.length);
+      for(String code : codes) {
+         byte[] bytes = code.getBytes(ISO_8859_1);
+         buffer.putShort((short) bytes.length)
+               .put(bytes);
+      }
+      buffer.asFloatBuffer().put(distances);
+      buffer.rewind();
+
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      try(FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+         while(buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+      }
+      Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+   }
+
+   private static int pairs(int size) {
+      if(size > MAX_SIZE) {
+         throw new IllegalStateException("Too many airports for a distance matrix: " + size);
+      }
+      return offset(size);
+   }
+
+   /**
+    * Returns the position of the first distance of a row. Row i holds the
+    * distances to the airports with indexes 0 to i - 1.
+    */
+   private static int offset(int row) {
+      return row * (row - 1) / 2;
+   }
+
+   public int size() {
+      return codes.length;
+   }
+
+   /**
+    * Returns the index of the airport with the given IATA code, or -1 if
+    * the matrix does not include it.
+    */
+   public int indexOf(String iata) {
+      Integer index = indexes.get(iata);
+      return index == null ? -1 : index;
+   }
+
+   public String getIATA(int index) {
+      return codes[index];
+   }
+
+   /**
+    * Returns the distance between the airports at the given indexes.
+    */
+   public float getDistance(int from, int to) {
+      if(from == to) {
+         return 0;
+      }
+      return from > to ? distances[offset(from) + to] : distances[offset(to) + from];
+   }
+
+   /**
+    * Returns the distance between the airports with the given IATA codes, or
+    * NaN if the matrix does not include either of them.
+    */
+   public double getDistance(String from, String to) {
+      int i = indexOf(from);
+      int j = indexOf(to);
+      return i < 0 || j < 0 ? Double.NaN : getDistance(i, j);
+   }
+}
\ No newline at end of file
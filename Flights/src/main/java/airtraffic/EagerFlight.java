@@ -0,0 +1,255 @@
+package airtraffic;
+
+import java.time.LocalDate;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Flight with every field decoded when it is created and held in its own
+ * field. This is the flight returned unless lazyFlights is set in the
+ * configuration.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class EagerFlight extends Flight {
+   private int _year;                            // 1987-2008
+   private int _month;                           // 1-12
+   private int _dayOfMonth;                      // 1-31
+   private int _dayOfWeek;                       // 1 (Monday) - 7 (Sunday)
+   private int _departureTime;                   // actual departure time (local, hhmm)
+   private int _CRSDepartureTime;                // scheduled departure time (local, hhmm)
+   private int _arrivalTime;                     // actual arrival time (local, hhmm)
+   private int _CRSArrivalTime;                  // scheduled arrival time (local, hhmm)
+   private Carrier _carrier;                     // unique carrier code, mapped to instance of Carrier
+   private int _flightNumber;                    // flight number
+   private String _tailNumber;                   // plane tail number
+   private int _actualElapsedTime;               // in minutes
+   private int _CRSElapsedTime;                  // in minutes
+   private int _airTime;                         // in minutes
+   private int _arrivalDelay;                    // in minutes
+   private int _departureDelay;                  // in minutes
+   private Airport _origin;                      // origin IATA airport code, mapped to instance of Airport
+   private Airport _destination;                 // destination IATA airport code, mapped to instance of Airport
+   private int _distance;                        // in miles
+   private int _taxiIn;                          // taxi in time, in minutes
+   private int _taxiOut;                         // taxi out time, in minutes
+   private boolean _cancelled;                   // was the flight cancelled?
+   private CancellationCode _cancellationCode;   // reason for cancellation (A = carrier, B = weather, C = NAS, D = security)
+   private boolean _diverted;                    // 1 = yes, 0 = no
+   private int _carrierDelay;                    // in minutes
+   private int _weatherDelay;                    // in minutes
+   private int _NASDelay;                        // in minutes
+   private int _securityDelay;                   // in minutes
+   private int _lateAircraftDelay;               // in minutes
+
+   private Plane plane;
+   private LocalDate date;
+
+   EagerFlight(FlightRecord record, Repository repository) {
+      this(record,
+           record.getValue(FlightRecord.CARRIER, repository.getCarrierCodes()),
+           record.getValue(FlightRecord.ORIGIN, repository.getAirportCodes()),
+           record.getValue(FlightRecord.DESTINATION, repository.getAirportCodes()),
+           record.getValue(FlightRecord.TAIL_NUMBER, repository.getPlaneCodes()));
+   }
+
+   EagerFlight(FlightFields fields, Carrier carrier, Airport origin, Airport destination, 
+      Plane plane) {
+      setFields(fields);
+      _carrier = carrier;
+      _tailNumber = plane.getTailNumber();
+      _origin = origin;
+      _destination = destination;
+
+      this.plane = plane;
+      date = LocalDate.of(_year, _month, _dayOfMonth);
+   }
+
+   private void setFields(FlightFields fields) {
+      _year = fields.getInt(FlightRecord.YEAR);
+      _month = fields.getInt(FlightRecord.MONTH);
+      _dayOfMonth = fields.getInt(FlightRecord.DAY_OF_MONTH);
+      _dayOfWeek = fields.getInt(FlightRecord.DAY_OF_WEEK);
+      _departureTime = fields.getInt(FlightRecord.DEPARTURE_TIME);
+      _CRSDepartureTime = fields.getInt(FlightRecord.CRS_DEPARTURE_TIME);
+      _arrivalTime = fields.getInt(FlightRecord.ARRIVAL_TIME);
+      _CRSArrivalTime = fields.getInt(FlightRecord.CRS_ARRIVAL_TIME);
+      _flightNumber = fields.getInt(FlightRecord.FLIGHT_NUMBER);
+      _actualElapsedTime = fields.getInt(FlightRecord.ACTUAL_ELAPSED_TIME);
+      _CRSElapsedTime = fields.getInt(FlightRecord.CRS_ELAPSED_TIME);
+      _airTime = fields.getInt(FlightRecord.AIR_TIME);
+      _arrivalDelay = fields.getInt(FlightRecord.ARRIVAL_DELAY);
+      _departureDelay = fields.getInt(FlightRecord.DEPARTURE_DELAY);
+      _distance = fields.getInt(FlightRecord.DISTANCE);
+      _taxiIn = fields.getInt(FlightRecord.TAXI_IN);
+      _taxiOut = fields.getInt(FlightRecord.TAXI_OUT);
+      _cancelled = fields.getFlag(FlightRecord.CANCELLED);
+      _cancellationCode = fields.getCancellationCode();
+      _diverted = fields.getFlag(FlightRecord.DIVERTED);
+      _carrierDelay = fields.getInt(FlightRecord.CARRIER_DELAY);
+      _weatherDelay = fields.getInt(FlightRecord.WEATHER_DELAY);
+      _NASDelay = fields.getInt(FlightRecord.NAS_DELAY);
+      _securityDelay = fields.getInt(FlightRecord.SECURITY_DELAY);
+      _lateAircraftDelay = fields.getInt(FlightRecord.LATE_AIRCRAFT_DELAY);
+   }
+
+   @Override
+   public Plane getPlane() {
+      return plane;
+   }
+
+   @Override
+   public LocalDate getDate() {
+      return date;
+   }
+
+   @Override
+   public int getYear() {
+      return _year;
+   }
+
+   @Override
+   public int getMonth() {
+      return _month;
+   }
+
+   @Override
+   public int getDayOfMonth() {
+      return _dayOfMonth;
+   }
+
+   @Override
+   public int getDayOfWeek() {
+      return _dayOfWeek;
+   }
+
+   @Override
+   public int getDepartureTime() {
+      return _departureTime;
+   }
+
+   @Override
+   public int getCRSDepartureTime() {
+      return _CRSDepartureTime;
+   }
+
+   @Override
+   public int getArrivalTime() {
+      return _arrivalTime;
+   }
+
+   @Override
+   public int getCRSArrivalTime() {
+      return _CRSArrivalTime;
+   }
+
+   @Override
+   public Carrier getCarrier() {
+      return _carrier;
+   }
+
+   @Override
+   public int getFlightNumber() {
+      return _flightNumber;
+   }
+
+   @Override
+   public String getTailNumber() {
+      return _tailNumber;
+   }
+
+   @Override
+   public int getActualElapsedTime() {
+      return _actualElapsedTime;
+   }
+
+   @Override
+   public int getCRSElapsedTime() {
+      return _CRSElapsedTime;
+   }
+
+   @Override
+   public int getAirTime() {
+      return _airTime;
+   }
+
+   @Override
+   public int getArrivalDelay() {
+      return _arrivalDelay;
+   }
+
+   @Override
+   public int getDepartureDelay() {
+      return _departureDelay;
+   }
+
+   @Override
+   public Airport getOrigin() {
+      return _origin;
+   }
+
+   @Override
+   public Airport getDestination() {
+      return _destination;
+   }
+
+   @Override
+   public int getDistance() {
+      return _distance;
+   }
+
+   @Override
+   public int getTaxiIn() {
+      return _taxiIn;
+   }
+
+   @Override
+   public int getTaxiOut() {
+      return _taxiOut;
+   }
+
+   @Override
+   public boolean cancelled() {
+      return _cancelled;
+   }
+
+   @Override
+   public CancellationCode getCancellationCode() {
+      return _cancellationCode;
+   }
+
+   @Override
+   public boolean diverted() {
+      return _diverted;
+   }
+
+   @Override
+   public int getCarrierDelay() {
+      return _carrierDelay;
+   }
+
+   @Override
+   public int getWeatherDelay() {
+      return _weatherDelay;
+   }
+
+   @Override
+   public int getNASDelay() {
+      return _NASDelay;
+   }
+
+   @Override
+   public int getSecurityDelay() {
+      return _securityDelay;
+   }
+
+   @Override
+   public int getLateAircraftDelay() {
+      return _lateAircraftDelay;
+   }
+
+   @Override
+   public String toString() {
+      return ToStringBuilder.reflectionToString(this);
+   }
+}
\ No newline at end of file
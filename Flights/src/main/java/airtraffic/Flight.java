@@ -1,14 +1,8 @@
 package airtraffic;
 
-import static java.lang.Integer.parseInt;
-import static org.apache.commons.lang3.StringUtils.length;
-
 import java.time.LocalDate;
 import java.time.YearMonth;
-
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.apache.commons.lang3.builder.ToStringBuilder;
+import java.util.Objects;
 
 
 /**
@@ -19,9 +13,13 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
  *
  *   http://stat-computing.org/dataexpo/2009/the-data.html
  *
+ * A flight is either an {@link EagerFlight}, which decodes every field up
+ * front, or a {@link LazyFlight}, which keeps its raw row and decodes each
+ * field when it is read. Neither carries the fields of the other.
+ *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
-public class Flight {
+public abstract class Flight {
    public enum CancellationCode {
       CARRIER, WEATHER, NAS, SECURITY;
 
@@ -40,243 +38,174 @@ public class Flight {
       }
    }
 
-   private int _year;                            // 1987-2008
-   private int _month;                           // 1-12
-   private int _dayOfMonth;                      // 1-31
-   private int _dayOfWeek;                       // 1 (Monday) - 7 (Sunday)
-   private int _departureTime;                   // actual departure time (local, hhmm)
-   private int _CRSDepartureTime;                // scheduled departure time (local, hhmm)
-   private int _arrivalTime;                     // actual arrival time (local, hhmm)
-   private int _CRSArrivalTime;                  // scheduled arrival time (local, hhmm)
-   private Carrier _carrier;                     // unique carrier code, mapped to instance of Carrier
-   private int _flightNumber;                    // flight number
-   private String _tailNumber;                   // plane tail number
-   private int _actualElapsedTime;               // in minutes
-   private int _CRSElapsedTime;                  // in minutes
-   private int _airTime;                         // in minutes
-   private int _arrivalDelay;                    // in minutes
-   private int _departureDelay;                  // in minutes
-   private Airport _origin;                      // origin IATA airport code, mapped to instance of Airport
-   private Airport _destination;                 // destination IATA airport code, mapped to instance of Airport
-   private int _distance;                        // in miles
-   private int _taxiIn;                          // taxi in time, in minutes
-   private int _taxiOut;                         // taxi out time, in minutes
-   private boolean _cancelled;                   // was the flight cancelled?
-   private CancellationCode _cancellationCode;   // reason for cancellation (A = carrier, B = weather, C = NAS, D = security)
-   private boolean _diverted;                    // 1 = yes, 0 = no
-   private int _carrierDelay;                    // in minutes
-   private int _weatherDelay;                    // in minutes
-   private int _NASDelay;                        // in minutes
-   private int _securityDelay;                   // in minutes
-   private int _lateAircraftDelay;               // in minutes
-
-   private Plane plane;
-   private Route route;
-   private LocalDate date;
-
-   public Flight(String input, Repository repository) {
-      String[] source = input.split(",");
-      _year = parseInt(source[0]);
-      _month = parseInt(source[1]);
-      _dayOfMonth = parseInt(source[2]);
-      _dayOfWeek = parseInt(source[3]);
-      _departureTime = "NA".equals(source[4]) ? 0 : parseInt(source[4]);
-      _CRSDepartureTime = parseInt(source[5]);
-      _arrivalTime = "NA".equals(source[6]) ? 0 : parseInt(source[6]);
-      _CRSArrivalTime = parseInt(source[7]);
-      _carrier = repository.getCarrier(source[8]);
-      _flightNumber = parseInt(source[9]);
-      if(length(source[10]) > 0) {
-         _tailNumber = source[10];
-      }
-      _actualElapsedTime = "NA".equals(source[11]) ? 0 : parseInt(source[11]);
-      _CRSElapsedTime = "NA".equals(source[12]) ? 0 : parseInt(source[12]);
-      _airTime = "NA".equals(source[13]) ? 0 : parseInt(source[13]);
-      _arrivalDelay = "NA".equals(source[14]) ? 0 : parseInt(source[14]);
-      _departureDelay = "NA".equals(source[15]) ? 0 : parseInt(source[15]);
-      _origin = repository.getAirport(source[16]);
-      _destination = repository.getAirport(source[17]);
-      _distance = parseInt(source[18]);
-      _taxiIn = "NA".equals(source[19]) ? 0 : parseInt(source[19]);
-      _taxiOut = "NA".equals(source[20]) ? 0 : parseInt(source[20]);
-      _cancelled = source[21].equals("1");
-      _cancellationCode = CancellationCode.get(source[22]);
-      _diverted = source[23].equals("1");
-      _carrierDelay = "NA".equals(source[24]) ? 0 : parseInt(source[24]);
-      _weatherDelay = "NA".equals(source[25]) ? 0 : parseInt(source[25]);
-      _NASDelay = "NA".equals(source[26]) ? 0 : parseInt(source[26]);
-      _securityDelay = "NA".equals(source[27]) ? 0 : parseInt(source[27]);
-      _lateAircraftDelay = "NA".equals(source[28]) ? 0 : parseInt(source[28]);
-
-      plane = repository.getPlane(_tailNumber);
-      if(plane == null) {
-         plane = new Plane();
-         plane.setTailNumber(_tailNumber);
-      }
-      route = new Route(_origin.getIATA(), _destination.getIATA());
-      date = LocalDate.of(_year, _month, _dayOfMonth);
-   }
+   private int hash;
 
-   public String describeRoute() {
-      return _origin + " to " + _destination;
+   Flight() {
    }
 
-   public YearMonth getYearMonth() {
-      return YearMonth.from(date);
+   /**
+    * Returns the flight for a row of a flight CSV file.
+    */
+   public static Flight parse(String input, Repository repository) {
+      return new EagerFlight(new FlightRecord().reset(input), repository);
    }
 
-   public Plane getPlane() {
-      return plane;
+   public String describeRoute() {
+      return getOrigin() + " to " + getDestination();
    }
 
-   public Route getRoute() {
-      return route;
+   public YearMonth getYearMonth() {
+      return YearMonth.from(getDate());
    }
 
-   public LocalDate getDate() {
-      return date;
+   /**
+    * Returns a new view of the route flown. Group flights by
+    * {@link Route#key(int, int)} rather than by this view.
+    */
+   public Route getRoute() {
+      return new Route(getOrigin().getIATA(), getDestination().getIATA());
    }
 
    public boolean validTailNumber() {
-      return _tailNumber != null && _tailNumber.length() > 0;
+      String tailNumber = getTailNumber();
+      return tailNumber != null && tailNumber.length() > 0;
    }
 
-   public int getYear() {
-      return _year;
-   }
+   public abstract Plane getPlane();
 
-   public int getMonth() {
-      return _month;
-   }
+   public abstract LocalDate getDate();
 
-   public int getDayOfMonth() {
-      return _dayOfMonth;
-   };
+   public abstract int getYear();
 
-   public int getDayOfWeek() {
-      return _dayOfWeek;
-   }
+   public abstract int getMonth();
 
-   public int getDepartureTime() {
-      return _departureTime;
-   }
+   public abstract int getDayOfMonth();
 
-   public int getCRSDepartureTime() {
-      return _CRSDepartureTime;
-   }
+   public abstract int getDayOfWeek();
 
-   public int getArrivalTime() {
-      return _arrivalTime;
-   }
+   public abstract int getDepartureTime();
 
-   public int getCRSArrivalTime() {
-      return _CRSArrivalTime;
-   }
+   public abstract int getCRSDepartureTime();
 
-   public Carrier getCarrier() {
-      return _carrier;
-   }
+   public abstract int getArrivalTime();
 
-   public int getFlightNumber() {
-      return _flightNumber;
-   }
+   public abstract int getCRSArrivalTime();
 
-   public String getTailNumber() {
-      return _tailNumber;
-   }
+   public abstract Carrier getCarrier();
 
-   public int getActualElapsedTime() {
-      return _actualElapsedTime;
-   }
+   public abstract int getFlightNumber();
 
-   public int getCRSElapsedTime() {
-      return _CRSElapsedTime;
-   }
+   public abstract String getTailNumber();
 
-   public int getAirTime() {
-      return _airTime;
-   }
+   public abstract int getActualElapsedTime();
 
-   public int getArrivalDelay() {
-      return _arrivalDelay;
-   }
+   public abstract int getCRSElapsedTime();
 
-   public int getDepartureDelay() {
-      return _departureDelay;
-   }
+   public abstract int getAirTime();
 
-   public Airport getOrigin() {
-      return _origin;
-   }
+   public abstract int getArrivalDelay();
 
-   public Airport getDestination() {
-      return _destination;
-   }
+   public abstract int getDepartureDelay();
 
-   public int getDistance() {
-      return _distance;
-   }
+   public abstract Airport getOrigin();
 
-   public int getTaxiIn() {
-      return _taxiIn;
-   }
+   public abstract Airport getDestination();
 
-   public int getTaxiOut() {
-      return _taxiOut;
-   }
+   public abstract int getDistance();
 
-   public boolean cancelled() {
-      return _cancelled;
-   }
+   public abstract int getTaxiIn();
+
+   public abstract int getTaxiOut();
+
+   public abstract boolean cancelled();
 
    public boolean notCancelled() {
-      return ! _cancelled;
+      return ! cancelled();
    }
 
-   public CancellationCode getCancellationCode() {
-      return _cancellationCode;
-   }
+   public abstract CancellationCode getCancellationCode();
 
-   public boolean diverted() {
-      return _diverted;
-   }
+   public abstract boolean diverted();
 
    public boolean notDiverted() {
-      return ! _diverted;
+      return ! diverted();
    }
 
-   public int getCarrierDelay() {
-      return _carrierDelay;
-   }
+   public abstract int getCarrierDelay();
 
-   public int getWeatherDelay() {
-      return _weatherDelay;
-   }
+   public abstract int getWeatherDelay();
 
-   public int getNASDelay() {
-      return _NASDelay;
-   }
+   public abstract int getNASDelay();
 
-   public int getSecurityDelay() {
-      return _securityDelay;
-   }
+   public abstract int getSecurityDelay();
 
-   public int getLateAircraftDelay() {
-      return _lateAircraftDelay;
-   }
+   public abstract int getLateAircraftDelay();
 
+   /**
+    * Flights are compared field by field through their getters, so a
+    * {@link LazyFlight} equals the {@link EagerFlight} for the same row.
+    * The carrier, airport and plane references come from the repository, so
+    * comparing them is usually an identity check.
+    */
    @Override
    public boolean equals(Object obj) {
-      return EqualsBuilder.reflectionEquals(this, obj, false);
-   }
-
+      if(this == obj) {
+         return true;
+      }
+      if(!(obj instanceof Flight)) {
+         return false;
+      }
+      Flight other = (Flight) obj;
+      return getYear() == other.getYear() &&
+             getMonth() == other.getMonth() &&
+             getDayOfMonth() == other.getDayOfMonth() &&
+             getDayOfWeek() == other.getDayOfWeek() &&
+             getDepartureTime() == other.getDepartureTime() &&
+             getCRSDepartureTime() == other.getCRSDepartureTime() &&
+             getArrivalTime() == other.getArrivalTime() &&
+             getCRSArrivalTime() == other.getCRSArrivalTime() &&
+             getFlightNumber() == other.getFlightNumber() &&
+             getActualElapsedTime() == other.getActualElapsedTime() &&
+             getCRSElapsedTime() == other.getCRSElapsedTime() &&
+             getAirTime() == other.getAirTime() &&
+             getArrivalDelay() == other.getArrivalDelay() &&
+             getDepartureDelay() == other.getDepartureDelay() &&
+             getDistance() == other.getDistance() &&
+             getTaxiIn() == other.getTaxiIn() &&
+             getTaxiOut() == other.getTaxiOut() &&
+             cancelled() == other.cancelled() &&
+             getCancellationCode() == other.getCancellationCode() &&
+             diverted() == other.diverted() &&
+             getCarrierDelay() == other.getCarrierDelay() &&
+             getWeatherDelay() == other.getWeatherDelay() &&
+             getNASDelay() == other.getNASDelay() &&
+             getSecurityDelay() == other.getSecurityDelay() &&
+             getLateAircraftDelay() == other.getLateAircraftDelay() &&
+             Objects.equals(getCarrier(), other.getCarrier()) &&
+             Objects.equals(getTailNumber(), other.getTailNumber()) &&
+             Objects.equals(getOrigin(), other.getOrigin()) &&
+             Objects.equals(getDestination(), other.getDestination()) &&
+             Objects.equals(getPlane(), other.getPlane());
+   }
+
+   /**
+    * The hash code is based on the fields that identify a scheduled flight
+    * and is computed once.
+    */
    @Override
    public int hashCode() {
-      return HashCodeBuilder.reflectionHashCode(this, false);
-   }
-
-   @Override
-   public String toString() {
-      return ToStringBuilder.reflectionToString(this);
+      int result = hash;
+      if(result == 0) {
+         result = getYear();
+         result = 31 * result + getMonth();
+         result = 31 * result + getDayOfMonth();
+         result = 31 * result + getCRSDepartureTime();
+         result = 31 * result + Objects.hashCode(getCarrier());
+         result = 31 * result + getFlightNumber();
+         result = 31 * result + Objects.hashCode(getOrigin());
+         result = 31 * result + Objects.hashCode(getDestination());
+         hash = result;
+      }
+      return result;
    }
 }
\ No newline at end of file
@@ -0,0 +1,524 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pre-aggregated counts for the flights of one year. Each cell of the cube
+ * holds the number of flights, cancellations and diversions and the sums
+ * of the departure and arrival delays for one combination of date, origin,
+ * destination and carrier. The totals for each day are kept as well, so
+ * daily, monthly and day of week reports are answered from 366 entries
+ * and reports by day and origin or carrier from the cells, without
+ * reading a single flight.
+ *
+ * Departure delays are summed over the flights that were not cancelled and
+ * arrival delays over the flights that were neither cancelled nor
+ * diverted, the same flights the delay reports average over.
+ *
+ * The cube is built with one pass over the flights the first time it is
+ * needed, reading the snapshot of the year if there is one, and saved
+ * next to the CSV file with a .cube extension. Like the index it records
+ * the size and modification time of the CSV file and is rebuilt when
+ * either changes, so each year is only aggregated again when its own data
+ * changes. The airport and carrier codes used by the cells are local
+ * to the cube and are resolved through the repository.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class FlightCube {
+   private static final Logger logger = LoggerFactory.getLogger(FlightCube.class);
+   private static final String EXTENSION = ".cube";
+   private static final int MAGIC = 0x464C5443;     // "FLTC"
+   private static final int VERSION = 1;
+   private static final int HEADER_SIZE = 32;
+   private static final int DAY_KEYS = 367;         // days of the year are one-based
+   private static final int DAY_SIZE = 12;
+
+   // cell layout
+   private static final int DAY_OFFSET = 0;
+   private static final int ORIGIN_OFFSET = 2;
+   private static final int DESTINATION_OFFSET = 4;
+   private static final int CARRIER_OFFSET = 6;
+   private static final int FLIGHTS_OFFSET = 8;
+   private static final int CANCELLED_OFFSET = 12;
+   private static final int DIVERTED_OFFSET = 16;
+   private static final int DEPARTURE_DELAY_OFFSET = 20;
+   private static final int ARRIVAL_DELAY_OFFSET = 28;
+   private static final int CELL_SIZE = 36;
+
+   private final Repository repository;
+   private final ByteBuffer buffer;
+   private final int year;
+   private final int size;
+   private final String[] airports;
+   private final String[] carriers;
+   private final int daysStart;
+   private final int cellsStart;
+
+   private FlightCube(Repository repository, ByteBuffer buffer) {
+      this.repository = repository;
+      this.buffer = buffer;
+      this.year = buffer.getInt(24);
+      this.size = buffer.getInt(28);
+      int position = HEADER_SIZE;
+      this.airports = new String[buffer.getInt(position)];
+      position = readKeys(position, airports);
+      this.carriers = new String[buffer.getInt(position)];
+      position = readKeys(position, carriers);
+      this.daysStart = position;
+      this.cellsStart = position + DAY_KEYS * DAY_SIZE;
+   }
+
+   /**
+    * Returns the location of the cube for the given CSV file.
+    */
+   static Path getPath(Path source) {
+      String name = source.getFileName().toString();
+      int index = name.lastIndexOf('.');
+      return source.resolveSibling((index > 0 ? name.substring(0, index) : name) + EXTENSION);
+   }
+
+   /**
+    * Opens the saved cube for the given CSV file. Returns null if there is
+    * no cube or if it is out of date or was written by another version.
+    */
+   static FlightCube open(Path source, Repository repository) {
+      ByteBuffer buffer = map(getPath(source), source);
+      return buffer == null ? null : new FlightCube(repository, buffer);
+   }
+
+   /**
+    * Builds the cube for the given CSV file and saves it, replacing any
+    * existing cube. The flights are read from the snapshot if there is one.
+    * If the cube cannot be saved it is kept in memory.
+    */
+   static FlightCube build(int year, Path source, FlightSnapshot snapshot,
+      Repository repository) {
+      Builder builder = new Builder(year, source);
+      FlightScan.run(source, snapshot, repository, builder);
+      return builder.build(repository);
+   }
+
+   /**
+    * Maps a saved cube, or returns null if there is none or it does not
+    * match the CSV file.
+    */
+   private static ByteBuffer map(Path path, Path source) {
+      if(Files.notExists(path)) {
+         return null;
+      }
+      try(FileChannel channel = FileChannel.open(path, READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         if(channel.read(header, 0) < HEADER_SIZE) {
+            return null;
+         }
+         header.flip();
+         if(header.getInt() != MAGIC || header.getInt() != VERSION ||
+            header.getLong() != Files.size(source) ||
+            header.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+            return null;
+         }
+         return channel.map(MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   /**
+    * Aggregates the rows of a {@link FlightScan} into a new cube. The size
+    * and modification time of the CSV file are taken before the first row
+    * is read.
+    */
+   static final class Builder implements FlightSink {
+      private final int year;
+      private final Path source;
+      private final long sourceSize;
+      private final long sourceModified;
+      private final CodeDictionary<String> airports = new CodeDictionary<>(Function.identity());
+      private final CodeDictionary<String> carriers = new CodeDictionary<>(Function.identity());
+      private final Cells[] days = new Cells[DAY_KEYS];
+
+      Builder(int year, Path source) {
+         this.year = year;
+         this.source = source;
+         try {
+            this.sourceSize = Files.size(source);
+            this.sourceModified = Files.getLastModifiedTime(source).toMillis();
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+      }
+
+      @Override
+      public void add(FlightFields row, long offset) {
+         int day = LocalDate.of(year, row.getInt(FlightRecord.MONTH),
+                                row.getInt(FlightRecord.DAY_OF_MONTH)).getDayOfYear();
+         if(days[day] == null) {
+            days[day] = new Cells();
+         }
+         days[day].add(row, airports, carriers);
+      }
+
+      /**
+       * Saves the cube, replacing any existing cube, and returns it. If the
+       * cube cannot be saved it is kept in memory.
+       */
+      FlightCube build(Repository repository) {
+         Path path = getPath(source);
+         ByteBuffer buffer = aggregate();
+         try {
+            write(path, buffer);
+            // the CSV file may have changed while it was read, in which case
+            // the saved cube no longer matches it and the one in memory is used
+            ByteBuffer mapped = map(path, source);
+            if(mapped != null) {
+               buffer = mapped;
+            }
+         } catch (IOException e) {
+            logger.warn("Unable to save cube {}: {}", path, e.getMessage());
+         }
+         return new FlightCube(repository, buffer);
+      }
+
+      private ByteBuffer aggregate() {
+         String[] airportKeys = keys(airports);
+         String[] carrierKeys = keys(carriers);
+         int size = 0;
+         for(Cells cells : days) {
+            size += cells == null ? 0 : cells.size;
+         }
+         long length = HEADER_SIZE + keysLength(airportKeys) + keysLength(carrierKeys) +
+                       DAY_KEYS * DAY_SIZE + (long) size * CELL_SIZE;
+         if(length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Cube too large for " + source);
+         }
+         ByteBuffer buffer = ByteBuffer.allocate((int) length);
+         buffer.putInt(MAGIC)
+               .putInt(VERSION)
+               .putLong(sourceSize)
+               .putLong(sourceModified)
+               .putInt(year)
+               .putInt(size);
+         writeKeys(buffer, airportKeys);
+         writeKeys(buffer, carrierKeys);
+         for(Cells cells : days) {
+            if(cells == null) {
+               buffer.putInt(0).putInt(0).putInt(0);
+            } else {
+               cells.writeTotals(buffer);
+            }
+         }
+         for(int day = 0; day < DAY_KEYS; day++) {
+            if(days[day] != null) {
+               days[day].writeCells(buffer, day);
+            }
+         }
+         buffer.flip();
+         return buffer;
+      }
+   }
+
+   private static String[] keys(CodeDictionary<String> dictionary) {
+      String[] keys = new String[dictionary.size()];
+      for(int code = 0; code < keys.length; code++) {
+         keys[code] = dictionary.decode(code);
+      }
+      return keys;
+   }
+
+   private static long keysLength(String[] keys) {
+      long length = 4;
+      for(String key : keys) {
+         length += 2 + key.length();
+      }
+      return length;
+   }
+
+   private static void writeKeys(ByteBuffer buffer, String[] keys) {
+      buffer.putInt(keys.length);
+      for(String key : keys) {
+         byte[] bytes = key.getBytes(ISO_8859_1);
+         buffer.putShort((short) bytes.length)
+               .put(bytes);
+      }
+   }
+
+   /**
+    * Writes the cube under a temporary name and then moves it into place,
+    * so a partially written cube is never opened.
+    */
+   private static void write(Path path, ByteBuffer buffer) throws IOException {
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      try(FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+         ByteBuffer content = buffer.duplicate();
+         while(content.hasRemaining()) {
+            channel.write(content);
+         }
+      }
+      Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+   }
+
+   /**
+    * Reads a section of keys and returns the position after it.
+    */
+   private int readKeys(int position, String[] keys) {
+      position += 4;
+      for(int i = 0; i < keys.length; i++) {
+         byte[] key = new byte[buffer.getShort(position)];
+         position += 2;
+         for(int j = 0; j < key.length; j++) {
+            key[j] = buffer.get(position + j);
+         }
+         position += key.length;
+         keys[i] = new String(key, ISO_8859_1);
+      }
+      return position;
+   }
+
+   public int getYear() {
+      return year;
+   }
+
+   /**
+    * Returns a stream of every day of the year, from 1 to 365 or 366.
+    */
+   public IntStream days() {
+      return IntStream.rangeClosed(1, Year.of(year).length());
+   }
+
+   /**
+    * Returns the number of flights scheduled on the given day of the year.
+    */
+   public int getDayFlights(int day) {
+      return buffer.getInt(daysStart + day * DAY_SIZE);
+   }
+
+   public int getDayCancelled(int day) {
+      return buffer.getInt(daysStart + day * DAY_SIZE + 4);
+   }
+
+   public int getDayDiverted(int day) {
+      return buffer.getInt(daysStart + day * DAY_SIZE + 8);
+   }
+
+   /**
+    * Returns the number of cells in the cube.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns a stream of every cell index in the cube. Cells are ordered by
+    * day of the year.
+    */
+   public IntStream cells() {
+      return IntStream.range(0, size);
+   }
+
+   public int getDayOfYear(int cell) {
+      return buffer.getShort(cellsStart + cell * CELL_SIZE + DAY_OFFSET);
+   }
+
+   public int getOriginCode(int cell) {
+      return buffer.getShort(cellsStart + cell * CELL_SIZE + ORIGIN_OFFSET) & 0xFFFF;
+   }
+
+   public int getDestinationCode(int cell) {
+      return buffer.getShort(cellsStart + cell * CELL_SIZE + DESTINATION_OFFSET) & 0xFFFF;
+   }
+
+   public int getCarrierCode(int cell) {
+      return buffer.getShort(cellsStart + cell * CELL_SIZE + CARRIER_OFFSET) & 0xFFFF;
+   }
+
+   public int getFlights(int cell) {
+      return buffer.getInt(cellsStart + cell * CELL_SIZE + FLIGHTS_OFFSET);
+   }
+
+   public int getCancelled(int cell) {
+      return buffer.getInt(cellsStart + cell * CELL_SIZE + CANCELLED_OFFSET);
+   }
+
+   public int getDiverted(int cell) {
+      return buffer.getInt(cellsStart + cell * CELL_SIZE + DIVERTED_OFFSET);
+   }
+
+   public long getDepartureDelay(int cell) {
+      return buffer.getLong(cellsStart + cell * CELL_SIZE + DEPARTURE_DELAY_OFFSET);
+   }
+
+   public long getArrivalDelay(int cell) {
+      return buffer.getLong(cellsStart + cell * CELL_SIZE + ARRIVAL_DELAY_OFFSET);
+   }
+
+   /**
+    * Returns an upper bound for the airport codes in this cube, suitable
+    * for sizing an array indexed by code. The same applies to the carrier
+    * count.
+    */
+   public int getAirportCount() {
+      return airports.length;
+   }
+
+   public int getCarrierCount() {
+      return carriers.length;
+   }
+
+   public Airport getAirportByCode(int code) {
+      return repository.getAirport(airports[code]);
+   }
+
+   public Carrier getCarrierByCode(int code) {
+      return repository.getCarrier(carriers[code]);
+   }
+
+   /**
+    * The cells of a single day, held in an open addressing hash table keyed
+    * by the origin, destination and carrier codes packed into a long.
+    */
+   private static final class Cells {
+      private static final int INITIAL_CAPACITY = 1 << 8;
+
+      private long[] keys;
+      private int[] flights;     // zero marks an empty slot
+      private int[] cancelled;
+      private int[] diverted;
+      private long[] departureDelay;
+      private long[] arrivalDelay;
+      private int size;
+      private int totalFlights;
+      private int totalCancelled;
+      private int totalDiverted;
+
+      Cells() {
+         allocate(INITIAL_CAPACITY);
+      }
+
+      void add(FlightFields record, CodeDictionary<String> airports,
+         CodeDictionary<String> carriers) {
+         long key = (long) record.getCode(FlightRecord.ORIGIN, airports) << 32 |
+                    (long) record.getCode(FlightRecord.DESTINATION, airports) << 16 |
+                    record.getCode(FlightRecord.CARRIER, carriers);
+         int slot = find(key);
+         if(flights[slot] == 0) {
+            if(size * 2 >= keys.length) {
+               rehash(keys.length * 2);
+               slot = find(key);
+            }
+            keys[slot] = key;
+            ++size;
+         }
+         ++flights[slot];
+         ++totalFlights;
+         if(record.getFlag(FlightRecord.CANCELLED)) {
+            ++cancelled[slot];
+            ++totalCancelled;
+            return;
+         }
+         departureDelay[slot] += record.getInt(FlightRecord.DEPARTURE_DELAY);
+         if(record.getFlag(FlightRecord.DIVERTED)) {
+            ++diverted[slot];
+            ++totalDiverted;
+         } else {
+            arrivalDelay[slot] += record.getInt(FlightRecord.ARRIVAL_DELAY);
+         }
+      }
+
+      void writeTotals(ByteBuffer buffer) {
+         buffer.putInt(totalFlights)
+               .putInt(totalCancelled)
+               .putInt(totalDiverted);
+      }
+
+      /**
+       * Writes the cells in key order, which groups them by origin.
+       */
+      void writeCells(ByteBuffer buffer, int day) {
+         long[] sorted = new long[size];
+         int n = 0;
+         for(int slot = 0; slot < keys.length; slot++) {
+            if(flights[slot] > 0) {
+               sorted[n++] = keys[slot];
+            }
+         }
+         Arrays.sort(sorted);
+         for(long key : sorted) {
+            int slot = find(key);
+            buffer.putShort((short) day)
+                  .putShort((short) (key >>> 32))
+                  .putShort((short) (key >>> 16))
+                  .putShort((short) key)
+                  .putInt(flights[slot])
+                  .putInt(cancelled[slot])
+                  .putInt(diverted[slot])
+                  .putLong(departureDelay[slot])
+                  .putLong(arrivalDelay[slot]);
+         }
+      }
+
+      /**
+       * Returns the slot holding the given key, or the empty slot where it
+       * would be inserted.
+       */
+      private int find(long key) {
+         int mask = keys.length - 1;
+         long hash = key * 0x9E3779B97F4A7C15L;
+         int slot = (int) (hash ^ (hash >>> 32)) & mask;
+         while(flights[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+         }
+         return slot;
+      }
+
+      private void rehash(int capacity) {
+         long[] oldKeys = keys;
+         int[] oldFlights = flights;
+         int[] oldCancelled = cancelled;
+         int[] oldDiverted = diverted;
+         long[] oldDepartureDelay = departureDelay;
+         long[] oldArrivalDelay = arrivalDelay;
+         allocate(capacity);
+         for(int slot = 0; slot < oldKeys.length; slot++) {
+            if(oldFlights[slot] > 0) {
+               int newSlot = find(oldKeys[slot]);
+               keys[newSlot] = oldKeys[slot];
+               flights[newSlot] = oldFlights[slot];
+               cancelled[newSlot] = oldCancelled[slot];
+               diverted[newSlot] = oldDiverted[slot];
+               departureDelay[newSlot] = oldDepartureDelay[slot];
+               arrivalDelay[newSlot] = oldArrivalDelay[slot];
+            }
+         }
+      }
+
+      private void allocate(int capacity) {
+         keys = new long[capacity];
+         flights = new int[capacity];
+         cancelled = new int[capacity];
+         diverted = new int[capacity];
+         departureDelay = new long[capacity];
+         arrivalDelay = new long[capacity];
+      }
+   }
+}
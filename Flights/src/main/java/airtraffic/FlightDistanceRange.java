@@ -32,6 +32,18 @@ public class FlightDistanceRange implements Comparable<FlightDistanceRange> {
                         .get();
    }
 
+   /**
+    * Returns the index of the range that contains the given distance.
+    */
+   public static int indexOf(List<FlightDistanceRange> ranges, int distance) {
+      for(int i = 0; i < ranges.size(); i++) {
+         if(ranges.get(i).contains(distance)) {
+            return i;
+         }
+      }
+      throw new IllegalStateException("No range for distance of " + distance);
+   }
+
    @Override
    public int compareTo(FlightDistanceRange other) {
       return this.range.getMaximum() - other.range.getMinimum(); 
@@ -0,0 +1,21 @@
+package airtraffic;
+
+import airtraffic.Flight.CancellationCode;
+
+/**
+ * Source of the primitive values of a single flight. Fields are addressed
+ * by the index constants defined in {@link FlightRecord}.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+interface FlightFields {
+   int getInt(int field);
+   boolean getFlag(int field);
+   CancellationCode getCancellationCode();
+
+   /**
+    * Returns the code the given dictionary assigns to the value of a
+    * carrier, airport or tail number field.
+    */
+   int getCode(int field, CodeDictionary<?> dictionary);
+}
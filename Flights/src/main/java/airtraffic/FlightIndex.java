@@ -0,0 +1,533 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Secondary indexes over the flights for one year. For each origin,
+ * destination, carrier and date the index holds a posting list of the
+ * ordinals of the matching rows, in file order, and for each row it holds
+ * the offset at which the row starts in the CSV file along with whether
+ * the flight was cancelled or diverted. A report that only needs one
+ * airport's or one carrier's flights can then read just those rows
+ * instead of the whole file, and a report that only counts them need not
+ * read any row at all.
+ *
+ * The index is built with one pass over the flights the first time it is
+ * needed and saved next to the CSV file with an .index extension. Like a
+ * snapshot it records the size and modification time of the CSV file and
+ * is rebuilt when either changes. The saved file is memory-mapped, so
+ * posting lists are only paged in when they are read.
+ *
+ * An index built from a snapshot has no row offsets, since the rows are
+ * read from the snapshot by ordinal instead of from the CSV file.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class FlightIndex {
+   private static final Logger logger = LoggerFactory.getLogger(FlightIndex.class);
+   private static final String EXTENSION = ".index";
+   private static final int MAGIC = 0x464C5449;     // "FLTI"
+   private static final int VERSION = 3;
+   private static final int HEADER_SIZE = 32;
+   private static final int ROW_OFFSETS = 0x01;     // flag set when offsets are present
+   private static final byte CANCELLED = 0x01;      // row flags
+   private static final byte DIVERTED = 0x02;
+   private static final int[] NO_ROWS = new int[0];
+
+   private final Path source;
+   private final Repository repository;
+   private final ByteBuffer buffer;
+   private final int size;
+   private final boolean rowOffsets;
+   private final int flagsStart;
+   private final Map<String, Integer> origins;
+   private final Map<String, Integer> destinations;
+   private final Map<String, Integer> carriers;
+   private final Map<String, Integer> dates;
+
+   private FlightIndex(Path source, Repository repository, ByteBuffer buffer) {
+      this.source = source;
+      this.repository = repository;
+      this.buffer = buffer;
+      this.size = buffer.getInt(24);
+      this.rowOffsets = (buffer.getInt(28) & ROW_OFFSETS) != 0;
+      this.flagsStart = HEADER_SIZE + (rowOffsets ? (size + 1) * 8 : 0);
+      int position = flagsStart + size;
+      this.origins = new HashMap<>();
+      position = readKeys(position, origins);
+      this.destinations = new HashMap<>();
+      position = readKeys(position, destinations);
+      this.carriers = new HashMap<>();
+      position = readKeys(position, carriers);
+      this.dates = new HashMap<>();
+      readKeys(position, dates);
+   }
+
+   /**
+    * Returns the location of the index for the given CSV file.
+    */
+   static Path getPath(Path source) {
+      String name = source.getFileName().toString();
+      int index = name.lastIndexOf('.');
+      return source.resolveSibling((index > 0 ? name.substring(0, index) : name) + EXTENSION);
+   }
+
+   /**
+    * Opens the saved index for the given CSV file. Returns null if there is
+    * no index or if it is out of date or was written by another version.
+    */
+   static FlightIndex open(Path source, Repository repository) {
+      ByteBuffer buffer = map(getPath(source), source);
+      return buffer == null ? null : new FlightIndex(source, repository, buffer);
+   }
+
+   /**
+    * Builds the index for the given CSV file and saves it, replacing any
+    * existing index. The flights are read from the snapshot if there is
+    * one. If the index cannot be saved it is kept in memory.
+    */
+   static FlightIndex build(int year, Path source, FlightSnapshot snapshot,
+      Repository repository) {
+      Builder builder = new Builder(year, source);
+      FlightScan.run(source, snapshot, repository, builder);
+      return builder.build(repository);
+   }
+
+   /**
+    * Maps a saved index, or returns null if there is none or it does not
+    * match the CSV file.
+    */
+   private static ByteBuffer map(Path path, Path source) {
+      if(Files.notExists(path)) {
+         return null;
+      }
+      try(FileChannel channel = FileChannel.open(path, READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         if(channel.read(header, 0) < HEADER_SIZE) {
+            return null;
+         }
+         header.flip();
+         if(header.getInt() != MAGIC || header.getInt() != VERSION ||
+            header.getLong() != Files.size(source) ||
+            header.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+            return null;
+         }
+         return channel.map(MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   /**
+    * Collects the posting lists and row offsets of a {@link FlightScan}
+    * into a new index. The size and modification time of the CSV file are
+    * taken before the first row is read.
+    */
+   static final class Builder implements FlightSink {
+      private final int year;
+      private final Path source;
+      private final long sourceSize;
+      private final long sourceModified;
+      private final CodeDictionary<String> airports = new CodeDictionary<>(Function.identity());
+      private final CodeDictionary<String> carrierCodes = 
+         new CodeDictionary<>(Function.identity());
+      private final Postings origins = new Postings();
+      private final Postings destinations = new Postings();
+      private final Postings carriers = new Postings();
+      private final Postings days = new Postings();
+      private long[] offsets = new long[1 << 16];
+      private byte[] flags = new byte[1 << 16];
+      private boolean rowOffsets = true;
+      private int size;
+
+      Builder(int year, Path source) {
+         this.year = year;
+         this.source = source;
+         try {
+            this.sourceSize = Files.size(source);
+            this.sourceModified = Files.getLastModifiedTime(source).toMillis();
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+      }
+
+      @Override
+      public void add(FlightFields row, long offset) {
+         if(offset < 0) {
+            rowOffsets = false;
+         } else if(rowOffsets) {
+            if(size + 1 >= offsets.length) {
+               offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size] = offset;
+         }
+         if(size == flags.length) {
+            flags = Arrays.copyOf(flags, flags.length * 2);
+         }
+         flags[size] = (byte) ((row.getFlag(FlightRecord.CANCELLED) ? CANCELLED : 0) |
+                               (row.getFlag(FlightRecord.DIVERTED) ? DIVERTED : 0));
+         origins.add(row.getCode(FlightRecord.ORIGIN, airports), size);
+         destinations.add(row.getCode(FlightRecord.DESTINATION, airports), size);
+         carriers.add(row.getCode(FlightRecord.CARRIER, carrierCodes), size);
+         days.add(LocalDate.of(year, row.getInt(FlightRecord.MONTH),
+                               row.getInt(FlightRecord.DAY_OF_MONTH)).getDayOfYear(),
+                  size);
+         ++size;
+      }
+
+      /**
+       * Saves the index, replacing any existing index, and returns it. If
+       * the index cannot be saved it is kept in memory.
+       */
+      FlightIndex build(Repository repository) {
+         Path path = getPath(source);
+         ByteBuffer buffer = index();
+         try {
+            write(path, buffer);
+            // the CSV file may have changed while it was read, in which case
+            // the saved index no longer matches it and the one in memory is used
+            ByteBuffer mapped = map(path, source);
+            if(mapped != null) {
+               buffer = mapped;
+            }
+         } catch (IOException e) {
+            logger.warn("Unable to save index {}: {}", path, e.getMessage());
+         }
+         return new FlightIndex(source, repository, buffer);
+      }
+
+      private ByteBuffer index() {
+         String[] airportKeys = keys(airports);
+         String[] carrierKeys = keys(carrierCodes);
+         String[] dayKeys = new String[days.lists.length];
+         for(int day = 1; day < dayKeys.length; day++) {
+            if(days.sizes[day] > 0) {
+               dayKeys[day] = LocalDate.ofYearDay(year, day).toString();
+            }
+         }
+
+         long length = HEADER_SIZE + (rowOffsets ? (size + 1) * 8L : 0) + size +
+                       origins.length(airportKeys) + destinations.length(airportKeys) +
+                       carriers.length(carrierKeys) + days.length(dayKeys);
+         if(length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Index too large for " + source);
+         }
+         ByteBuffer buffer = ByteBuffer.allocate((int) length);
+         buffer.putInt(MAGIC)
+               .putInt(VERSION)
+               .putLong(sourceSize)
+               .putLong(sourceModified)
+               .putInt(size)
+               .putInt(rowOffsets ? ROW_OFFSETS : 0);
+         if(rowOffsets) {
+            offsets[size] = sourceSize;
+            for(int row = 0; row <= size; row++) {
+               buffer.putLong(offsets[row]);
+            }
+         }
+         buffer.put(flags, 0, size);
+         origins.write(buffer, airportKeys);
+         destinations.write(buffer, airportKeys);
+         carriers.write(buffer, carrierKeys);
+         days.write(buffer, dayKeys);
+         buffer.flip();
+         return buffer;
+      }
+   }
+
+   private static String[] keys(CodeDictionary<String> dictionary) {
+      String[] keys = new String[dictionary.size()];
+      for(int code = 0; code < keys.length; code++) {
+         keys[code] = dictionary.decode(code);
+      }
+      return keys;
+   }
+
+   /**
+    * Writes the index under a temporary name and then moves it into place,
+    * so a partially written index is never opened.
+    */
+   private static void write(Path path, ByteBuffer buffer) throws IOException {
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      try(FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+         ByteBuffer content = buffer.duplicate();
+         while(content.hasRemaining()) {
+            channel.write(content);
+         }
+      }
+      Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+   }
+
+   /**
+    * Reads the keys of one posting list section and returns the position
+    * after it.
+    */
+   private int readKeys(int position, Map<String, Integer> keys) {
+      int count = buffer.getInt(position);
+      position += 4;
+      for(int i = 0; i < count; i++) {
+         byte[] key = new byte[buffer.getShort(position)];
+         position += 2;
+         for(int j = 0; j < key.length; j++) {
+            key[j] = buffer.get(position + j);
+         }
+         position += key.length;
+         keys.put(new String(key, ISO_8859_1), position);
+         position += 4 + buffer.getInt(position) * 4;
+      }
+      return position;
+   }
+
+   private int[] getRows(Map<String, Integer> keys, String key) {
+      Integer position = keys.get(key);
+      if(position == null) {
+         return NO_ROWS;
+      }
+      int[] rows = new int[buffer.getInt(position)];
+      for(int i = 0; i < rows.length; i++) {
+         rows[i] = buffer.getInt(position + 4 + i * 4);
+      }
+      return rows;
+   }
+
+   /**
+    * Returns the number of rows in the year.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns whether the index holds the offsets of the rows in the CSV
+    * file, which {@link #iterator(int[])} needs. An index built from a
+    * snapshot does not.
+    */
+   boolean hasRowOffsets() {
+      return rowOffsets;
+   }
+
+   public boolean cancelled(int row) {
+      return (buffer.get(flagsStart + row) & CANCELLED) != 0;
+   }
+
+   public boolean notCancelled(int row) {
+      return ! cancelled(row);
+   }
+
+   public boolean diverted(int row) {
+      return (buffer.get(flagsStart + row) & DIVERTED) != 0;
+   }
+
+   public boolean notDiverted(int row) {
+      return ! diverted(row);
+   }
+
+   /**
+    * Returns the destinations that have at least one row in the index.
+    * Airports missing from the reference data are left out.
+    */
+   public List<Airport> getDestinations() {
+      List<Airport> result = new ArrayList<>(destinations.size());
+      for(String iata : destinations.keySet()) {
+         Airport airport = repository.getAirport(iata);
+         if(airport != null) {
+            result.add(airport);
+         }
+      }
+      return result;
+   }
+
+   public int[] getOriginRows(Airport origin) {
+      return getRows(origins, origin.getIATA());
+   }
+
+   public int[] getDestinationRows(Airport destination) {
+      return getRows(destinations, destination.getIATA());
+   }
+
+   public int[] getCarrierRows(Carrier carrier) {
+      return getRows(carriers, carrier.getCode());
+   }
+
+   public int[] getDateRows(LocalDate date) {
+      return getRows(dates, date.toString());
+   }
+
+   /**
+    * Returns the rows found in either of two posting lists.
+    */
+   public static int[] union(int[] rows1, int[] rows2) {
+      int[] result = new int[rows1.length + rows2.length];
+      int i = 0, j = 0, n = 0;
+      while(i < rows1.length && j < rows2.length) {
+         if(rows1[i] < rows2[j]) {
+            result[n++] = rows1[i++];
+         } else if(rows1[i] > rows2[j]) {
+            result[n++] = rows2[j++];
+         } else {
+            result[n++] = rows1[i++];
+            j++;
+         }
+      }
+      while(i < rows1.length) {
+         result[n++] = rows1[i++];
+      }
+      while(j < rows2.length) {
+         result[n++] = rows2[j++];
+      }
+      return Arrays.copyOf(result, n);
+   }
+
+   /**
+    * Returns the rows found in both of two posting lists.
+    */
+   public static int[] intersection(int[] rows1, int[] rows2) {
+      int[] result = new int[Math.min(rows1.length, rows2.length)];
+      int i = 0, j = 0, n = 0;
+      while(i < rows1.length && j < rows2.length) {
+         if(rows1[i] < rows2[j]) {
+            i++;
+         } else if(rows1[i] > rows2[j]) {
+            j++;
+         } else {
+            result[n++] = rows1[i++];
+            j++;
+         }
+      }
+      return Arrays.copyOf(result, n);
+   }
+
+   /**
+    * Returns the flights for the given rows, reading only those rows from
+    * the CSV file. The file is closed once the last flight has been read.
+    */
+   RowIterator iterator(int[] rows) {
+      return new RowIterator(rows);
+   }
+
+   final class RowIterator implements Iterator<Flight>, Closeable {
+      private final int[] rows;
+      private final FileChannel channel;
+      private final FlightReader reader;
+      private int index;
+
+      RowIterator(int[] rows) {
+         if(!rowOffsets) {
+            throw new IllegalStateException("Index has no row offsets for " + source);
+         }
+         this.rows = rows;
+         this.channel = FlightReader.open(source);
+         this.reader = new FlightReader(channel, 0, 0, repository);
+         if(rows.length == 0) {
+            close();
+         }
+      }
+
+      @Override
+      public boolean hasNext() {
+         return index < rows.length;
+      }
+
+      @Override
+      public Flight next() {
+         if(!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         int row = rows[index++];
+         Flight flight = reader.readFlight(buffer.getLong(HEADER_SIZE + row * 8),
+                                           buffer.getLong(HEADER_SIZE + (row + 1) * 8));
+         if(!hasNext()) {
+            close();
+         }
+         return flight;
+      }
+
+      @Override
+      public void close() {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+      }
+   }
+
+   /**
+    * Growable posting lists indexed by key code.
+    */
+   private static final class Postings {
+      private int[][] lists = new int[16][];
+      private int[] sizes = new int[16];
+
+      void add(int code, int row) {
+         if(code >= lists.length) {
+            int capacity = Math.max(code + 1, lists.length * 2);
+            lists = Arrays.copyOf(lists, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+         }
+         int[] list = lists[code];
+         if(list == null) {
+            list = lists[code] = new int[16];
+         } else if(sizes[code] == list.length) {
+            list = lists[code] = Arrays.copyOf(list, list.length * 2);
+         }
+         list[sizes[code]++] = row;
+      }
+
+      long length(String[] keys) {
+         long length = 4;
+         for(int code = 0; code < lists.length; code++) {
+            if(sizes[code] > 0) {
+               length += 2 + keys[code].length() + 4 + sizes[code] * 4L;
+            }
+         }
+         return length;
+      }
+
+      void write(ByteBuffer buffer, String[] keys) {
+         int count = 0;
+         for(int size : sizes) {
+            if(size > 0) {
+               ++count;
+            }
+         }
+         buffer.putInt(count);
+         for(int code = 0; code < lists.length; code++) {
+            if(sizes[code] > 0) {
+               byte[] key = keys[code].getBytes(ISO_8859_1);
+               buffer.putShort((short) key.length)
+                     .put(key)
+                     .putInt(sizes[code]);
+               for(int i = 0; i < sizes[code]; i++) {
+                  buffer.putInt(lists[code][i]);
+               }
+            }
+         }
+      }
+   }
+}
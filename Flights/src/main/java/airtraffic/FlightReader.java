@@ -0,0 +1,247 @@
+package airtraffic;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads flights from a range of a CSV file in large byte chunks. Rows are
+ * located and decoded directly in the chunk buffer, so no String is created
+ * for a row or for its numeric fields. Reads are positional, so readers for
+ * different ranges of the same file can safely share a channel.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightReader implements Iterator<Flight>, Closeable {
+   private static final int BUFFER_SIZE = 1 << 16;
+
+   private final FileChannel channel;
+   private final boolean ownsChannel;
+   private long end;
+   private final Repository repository;
+   private final FlightRecord record = new FlightRecord();
+   private byte[] buffer = new byte[BUFFER_SIZE];
+   private long filePosition; // file offset of the next byte to read
+   private int position;      // start of the next unread row
+   private int scanned;       // bytes before this index contain no newline
+   private int limit;         // end of valid data in the buffer
+   private int rowStart;
+   private int rowEnd;
+   private boolean eof;
+   private boolean closed;
+   private Flight next;
+
+   /**
+    * Creates a reader for an entire file, skipping the header row. The
+    * file is closed once the last row has been read.
+    */
+   FlightReader(Path path, Repository repository) {
+      this(open(path), 0, -1, true, repository);
+      nextRow();     // skip header
+   }
+
+   /**
+    * Creates a reader for the rows found between start (inclusive) and end
+    * (exclusive). Both offsets must fall on row boundaries. The channel is
+    * left open when the reader is closed.
+    */
+   FlightReader(FileChannel channel, long start, long end, Repository repository) {
+      this(channel, start, end, false, repository);
+   }
+
+   private FlightReader(FileChannel channel, long start, long end,
+      boolean ownsChannel, Repository repository) {
+      this.channel = channel;
+      this.ownsChannel = ownsChannel;
+      this.filePosition = start;
+      this.repository = repository;
+      try {
+         this.end = end < 0 ? channel.size() : end;
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   static FileChannel open(Path path) {
+      try {
+         return FileChannel.open(path, READ);
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   /**
+    * Returns the offset of the first row that starts at or after the given
+    * position, or end if there is no such row before end.
+    */
+   static long findRowStart(FileChannel channel, long position, long end) {
+      if(position == 0) {
+         return 0;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(4096);
+      long offset = position - 1;      // a row starts right after a newline
+      try {
+         while(offset < end) {
+            buffer.clear();
+            int count = channel.read(buffer, offset);
+            if(count <= 0) {
+               break;
+            }
+            for(int i = 0; i < count && offset + i < end; i++) {
+               if(buffer.get(i) == '\n') {
+                  return offset + i + 1;
+               }
+            }
+            offset += count;
+         }
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+      return end;
+   }
+
+   @Override
+   public boolean hasNext() {
+      if(next == null) {
+         next = readFlight();
+      }
+      return next != null;
+   }
+
+   @Override
+   public Flight next() {
+      if(!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      Flight result = next;
+      next = null;
+      return result;
+   }
+
+   @Override
+   public void close() {
+      if(closed) {
+         return;
+      }
+      closed = eof = true;
+      position = limit = scanned = 0;
+      if(ownsChannel) {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+      }
+   }
+
+   /**
+    * Advances to the next non-empty row and returns a record positioned on
+    * it, or null at the end of the range. The record is reused, so it is
+    * only valid until the next call.
+    */
+   FlightRecord nextRecord() {
+      while(nextRow()) {
+         if(rowEnd > rowStart) {
+            return record.reset(buffer, rowStart, rowEnd);
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Returns the file offset of the row the last record was read from.
+    */
+   long getRowOffset() {
+      return filePosition - (limit - rowStart);
+   }
+
+   /**
+    * Reads the first row found between start (inclusive) and end
+    * (exclusive), reusing this reader's buffer. Returns null if the range
+    * holds no row. Used to fetch individual rows located with an index.
+    */
+   FlightRecord readRecord(long start, long end) {
+      this.filePosition = start;
+      this.end = end;
+      position = limit = scanned = 0;
+      eof = closed = false;
+      return nextRecord();
+   }
+
+   /**
+    * Same as {@link #readRecord(long, long)} but returns a flight.
+    */
+   Flight readFlight(long start, long end) {
+      FlightRecord record = readRecord(start, end);
+      return record == null ? null : repository.newFlight(record);
+   }
+
+   private Flight readFlight() {
+      FlightRecord record = nextRecord();
+      return record == null ? null : repository.newFlight(record);
+   }
+
+   /**
+    * Locates the next row in the buffer, reading more data when needed.
+    * Returns false once the end of the range has been reached.
+    */
+   private boolean nextRow() {
+      while(true) {
+         for(int i = scanned; i < limit; i++) {
+            if(buffer[i] == '\n') {
+               setRow(position, i);
+               position = scanned = i + 1;
+               return true;
+            }
+         }
+         scanned = limit;
+         if(eof) {
+            if(position < limit) {
+               setRow(position, limit);
+               position = scanned = limit;
+               return true;
+            }
+            close();
+            return false;
+         }
+         fill();
+      }
+   }
+
+   private void setRow(int start, int end) {
+      rowStart = start;
+      rowEnd = end > start && buffer[end - 1] == '\r' ? end - 1 : end;
+   }
+
+   private void fill() {
+      int remaining = limit - position;
+      if(position > 0) {
+         System.arraycopy(buffer, position, buffer, 0, remaining);
+      } else if(remaining == buffer.length) {
+         buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      scanned -= position;
+      position = 0;
+      limit = remaining;
+      int length = (int) Math.min(buffer.length - limit, end - filePosition);
+      try {
+         int count = length > 0 ?
+            channel.read(ByteBuffer.wrap(buffer, limit, length), filePosition) : -1;
+         if(count < 0) {
+            eof = true;
+         } else {
+            limit += count;
+            filePosition += count;
+         }
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+}
@@ -0,0 +1,179 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.util.Arrays;
+
+import airtraffic.Flight.CancellationCode;
+
+/**
+ * Reusable view over a single row of flight data held in a byte array. The
+ * row is tokenized once and each field is decoded in place, so integer and
+ * flag fields never become intermediate String instances.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightRecord implements FlightFields {
+   static final int YEAR = 0;
+   static final int MONTH = 1;
+   static final int DAY_OF_MONTH = 2;
+   static final int DAY_OF_WEEK = 3;
+   static final int DEPARTURE_TIME = 4;
+   static final int CRS_DEPARTURE_TIME = 5;
+   static final int ARRIVAL_TIME = 6;
+   static final int CRS_ARRIVAL_TIME = 7;
+   static final int CARRIER = 8;
+   static final int FLIGHT_NUMBER = 9;
+   static final int TAIL_NUMBER = 10;
+   static final int ACTUAL_ELAPSED_TIME = 11;
+   static final int CRS_ELAPSED_TIME = 12;
+   static final int AIR_TIME = 13;
+   static final int ARRIVAL_DELAY = 14;
+   static final int DEPARTURE_DELAY = 15;
+   static final int ORIGIN = 16;
+   static final int DESTINATION = 17;
+   static final int DISTANCE = 18;
+   static final int TAXI_IN = 19;
+   static final int TAXI_OUT = 20;
+   static final int CANCELLED = 21;
+   static final int CANCELLATION_CODE = 22;
+   static final int DIVERTED = 23;
+   static final int CARRIER_DELAY = 24;
+   static final int WEATHER_DELAY = 25;
+   static final int NAS_DELAY = 26;
+   static final int SECURITY_DELAY = 27;
+   static final int LATE_AIRCRAFT_DELAY = 28;
+   static final int FIELD_COUNT = 29;
+
+   private static final byte SEPARATOR = ',';
+
+   private final int[] starts = new int[FIELD_COUNT];
+   private final int[] ends = new int[FIELD_COUNT];
+   private byte[] buffer;
+
+   /**
+    * Tokenizes the row found between from (inclusive) and to (exclusive).
+    * Missing trailing fields are treated as empty.
+    */
+   FlightRecord reset(byte[] buffer, int from, int to) {
+      this.buffer = buffer;
+      int field = 0;
+      int start = from;
+      for(int i = from; i < to && field < FIELD_COUNT; i++) {
+         if(buffer[i] == SEPARATOR) {
+            starts[field] = start;
+            ends[field++] = i;
+            start = i + 1;
+         }
+      }
+      if(field < FIELD_COUNT) {
+         starts[field] = start;
+         ends[field++] = to;
+      }
+      while(field < FIELD_COUNT) {
+         starts[field] = to;
+         ends[field++] = to;
+      }
+      return this;
+   }
+
+   FlightRecord reset(String row) {
+      byte[] bytes = row.getBytes(ISO_8859_1);
+      return reset(bytes, 0, bytes.length);
+   }
+
+   /**
+    * Decodes an integer field. Empty fields and "NA" are decoded as zero.
+    */
+   @Override
+   public int getInt(int field) {
+      return decodeInt(buffer, starts[field], ends[field], field);
+   }
+
+   @Override
+   public boolean getFlag(int field) {
+      return decodeFlag(buffer, starts[field], ends[field]);
+   }
+
+   @Override
+   public CancellationCode getCancellationCode() {
+      return decodeCancellationCode(buffer, starts[CANCELLATION_CODE], ends[CANCELLATION_CODE]);
+   }
+
+   static int decodeInt(byte[] buffer, int start, int end, int field) {
+      int i = start;
+      if(i == end || buffer[i] == 'N') {
+         return 0;
+      }
+      boolean negative = false;
+      if(buffer[i] == '-') {
+         negative = true;
+         ++i;
+      } else if(buffer[i] == '+') {
+         ++i;
+      }
+      int result = 0;
+      for(; i < end; i++) {
+         int digit = buffer[i] - '0';
+         if(digit < 0 || digit > 9) {
+            throw new NumberFormatException("Invalid value for field " + field + ": " + 
+                                            new String(buffer, start, end - start, ISO_8859_1));
+         }
+         result = result * 10 + digit;
+      }
+      return negative ? -result : result;
+   }
+
+   static boolean decodeFlag(byte[] buffer, int start, int end) {
+      return end - start == 1 && buffer[start] == '1';
+   }
+
+   static CancellationCode decodeCancellationCode(byte[] buffer, int start, int end) {
+      if(end - start != 1) {
+         return null;
+      }
+      switch(buffer[start]) {
+         case 'A': return CancellationCode.CARRIER;
+         case 'B': return CancellationCode.WEATHER;
+         case 'C': return CancellationCode.NAS;
+         case 'D': return CancellationCode.SECURITY;
+         default:  return null;
+      }
+   }
+
+   /**
+    * Returns the dictionary code for the value of a field without creating
+    * a String for it.
+    */
+   @Override
+   public int getCode(int field, CodeDictionary<?> dictionary) {
+      return dictionary.encode(buffer, starts[field], ends[field] - starts[field]);
+   }
+
+   <T> T getValue(int field, CodeDictionary<T> dictionary) {
+      return dictionary.decode(getCode(field, dictionary));
+   }
+
+   /**
+    * Returns a copy of the bytes of the whole row.
+    */
+   byte[] copyRow() {
+      return Arrays.copyOfRange(buffer, starts[0], ends[FIELD_COUNT - 1]);
+   }
+
+   /**
+    * Returns where a field ends, counted from the start of the row.
+    */
+   int getRowOffset(int field) {
+      return ends[field] - starts[0];
+   }
+
+   String getString(int field) {
+      int length = getLength(field);
+      return length == 0 ? "" : new String(buffer, starts[field], length, ISO_8859_1);
+   }
+
+   int getLength(int field) {
+      return ends[field] - starts[field];
+   }
+}
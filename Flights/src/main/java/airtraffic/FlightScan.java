@@ -0,0 +1,38 @@
+package airtraffic;
+
+import java.nio.file.Path;
+
+/**
+ * A single pass over the flights of one year that feeds every row to any
+ * number of sinks. The rows are read from the snapshot of the year when
+ * there is one, which saves parsing the CSV file, and from the CSV file
+ * otherwise.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightScan {
+   /**
+    * Passes every row of the year to each of the sinks in turn, in file
+    * order. The snapshot may be null.
+    */
+   static void run(Path source, FlightSnapshot snapshot, Repository repository,
+      FlightSink... sinks) {
+      if(snapshot != null) {
+         snapshot.scan((row, offset) -> {
+            for(FlightSink sink : sinks) {
+               sink.add(row, offset);
+            }
+         });
+         return;
+      }
+      try(FlightReader reader = new FlightReader(source, repository)) {
+         FlightRecord record;
+         while((record = reader.nextRecord()) != null) {
+            long offset = reader.getRowOffset();
+            for(FlightSink sink : sinks) {
+               sink.add(record, offset);
+            }
+         }
+      }
+   }
+}
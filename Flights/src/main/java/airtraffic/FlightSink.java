@@ -0,0 +1,17 @@
+package airtraffic;
+
+/**
+ * Receives the rows of one pass over the flights of a year, so the table,
+ * the cube and the index of the year can be built from a single read of
+ * the data.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+interface FlightSink {
+   /**
+    * Adds the next row. The fields are only valid for the duration of the
+    * call. The offset is where the row starts in the CSV file, or -1 when
+    * the row was read from a snapshot.
+    */
+   void add(FlightFields row, long offset);
+}
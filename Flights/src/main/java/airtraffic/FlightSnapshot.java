@@ -0,0 +1,398 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import airtraffic.Flight.CancellationCode;
+
+/**
+ * Pre-parsed copy of a flight CSV file. Every flight is stored as a fixed
+ * width binary record, with carriers, airports and tail numbers replaced
+ * by codes into dictionaries kept at the end of the file. The records are
+ * memory mapped, so flights can be served without parsing any text.
+ *
+ * The header records a format version along with the size and modified
+ * time of the CSV file the snapshot was created from. A snapshot that does
+ * not match its source file is ignored.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightSnapshot {
+   private static final String EXTENSION = ".snapshot";
+   private static final int MAGIC = 0x464C5453;     // "FLTS"
+   private static final int VERSION = 2;
+   private static final int HEADER_SIZE = 40;
+   private static final int WRITE_BATCH_SIZE = 1 << 12;
+   private static final CancellationCode[] CANCELLATION_CODES = CancellationCode.values();
+
+   // Record layout: month, day of month and day of week as bytes, a byte of
+   // flags, four short dictionary codes and then the remaining int fields.
+   private static final int MONTH_OFFSET = 0;
+   private static final int DAY_OF_MONTH_OFFSET = 1;
+   private static final int DAY_OF_WEEK_OFFSET = 2;
+   private static final int FLAGS_OFFSET = 3;
+   private static final int CARRIER_OFFSET = 4;
+   private static final int ORIGIN_OFFSET = 6;
+   private static final int DESTINATION_OFFSET = 8;
+   private static final int PLANE_OFFSET = 10;
+   private static final int[] INT_FIELDS = {
+      FlightRecord.YEAR, FlightRecord.DEPARTURE_TIME, FlightRecord.CRS_DEPARTURE_TIME,
+      FlightRecord.ARRIVAL_TIME, FlightRecord.CRS_ARRIVAL_TIME, FlightRecord.FLIGHT_NUMBER,
+      FlightRecord.ACTUAL_ELAPSED_TIME, FlightRecord.CRS_ELAPSED_TIME, FlightRecord.AIR_TIME,
+      FlightRecord.ARRIVAL_DELAY, FlightRecord.DEPARTURE_DELAY, FlightRecord.DISTANCE,
+      FlightRecord.TAXI_IN, FlightRecord.TAXI_OUT, FlightRecord.CARRIER_DELAY,
+      FlightRecord.WEATHER_DELAY, FlightRecord.NAS_DELAY, FlightRecord.SECURITY_DELAY,
+      FlightRecord.LATE_AIRCRAFT_DELAY
+   };
+   private static final int INT_FIELDS_OFFSET = 12;
+   private static final int RECORD_SIZE = INT_FIELDS_OFFSET + INT_FIELDS.length * 4;
+   private static final int[] FIELD_OFFSETS = new int[FlightRecord.FIELD_COUNT];
+   private static final int ROWS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_SIZE;
+
+   private static final int MAX_CODE = 0xFFFF;
+   private static final int CANCELLED = 0x01;
+   private static final int DIVERTED = 0x02;
+   private static final int CANCELLATION_CODE_SHIFT = 2;
+
+   static {
+      for(int i = 0; i < INT_FIELDS.length; i++) {
+         FIELD_OFFSETS[INT_FIELDS[i]] = INT_FIELDS_OFFSET + i * 4;
+      }
+      FIELD_OFFSETS[FlightRecord.MONTH] = MONTH_OFFSET;
+      FIELD_OFFSETS[FlightRecord.DAY_OF_MONTH] = DAY_OF_MONTH_OFFSET;
+      FIELD_OFFSETS[FlightRecord.DAY_OF_WEEK] = DAY_OF_WEEK_OFFSET;
+   }
+
+   private final int size;
+   private final ByteBuffer[] segments;
+   private final byte[][] carrierKeys;
+   private final byte[][] airportKeys;
+   private final byte[][] planeKeys;
+   private final Carrier[] carriers;
+   private final Airport[] airports;
+   private final Plane[] planes;
+
+   private FlightSnapshot(int size, ByteBuffer[] segments, byte[][] carrierKeys,
+      byte[][] airportKeys, byte[][] planeKeys, Repository repository) {
+      this.size = size;
+      this.segments = segments;
+      this.carrierKeys = carrierKeys;
+      this.airportKeys = airportKeys;
+      this.planeKeys = planeKeys;
+      this.carriers = decode(carrierKeys, repository.getCarrierCodes()).toArray(new Carrier[0]);
+      this.airports = decode(airportKeys, repository.getAirportCodes()).toArray(new Airport[0]);
+      this.planes = decode(planeKeys, repository.getPlaneCodes()).toArray(new Plane[0]);
+   }
+
+   /**
+    * Returns the location of the snapshot for the given CSV file.
+    */
+   static Path getPath(Path source) {
+      String name = source.getFileName().toString();
+      int index = name.lastIndexOf('.');
+      return source.resolveSibling((index > 0 ? name.substring(0, index) : name) + EXTENSION);
+   }
+
+   /**
+    * Opens the snapshot for the given CSV file. Returns null if there is
+    * no snapshot or if it is out of date or was written by another version.
+    */
+   static FlightSnapshot open(Path source, Repository repository) {
+      Path path = getPath(source);
+      if(Files.notExists(path)) {
+         return null;
+      }
+      try(FileChannel channel = FileChannel.open(path, READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         if(channel.read(header, 0) < HEADER_SIZE) {
+            return null;
+         }
+         header.flip();
+         if(header.getInt() != MAGIC || header.getInt() != VERSION ||
+            header.getLong() != Files.size(source) ||
+            header.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+            return null;
+         }
+         int size = header.getInt();
+         long dictionaryOffset = header.getLong();
+
+         ByteBuffer dictionaries =
+            channel.map(MapMode.READ_ONLY, dictionaryOffset, channel.size() - dictionaryOffset);
+         byte[][] carrierKeys = readDictionary(dictionaries);
+         byte[][] airportKeys = readDictionary(dictionaries);
+         byte[][] planeKeys = readDictionary(dictionaries);
+
+         ByteBuffer[] segments = new ByteBuffer[(size + ROWS_PER_SEGMENT - 1) / ROWS_PER_SEGMENT];
+         for(int i = 0; i < segments.length; i++) {
+            long rows = Math.min(ROWS_PER_SEGMENT, size - (long) i * ROWS_PER_SEGMENT);
+            segments[i] = channel.map(MapMode.READ_ONLY,
+                                      HEADER_SIZE + (long) i * ROWS_PER_SEGMENT * RECORD_SIZE,
+                                      rows * RECORD_SIZE);
+         }
+         return new FlightSnapshot(size, segments, carrierKeys, airportKeys, planeKeys, 
+                                   repository);
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   /**
+    * Converts the given CSV file into a snapshot, replacing any existing
+    * snapshot. The file is written under a temporary name and then moved
+    * into place, so a partially written snapshot is never opened.
+    */
+   static Path write(Path source, Repository repository) {
+      Path path = getPath(source);
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      CodeDictionary<String> carriers = new CodeDictionary<>(Function.identity());
+      CodeDictionary<String> airports = new CodeDictionary<>(Function.identity());
+      CodeDictionary<String> planes = new CodeDictionary<>(Function.identity());
+      try(FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING);
+          FlightReader reader = new FlightReader(source, repository)) {
+         long sourceSize = Files.size(source);
+         long sourceModified = Files.getLastModifiedTime(source).toMillis();
+         ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * WRITE_BATCH_SIZE);
+         long position = HEADER_SIZE;
+         int size = 0;
+         FlightRecord record;
+         while((record = reader.nextRecord()) != null) {
+            writeRecord(buffer, record, carriers, airports, planes);
+            ++size;
+            if(! buffer.hasRemaining()) {
+               position += flush(channel, buffer, position);
+            }
+         }
+         position += flush(channel, buffer, position);
+
+         long dictionaryOffset = position;
+         position += writeDictionary(channel, carriers, position);
+         position += writeDictionary(channel, airports, position);
+         position += writeDictionary(channel, planes, position);
+
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         header.putInt(MAGIC)
+               .putInt(VERSION)
+               .putLong(sourceSize)
+               .putLong(sourceModified)
+               .putInt(size)
+               .putLong(dictionaryOffset);
+         header.clear();
+         channel.write(header, 0);
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+      try {
+         return Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   private static void writeRecord(ByteBuffer buffer, FlightRecord record,
+      CodeDictionary<String> carriers, CodeDictionary<String> airports,
+      CodeDictionary<String> planes) {
+      int base = buffer.position();
+      int flags = (record.getFlag(FlightRecord.CANCELLED) ? CANCELLED : 0) |
+                  (record.getFlag(FlightRecord.DIVERTED) ? DIVERTED : 0);
+      CancellationCode code = record.getCancellationCode();
+      if(code != null) {
+         flags |= (code.ordinal() + 1) << CANCELLATION_CODE_SHIFT;
+      }
+      buffer.put(base + MONTH_OFFSET, (byte) record.getInt(FlightRecord.MONTH));
+      buffer.put(base + DAY_OF_MONTH_OFFSET, (byte) record.getInt(FlightRecord.DAY_OF_MONTH));
+      buffer.put(base + DAY_OF_WEEK_OFFSET, (byte) record.getInt(FlightRecord.DAY_OF_WEEK));
+      buffer.put(base + FLAGS_OFFSET, (byte) flags);
+      buffer.putShort(base + CARRIER_OFFSET, getCode(record, FlightRecord.CARRIER, carriers));
+      buffer.putShort(base + ORIGIN_OFFSET, getCode(record, FlightRecord.ORIGIN, airports));
+      buffer.putShort(base + DESTINATION_OFFSET, 
+                      getCode(record, FlightRecord.DESTINATION, airports));
+      buffer.putShort(base + PLANE_OFFSET, getCode(record, FlightRecord.TAIL_NUMBER, planes));
+      for(int field : INT_FIELDS) {
+         buffer.putInt(base + FIELD_OFFSETS[field], record.getInt(field));
+      }
+      buffer.position(base + RECORD_SIZE);
+   }
+
+   private static short getCode(FlightRecord record, int field, 
+      CodeDictionary<String> dictionary) {
+      int code = record.getCode(field, dictionary);
+      if(code > MAX_CODE) {
+         throw new IllegalStateException("Too many distinct values for field " + field);
+      }
+      return (short) code;
+   }
+
+   private static int flush(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+      buffer.flip();
+      int length = buffer.remaining();
+      while(buffer.hasRemaining()) {
+         channel.write(buffer, position + buffer.position());
+      }
+      buffer.clear();
+      return length;
+   }
+
+   private static int writeDictionary(FileChannel channel, CodeDictionary<String> dictionary,
+      long position) throws IOException {
+      int length = 4;
+      for(int code = 0; code < dictionary.size(); code++) {
+         length += 2 + dictionary.decode(code).length();
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      buffer.putInt(dictionary.size());
+      for(int code = 0; code < dictionary.size(); code++) {
+         String key = dictionary.decode(code);
+         buffer.putShort((short) key.length());
+         buffer.put(key.getBytes(ISO_8859_1));
+      }
+      return flush(channel, buffer, position);
+   }
+
+   private static byte[][] readDictionary(ByteBuffer buffer) {
+      byte[][] keys = new byte[buffer.getInt()][];
+      for(int i = 0; i < keys.length; i++) {
+         keys[i] = new byte[buffer.getShort()];
+         buffer.get(keys[i]);
+      }
+      return keys;
+   }
+
+   private static <T> List<T> decode(byte[][] keys, CodeDictionary<T> dictionary) {
+      List<T> values = new ArrayList<>(keys.length);
+      for(byte[] key : keys) {
+         values.add(dictionary.get(new String(key, ISO_8859_1)));
+      }
+      return values;
+   }
+
+   int size() {
+      return size;
+   }
+
+   Stream<Flight> stream() {
+      return IntStream.range(0, size).mapToObj(this::getFlight);
+   }
+
+   Iterator<Flight> iterator() {
+      return new Iterator<Flight>() {
+         private int row;
+
+         @Override
+         public boolean hasNext() {
+            return row < size;
+         }
+
+         @Override
+         public Flight next() {
+            if(!hasNext()) {
+               throw new NoSuchElementException();
+            }
+            return getFlight(row++);
+         }
+      };
+   }
+
+   /**
+    * Passes every record to the sink in file order, without creating a
+    * flight for any of them.
+    */
+   void scan(FlightSink sink) {
+      Record record = new Record();
+      for(int row = 0; row < size; row++) {
+         sink.add(record.moveTo(row), -1);
+      }
+   }
+
+   Flight getFlight(int row) {
+      Record record = new Record().moveTo(row);
+      return new EagerFlight(record,
+                        carriers[record.getCode(CARRIER_OFFSET)],
+                        airports[record.getCode(ORIGIN_OFFSET)],
+                        airports[record.getCode(DESTINATION_OFFSET)],
+                        planes[record.getCode(PLANE_OFFSET)]);
+   }
+
+   /**
+    * View over one record. Only absolute reads are used, so the mapped
+    * buffers can be shared by any number of threads.
+    */
+   private final class Record implements FlightFields {
+      private ByteBuffer buffer;
+      private int base;
+
+      Record moveTo(int row) {
+         this.buffer = segments[row / ROWS_PER_SEGMENT];
+         this.base = (row % ROWS_PER_SEGMENT) * RECORD_SIZE;
+         return this;
+      }
+
+      int getCode(int offset) {
+         return buffer.getShort(base + offset) & 0xFFFF;
+      }
+
+      /**
+       * Returns the code the dictionary assigns to the key stored for the
+       * field, without creating a String for it.
+       */
+      @Override
+      public int getCode(int field, CodeDictionary<?> dictionary) {
+         byte[] key;
+         switch(field) {
+            case FlightRecord.CARRIER:     key = carrierKeys[getCode(CARRIER_OFFSET)]; break;
+            case FlightRecord.ORIGIN:      key = airportKeys[getCode(ORIGIN_OFFSET)]; break;
+            case FlightRecord.DESTINATION: key = airportKeys[getCode(DESTINATION_OFFSET)]; break;
+            case FlightRecord.TAIL_NUMBER: key = planeKeys[getCode(PLANE_OFFSET)]; break;
+            default: throw new IllegalArgumentException("Not a code: " + field);
+         }
+         return dictionary.encode(key, 0, key.length);
+      }
+
+      @Override
+      public int getInt(int field) {
+         switch(field) {
+            case FlightRecord.MONTH:
+            case FlightRecord.DAY_OF_MONTH:
+            case FlightRecord.DAY_OF_WEEK:
+               return buffer.get(base + FIELD_OFFSETS[field]);
+            default:
+               return buffer.getInt(base + FIELD_OFFSETS[field]);
+         }
+      }
+
+      @Override
+      public boolean getFlag(int field) {
+         int flags = buffer.get(base + FLAGS_OFFSET);
+         switch(field) {
+            case FlightRecord.CANCELLED: return (flags & CANCELLED) != 0;
+            case FlightRecord.DIVERTED:  return (flags & DIVERTED) != 0;
+            default: throw new IllegalArgumentException("Not a flag: " + field);
+         }
+      }
+
+      @Override
+      public CancellationCode getCancellationCode() {
+         int code = buffer.get(base + FLAGS_OFFSET) >> CANCELLATION_CODE_SHIFT;
+         return code == 0 ? null : CANCELLATION_CODES[code - 1];
+      }
+   }
+}
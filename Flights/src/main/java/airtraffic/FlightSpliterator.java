@@ -0,0 +1,167 @@
+package airtraffic;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the flights in a CSV file. The file is split into byte
+ * ranges that always start and end on row boundaries, so parallel streams
+ * get balanced chunks that can be read and parsed independently.
+ *
+ * Each range opens its own channel when it starts reading and closes it
+ * when it reaches its end, so ranges that are never read, such as those a
+ * short-circuiting operation like findFirst or limit leaves behind, hold
+ * no file open. {@link #close()} closes the channels of the ranges that
+ * were abandoned part way through.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightSpliterator implements Spliterator<Flight> {
+   private static final long MIN_SPLIT_SIZE = 1 << 20;
+   private static final int AVERAGE_ROW_LENGTH = 100;
+
+   private final Path path;
+   private final Set<FileChannel> channels;   // of the ranges being read
+   private final Repository repository;
+   private long start;
+   private final long end;
+   private FileChannel channel;
+   private FlightReader reader;
+   private boolean done;
+
+   FlightSpliterator(Path path, Repository repository) {
+      this.path = path;
+      this.channels = ConcurrentHashMap.newKeySet();
+      this.repository = repository;
+      FileChannel channel = FlightReader.open(path);
+      try {
+         this.end = channel.size();
+         this.start = FlightReader.findRowStart(channel, 1, end);     // skip header
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      } finally {
+         close(channel);
+      }
+   }
+
+   private FlightSpliterator(FlightSpliterator parent, long start, long end) {
+      this.path = parent.path;
+      this.channels = parent.channels;
+      this.repository = parent.repository;
+      this.start = start;
+      this.end = end;
+   }
+
+   @Override
+   public boolean tryAdvance(Consumer<? super Flight> action) {
+      if(done) {
+         return false;
+      }
+      FlightReader reader = getReader();
+      if(reader.hasNext()) {
+         action.accept(reader.next());
+         return true;
+      }
+      release();
+      return false;
+   }
+
+   @Override
+   public void forEachRemaining(Consumer<? super Flight> action) {
+      if(done) {
+         return;
+      }
+      try {
+         FlightReader reader = getReader();
+         while(reader.hasNext()) {
+            action.accept(reader.next());
+         }
+      } finally {
+         release();
+      }
+   }
+
+   /**
+    * Splits off the first half of the remaining rows. Splitting is only
+    * supported before traversal has started.
+    */
+   @Override
+   public Spliterator<Flight> trySplit() {
+      if(reader != null || done || end - start < 2 * MIN_SPLIT_SIZE) {
+         return null;
+      }
+      long middle;
+      FileChannel channel = FlightReader.open(path);
+      try {
+         middle = FlightReader.findRowStart(channel, start + (end - start) / 2, end);
+      } finally {
+         close(channel);
+      }
+      if(middle >= end) {
+         return null;
+      }
+      FlightSpliterator prefix = new FlightSpliterator(this, start, middle);
+      this.start = middle;
+      return prefix;
+   }
+
+   @Override
+   public long estimateSize() {
+      return done ? 0 : (end - start) / AVERAGE_ROW_LENGTH;
+   }
+
+   @Override
+   public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+   }
+
+   /**
+    * Closes the channels of every range split from the same file that is
+    * still being read.
+    */
+   void close() {
+      for(FileChannel channel : channels) {
+         if(channels.remove(channel)) {
+            close(channel);
+         }
+      }
+   }
+
+   /**
+    * Returns how many ranges split from the same file have a channel open.
+    */
+   int getOpenChannels() {
+      return channels.size();
+   }
+
+   private FlightReader getReader() {
+      if(reader == null) {
+         channel = FlightReader.open(path);
+         channels.add(channel);
+         reader = new FlightReader(channel, start, end, repository);
+      }
+      return reader;
+   }
+
+   private void release() {
+      if(!done) {
+         done = true;
+         if(channel != null && channels.remove(channel)) {
+            close(channel);
+         }
+      }
+   }
+
+   private static void close(FileChannel channel) {
+      try {
+         channel.close();
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+}
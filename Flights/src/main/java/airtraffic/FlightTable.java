@@ -0,0 +1,360 @@
+package airtraffic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+import airtraffic.Flight.CancellationCode;
+
+/**
+ * Column oriented, in-memory copy of the flights for a single year. Each
+ * field is held in its own primitive array and the carrier, airport and
+ * plane references are replaced by the codes the repository assigned to
+ * them, so a flight takes 51 bytes of columns and two bits of flags
+ * instead of a graph of objects. Rows are addressed by their index, which
+ * allows reports to run as tight scans over the columns they need:
+ *
+ *   table.rows().filter(row -> table.getOriginCode(row) == code).count()
+ *
+ * Tables are immutable once loaded and may be shared between threads.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class FlightTable {
+   private static final int AVERAGE_ROW_LENGTH = 100;
+   private static final int MIN_CAPACITY = 1 << 10;
+   private static final int MAX_CODE = 0xFFFF;
+   private static final CancellationCode[] CANCELLATION_CODES = CancellationCode.values();
+
+   private final int year;
+   private final byte[] months;       // month of each day of the year
+   private final int firstDayOfWeek;  // day of week of January 1st
+   private final CodeDictionary<Carrier> carriers;
+   private final CodeDictionary<Airport> airports;
+   private final CodeDictionary<Plane> planes;
+   private final BitSet cancelled = new BitSet();
+   private final BitSet diverted = new BitSet();
+   private int size;
+   private short[] dayOfYear;
+   private int[] departureTime;
+   private int[] CRSDepartureTime;
+   private int[] arrivalTime;
+   private int[] CRSArrivalTime;
+   private int[] flightNumber;
+   private int[] actualElapsedTime;
+   private int[] airTime;
+   private int[] arrivalDelay;
+   private int[] departureDelay;
+   private int[] distance;
+   private short[] carrier;
+   private short[] origin;
+   private short[] destination;
+   private short[] plane;
+   private byte[] cancellationCode;   // ordinal + 1, zero when there is none
+
+   private FlightTable(int year, int capacity, Repository repository) {
+      this.year = year;
+      this.months = new byte[Year.of(year).length() + 1];
+      for(LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; 
+          date = date.plusDays(1)) {
+         months[date.getDayOfYear()] = (byte) date.getMonthValue();
+      }
+      this.firstDayOfWeek = LocalDate.of(year, 1, 1).getDayOfWeek().getValue();
+      this.carriers = repository.getCarrierCodes();
+      this.airports = repository.getAirportCodes();
+      this.planes = repository.getPlaneCodes();
+      allocate(Math.max(capacity, MIN_CAPACITY));
+   }
+
+   /**
+    * Reads every flight of the year into a new table, from the snapshot if
+    * there is one and from the CSV file otherwise.
+    */
+   static FlightTable load(int year, Path source, FlightSnapshot snapshot,
+      Repository repository) {
+      Builder builder = new Builder(year, source, snapshot, repository);
+      FlightScan.run(source, snapshot, repository, builder);
+      return builder.build();
+   }
+
+   /**
+    * Collects the rows of a {@link FlightScan} into a new table.
+    */
+   static final class Builder implements FlightSink {
+      private final FlightTable table;
+
+      Builder(int year, Path source, FlightSnapshot snapshot, Repository repository) {
+         int capacity;
+         try {
+            capacity = snapshot != null ? snapshot.size() : 
+                                          (int) (Files.size(source) / AVERAGE_ROW_LENGTH);
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+         this.table = new FlightTable(year, capacity, repository);
+      }
+
+      @Override
+      public void add(FlightFields row, long offset) {
+         table.add(row);
+      }
+
+      FlightTable build() {
+         table.allocate(table.size);     // release unused capacity
+         return table;
+      }
+   }
+
+   private void add(FlightFields record) {
+      if(size == flightNumber.length) {
+         allocate(size + (size >> 1));
+      }
+      int row = size++;
+      dayOfYear[row] = (short) dayOfYear(record.getInt(FlightRecord.MONTH),
+                                         record.getInt(FlightRecord.DAY_OF_MONTH));
+      departureTime[row] = record.getInt(FlightRecord.DEPARTURE_TIME);
+      CRSDepartureTime[row] = record.getInt(FlightRecord.CRS_DEPARTURE_TIME);
+      arrivalTime[row] = record.getInt(FlightRecord.ARRIVAL_TIME);
+      CRSArrivalTime[row] = record.getInt(FlightRecord.CRS_ARRIVAL_TIME);
+      flightNumber[row] = record.getInt(FlightRecord.FLIGHT_NUMBER);
+      actualElapsedTime[row] = record.getInt(FlightRecord.ACTUAL_ELAPSED_TIME);
+      airTime[row] = record.getInt(FlightRecord.AIR_TIME);
+      arrivalDelay[row] = record.getInt(FlightRecord.ARRIVAL_DELAY);
+      departureDelay[row] = record.getInt(FlightRecord.DEPARTURE_DELAY);
+      distance[row] = record.getInt(FlightRecord.DISTANCE);
+
+      carrier[row] = toShort(record.getCode(FlightRecord.CARRIER, carriers));
+      origin[row] = toShort(record.getCode(FlightRecord.ORIGIN, airports));
+      destination[row] = toShort(record.getCode(FlightRecord.DESTINATION, airports));
+      plane[row] = toShort(record.getCode(FlightRecord.TAIL_NUMBER, planes));
+
+      if(record.getFlag(FlightRecord.CANCELLED)) {
+         cancelled.set(row);
+      }
+      if(record.getFlag(FlightRecord.DIVERTED)) {
+         diverted.set(row);
+      }
+      CancellationCode reason = record.getCancellationCode();
+      cancellationCode[row] = (byte) (reason == null ? 0 : reason.ordinal() + 1);
+   }
+
+   private static short toShort(int code) {
+      if(code > MAX_CODE) {
+         throw new IllegalStateException("Code out of range: " + code);
+      }
+      return (short) code;
+   }
+
+   private int dayOfYear(int month, int dayOfMonth) {
+      return LocalDate.of(year, month, dayOfMonth).getDayOfYear();
+   }
+
+   private void allocate(int capacity) {
+      dayOfYear = dayOfYear == null ? new short[capacity] : Arrays.copyOf(dayOfYear, capacity);
+      departureTime = resize(departureTime, capacity);
+      CRSDepartureTime = resize(CRSDepartureTime, capacity);
+      arrivalTime = resize(arrivalTime, capacity);
+      CRSArrivalTime = resize(CRSArrivalTime, capacity);
+      flightNumber = resize(flightNumber, capacity);
+      actualElapsedTime = resize(actualElapsedTime, capacity);
+      airTime = resize(airTime, capacity);
+      arrivalDelay = resize(arrivalDelay, capacity);
+      departureDelay = resize(departureDelay, capacity);
+      distance = resize(distance, capacity);
+      carrier = resize(carrier, capacity);
+      origin = resize(origin, capacity);
+      destination = resize(destination, capacity);
+      plane = resize(plane, capacity);
+      cancellationCode = cancellationCode == null ?
+         new byte[capacity] : Arrays.copyOf(cancellationCode, capacity);
+   }
+
+   private static int[] resize(int[] column, int capacity) {
+      return column == null ? new int[capacity] : Arrays.copyOf(column, capacity);
+   }
+
+   private static short[] resize(short[] column, int capacity) {
+      return column == null ? new short[capacity] : Arrays.copyOf(column, capacity);
+   }
+
+   public int getYear() {
+      return year;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns a stream of every row index in the table.
+    */
+   public IntStream rows() {
+      return IntStream.range(0, size);
+   }
+
+   public LocalDate getDate(int row) {
+      return LocalDate.ofYearDay(year, dayOfYear[row]);
+   }
+
+   public int getDayOfYear(int row) {
+      return dayOfYear[row];
+   }
+
+   public int getMonth(int row) {
+      return months[dayOfYear[row]];
+   }
+
+   /**
+    * Returns the day of the week, from 1 (Monday) to 7 (Sunday).
+    */
+   public int getDayOfWeek(int row) {
+      return (firstDayOfWeek + dayOfYear[row] - 2) % 7 + 1;
+   }
+
+   public int getDepartureTime(int row) {
+      return departureTime[row];
+   }
+
+   public int getCRSDepartureTime(int row) {
+      return CRSDepartureTime[row];
+   }
+
+   public int getArrivalTime(int row) {
+      return arrivalTime[row];
+   }
+
+   public int getCRSArrivalTime(int row) {
+      return CRSArrivalTime[row];
+   }
+
+   public int getFlightNumber(int row) {
+      return flightNumber[row];
+   }
+
+   public int getActualElapsedTime(int row) {
+      return actualElapsedTime[row];
+   }
+
+   public int getAirTime(int row) {
+      return airTime[row];
+   }
+
+   public int getArrivalDelay(int row) {
+      return arrivalDelay[row];
+   }
+
+   public int getDepartureDelay(int row) {
+      return departureDelay[row];
+   }
+
+   public int getDistance(int row) {
+      return distance[row];
+   }
+
+   public boolean cancelled(int row) {
+      return cancelled.get(row);
+   }
+
+   public boolean notCancelled(int row) {
+      return ! cancelled.get(row);
+   }
+
+   public CancellationCode getCancellationCode(int row) {
+      int code = cancellationCode[row];
+      return code == 0 ? null : CANCELLATION_CODES[code - 1];
+   }
+
+   public boolean diverted(int row) {
+      return diverted.get(row);
+   }
+
+   public boolean notDiverted(int row) {
+      return ! diverted.get(row);
+   }
+
+   public int getCarrierCode(int row) {
+      return carrier[row] & 0xFFFF;
+   }
+
+   public Carrier getCarrier(int row) {
+      return carriers.decode(getCarrierCode(row));
+   }
+
+   public int getOriginCode(int row) {
+      return origin[row] & 0xFFFF;
+   }
+
+   public Airport getOrigin(int row) {
+      return airports.decode(getOriginCode(row));
+   }
+
+   public int getDestinationCode(int row) {
+      return destination[row] & 0xFFFF;
+   }
+
+   public Airport getDestination(int row) {
+      return airports.decode(getDestinationCode(row));
+   }
+
+   public int getPlaneCode(int row) {
+      return plane[row] & 0xFFFF;
+   }
+
+   public Plane getPlane(int row) {
+      return planes.decode(getPlaneCode(row));
+   }
+
+   public String getTailNumber(int row) {
+      return getPlane(row).getTailNumber();
+   }
+
+   /**
+    * Returns the code of the given carrier, or -1 if the carrier has not
+    * been seen in any flight data.
+    */
+   public int getCarrierCode(Carrier carrier) {
+      return carriers.lookup(carrier.getCode());
+   }
+
+   /**
+    * Returns the code of the given airport, or -1 if the airport has not
+    * been seen in any flight data.
+    */
+   public int getAirportCode(Airport airport) {
+      return airports.lookup(airport.getIATA());
+   }
+
+   public Carrier getCarrierByCode(int code) {
+      return carriers.decode(code);
+   }
+
+   public Airport getAirportByCode(int code) {
+      return airports.decode(code);
+   }
+
+   public Plane getPlaneByCode(int code) {
+      return planes.decode(code);
+   }
+
+   /**
+    * Returns an upper bound for the carrier codes in this table, suitable
+    * for sizing an array indexed by code. The same applies to the airport
+    * and plane counts.
+    */
+   public int getCarrierCount() {
+      return carriers.size();
+   }
+
+   public int getAirportCount() {
+      return airports.size();
+   }
+
+   public int getPlaneCount() {
+      return planes.size();
+   }
+}
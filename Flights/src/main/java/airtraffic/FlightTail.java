@@ -0,0 +1,182 @@
+package airtraffic;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Follows a CSV file that flights are being appended to, like tail -f. The
+ * rows already in the file are returned first, then the file is polled ten
+ * times a second and only the bytes appended since the last poll are read.
+ * A row is returned once its newline has been written, so a row that is
+ * still being written is never parsed twice or in pieces.
+ *
+ * If the file is truncated or replaced by a new file, it is read again from
+ * the start. Polling is used rather than a WatchService because the watch
+ * service falls back to polling every few seconds on some platforms, which
+ * would not keep the lag below a second.
+ *
+ * {@link #hasNext()} blocks until another flight has been appended. It
+ * returns false once the duration has passed, the tail has been closed or
+ * the thread has been interrupted.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class FlightTail implements Iterator<Flight>, Closeable {
+   private static final long POLL_INTERVAL = 100;  // milliseconds
+   private static final int BUFFER_SIZE = 4096;
+
+   private final Path path;
+   private final Repository repository;
+   private final long deadline;
+   private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+   private FileChannel channel;
+   private Object fileKey;
+   private long position;        // offset of the first row not yet read
+   private FlightReader reader;  // rows found by the last poll
+   private volatile boolean closed;
+   private Flight next;
+
+   FlightTail(Path path, Duration duration, Repository repository) {
+      this.path = path;
+      this.repository = repository;
+      this.deadline = System.nanoTime() + duration.toNanos();
+   }
+
+   @Override
+   public boolean hasNext() {
+      while(next == null && !closed) {
+         if(reader != null && reader.hasNext()) {
+            next = reader.next();
+         } else if(!poll()) {
+            await();
+         }
+      }
+      if(next == null) {
+         closeChannel();
+      }
+      return next != null;
+   }
+
+   @Override
+   public Flight next() {
+      if(!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      Flight result = next;
+      next = null;
+      return result;
+   }
+
+   /**
+    * Stops following the file. May be called from another thread, in which
+    * case a blocked {@link #hasNext()} returns within one poll interval.
+    */
+   @Override
+   public void close() {
+      closed = true;
+   }
+
+   /**
+    * Looks for rows appended since the last poll. Returns true if a reader
+    * was created for them.
+    */
+   private boolean poll() {
+      try {
+         BasicFileAttributes attributes =
+            Files.readAttributes(path, BasicFileAttributes.class);
+         if(channel == null ||
+            !Objects.equals(attributes.fileKey(), fileKey) ||
+            attributes.size() < position) {
+            reopen(attributes.fileKey());
+         }
+         long size = channel.size();
+         long end = findLastRowEnd(size);
+         if(position == 0 && end > 0) {
+            position = FlightReader.findRowStart(channel, 1, end);   // skip header
+         }
+         if(end <= position) {
+            return false;
+         }
+         reader = new FlightReader(channel, position, end, repository);
+         position = end;
+         return true;
+      } catch (NoSuchFileException e) {
+         return false;     // not created yet or being replaced
+      } catch (IOException e) {
+         throw new RepositoryException(e);
+      }
+   }
+
+   private void reopen(Object key) throws IOException {
+      closeChannel();
+      channel = FileChannel.open(path, READ);
+      fileKey = key;
+      position = 0;
+      reader = null;
+   }
+
+   /**
+    * Returns the offset just past the last newline written after the
+    * current position, or the current position if there is none.
+    */
+   private long findLastRowEnd(long size) throws IOException {
+      long offset = size;
+      while(offset > position) {
+         int length = (int) Math.min(BUFFER_SIZE, offset - position);
+         buffer.clear().limit(length);
+         offset -= length;
+         int count = 0;
+         while(count < length) {
+            int read = channel.read(buffer, offset + count);
+            if(read < 0) {
+               return position;
+            }
+            count += read;
+         }
+         for(int i = length - 1; i >= 0; i--) {
+            if(buffer.get(i) == '\n') {
+               return offset + i + 1;
+            }
+         }
+      }
+      return position;
+   }
+
+   private void await() {
+      long remaining = deadline - System.nanoTime();
+      if(remaining <= 0) {
+         closed = true;
+         return;
+      }
+      try {
+         Thread.sleep(Math.min(POLL_INTERVAL, NANOSECONDS.toMillis(remaining) + 1));
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         closed = true;
+      }
+   }
+
+   private void closeChannel() {
+      if(channel != null) {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            throw new RepositoryException(e);
+         }
+         channel = null;
+      }
+   }
+}
@@ -2,29 +2,52 @@ package airtraffic;
 
 import static airtraffic.GeoLocation.Units.MILES;
 import static java.lang.Math.PI;
-import static java.lang.Math.acos;
-import static java.lang.Math.cos;
-import static java.lang.Math.sin;
 
 import java.util.Comparator;
 
 /**
- * GeoLocation helper methods. 
+ * GeoLocation helper methods. Distances are worked out from the vectors of
+ * the locations, which {@link Airport} caches, so each one takes a single
+ * inverse tangent. Use {@link GeoPoints} to work out many distances at
+ * once.
  *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
 public final class GeoHelper {
+   private static final double MILES_PER_DEGREE = 69.09;
+   private static final double KILOMETERS_PER_MILE = 1.609344;
+
+   /**
+    * Returns a comparator that orders locations nearest first. The nearer a
+    * location is, the larger the dot product of its vector with the vector
+    * of the reference, so comparing needs no trigonometry and the order is
+    * the same for any units.
+    */
    public static Comparator<GeoLocation> distanceFromReferenceComparator(GeoLocation refLoc, GeoLocation.Units units) {
-      return (loc1, loc2) -> (int)(getDistance(loc1, refLoc, units) - getDistance(loc2, refLoc, units));
+      GeoVector reference = refLoc.getVector();
+      return (loc1, loc2) -> Double.compare(reference.dot(loc2.getVector()), 
+                                            reference.dot(loc1.getVector()));
    }
 
    public static double getDistance(GeoLocation loc1, GeoLocation loc2, GeoLocation.Units units) {
-      double theta = loc1.getLongitude() - loc2.getLongitude();
-      double dist = sin(deg2rad(loc1.getLatitude())) * sin(deg2rad(loc2.getLatitude())) + 
-                    cos(deg2rad(loc1.getLatitude())) * cos(deg2rad(loc2.getLatitude())) * 
-                    cos(deg2rad(theta));
-      dist = rad2deg(acos(dist)) * 69.09;
-      return units.equals(MILES) ? dist * 0.8684 : dist * 1.609344;
+      return toDistance(loc1.getVector().angleTo(loc2.getVector()), units);
+   }
+
+   /**
+    * Converts the angle between two locations, in radians, to a distance.
+    * Miles are statute miles, like the distances of the flights.
+    */
+   static double toDistance(double angle, GeoLocation.Units units) {
+      double miles = rad2deg(angle) * MILES_PER_DEGREE;
+      return units.equals(MILES) ? miles : miles * KILOMETERS_PER_MILE;
+   }
+
+   /**
+    * Converts a distance to the angle between two locations, in radians.
+    */
+   static double toAngle(double distance, GeoLocation.Units units) {
+      double miles = units.equals(MILES) ? distance : distance / KILOMETERS_PER_MILE;
+      return deg2rad(miles / MILES_PER_DEGREE);
    }
 
    // This function converts decimal degrees to radians
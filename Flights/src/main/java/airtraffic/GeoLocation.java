@@ -10,4 +10,12 @@ public interface GeoLocation {
 
    double getLatitude();
    double getLongitude();
+
+   /**
+    * Returns the location as a vector. Implementations whose location does
+    * not change between calls may cache it.
+    */
+   default GeoVector getVector() {
+      return GeoVector.of(this);
+   }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package airtraffic;
+
+import java.util.List;
+
+/**
+ * Unit sphere points of a list of locations held in primitive arrays, one
+ * per coordinate, for working out many distances at once. The dot products
+ * are worked out in a simple loop over the arrays that the JIT compiler can
+ * unroll and vectorise, leaving one inverse tangent per distance.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class GeoPoints {
+   private final double[] x;
+   private final double[] y;
+   private final double[] z;
+
+   public GeoPoints(List<? extends GeoLocation> locations) {
+      int size = locations.size();
+      this.x = new double[size];
+      this.y = new double[size];
+      this.z = new double[size];
+      for(int i = 0; i < size; i++) {
+         GeoVector vector = locations.get(i).getVector();
+         x[i] = vector.getX();
+         y[i] = vector.getY();
+         z[i] = vector.getZ();
+      }
+   }
+
+   public int size() {
+      return x.length;
+   }
+
+   /**
+    * Returns the distance between the locations at the given positions.
+    */
+   public double getDistance(int from, int to, GeoLocation.Units units) {
+      double dot = x[from] * x[to] + y[from] * y[to] + z[from] * z[to];
+      return GeoHelper.toDistance(GeoVector.angle(dot), units);
+   }
+
+   /**
+    * Returns the distance from the location to each of the locations, in
+    * the order they were given.
+    */
+   public double[] getDistances(GeoLocation location, GeoLocation.Units units) {
+      GeoVector vector = location.getVector();
+      double[] result = new double[x.length];
+      getDistances(vector.getX(), vector.getY(), vector.getZ(), units, result, 0, x.length);
+      return result;
+   }
+
+   /**
+    * Puts the distances from the location at the given position to the
+    * locations from start (inclusive) to end (exclusive) in the result.
+    */
+   public void getDistances(int from, GeoLocation.Units units, double[] result, 
+      int start, int end) {
+      getDistances(x[from], y[from], z[from], units, result, start, end);
+   }
+
+   private void getDistances(double fromX, double fromY, double fromZ, 
+      GeoLocation.Units units, double[] result, int start, int end) {
+      for(int i = start; i < end; i++) {
+         result[i] = fromX * x[i] + fromY * y[i] + fromZ * z[i];
+      }
+      for(int i = start; i < end; i++) {
+         result[i] = GeoHelper.toDistance(GeoVector.angle(result[i]), units);
+      }
+   }
+}
\ No newline at end of file
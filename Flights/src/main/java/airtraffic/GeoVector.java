@@ -0,0 +1,84 @@
+package airtraffic;
+
+import static java.lang.Math.atan2;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+
+/**
+ * A location on the earth as radian coordinates and as a point on the unit
+ * sphere. The cosine of the angle between two locations is the dot product
+ * of their points, so once a vector has been made, distance comparisons
+ * need no trigonometry and distances need one inverse tangent.
+ *
+ * Vectors are immutable, so a location can cache its vector and share it
+ * between threads without locking. {@link Airport} does.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class GeoVector {
+   private final double latitude;     // in radians
+   private final double longitude;    // in radians
+   private final double x;
+   private final double y;
+   private final double z;
+
+   private GeoVector(double latitude, double longitude) {
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.x = cos(latitude) * cos(longitude);
+      this.y = cos(latitude) * sin(longitude);
+      this.z = sin(latitude);
+   }
+
+   public static GeoVector of(GeoLocation location) {
+      return new GeoVector(toRadians(location.getLatitude()), toRadians(location.getLongitude()));
+   }
+
+   public double getLatitude() {
+      return latitude;
+   }
+
+   public double getLongitude() {
+      return longitude;
+   }
+
+   public double getX() {
+      return x;
+   }
+
+   public double getY() {
+      return y;
+   }
+
+   public double getZ() {
+      return z;
+   }
+
+   /**
+    * Returns the cosine of the angle between the two locations, which is
+    * larger the nearer they are.
+    */
+   public double dot(GeoVector other) {
+      return x * other.x + y * other.y + z * other.z;
+   }
+
+   /**
+    * Returns the angle between the two locations, in radians.
+    */
+   public double angleTo(GeoVector other) {
+      return angle(dot(other));
+   }
+
+   /**
+    * Returns the angle whose cosine is the dot product. This is the same as
+    * acos, but atan2 is several times faster than acos in the JDK. Rounding
+    * can push the dot product of nearby points just past 1, so it is
+    * clamped.
+    */
+   static double angle(double dot) {
+      double cos = Math.max(-1, Math.min(1, dot));
+      return atan2(sqrt((1 - cos) * (1 + cos)), cos);
+   }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.time.LocalDate;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Flight that keeps a copy of its raw row and the offset where each field
+ * ends, and decodes a field only when it is read. Most reports read two to
+ * four fields of a flight, so the other fields are never decoded and the
+ * carrier, airports, plane and date are only looked up if they are used.
+ *
+ * Numeric fields and flags are decoded in place every time they are read,
+ * so a report that reads the same field of a flight many times is better
+ * served by an {@link EagerFlight}. The carrier, airports, plane and date
+ * are cached once looked up. Airports, carriers and planes are mutable
+ * beans, so the cached fields are volatile to publish them safely to other
+ * threads; a flight can then be read by several threads without locking.
+ * Two threads may both do the lookup but they get the same result.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class LazyFlight extends Flight {
+   /**
+    * Rows longer than this can't be described with char offsets and are
+    * decoded eagerly instead.
+    */
+   static final int MAX_ROW_LENGTH = Character.MAX_VALUE;
+
+   private final Repository repository;
+   private final byte[] row;
+   private final char[] ends;      // where each field ends, counted from the start of the row
+   private volatile Carrier carrier;
+   private volatile Airport origin;
+   private volatile Airport destination;
+   private volatile Plane plane;
+   private volatile LocalDate date;
+
+   LazyFlight(FlightRecord record, Repository repository) {
+      this.repository = repository;
+      this.row = record.copyRow();
+      this.ends = new char[FlightRecord.FIELD_COUNT];
+      for(int field = 0; field < ends.length; field++) {
+         ends[field] = (char) record.getRowOffset(field);
+      }
+   }
+
+   // missing trailing fields end where the row ends, so their start is
+   // capped at their end to make them empty
+   private int start(int field) {
+      return field == 0 ? 0 : Math.min(ends[field - 1] + 1, ends[field]);
+   }
+
+   private int getInt(int field) {
+      return FlightRecord.decodeInt(row, start(field), ends[field], field);
+   }
+
+   private boolean getFlag(int field) {
+      return FlightRecord.decodeFlag(row, start(field), ends[field]);
+   }
+
+   private <T> T getValue(int field, CodeDictionary<T> dictionary) {
+      int start = start(field);
+      return dictionary.decode(dictionary.encode(row, start, ends[field] - start));
+   }
+
+   @Override
+   public Plane getPlane() {
+      Plane result = plane;
+      if(result == null) {
+         plane = result = getValue(FlightRecord.TAIL_NUMBER, repository.getPlaneCodes());
+      }
+      return result;
+   }
+
+   @Override
+   public LocalDate getDate() {
+      LocalDate result = date;
+      if(result == null) {
+         date = result = LocalDate.of(getYear(), getMonth(), getDayOfMonth());
+      }
+      return result;
+   }
+
+   @Override
+   public int getYear() {
+      return getInt(FlightRecord.YEAR);
+   }
+
+   @Override
+   public int getMonth() {
+      return getInt(FlightRecord.MONTH);
+   }
+
+   @Override
+   public int getDayOfMonth() {
+      return getInt(FlightRecord.DAY_OF_MONTH);
+   }
+
+   @Override
+   public int getDayOfWeek() {
+      return getInt(FlightRecord.DAY_OF_WEEK);
+   }
+
+   @Override
+   public int getDepartureTime() {
+      return getInt(FlightRecord.DEPARTURE_TIME);
+   }
+
+   @Override
+   public int getCRSDepartureTime() {
+      return getInt(FlightRecord.CRS_DEPARTURE_TIME);
+   }
+
+   @Override
+   public int getArrivalTime() {
+      return getInt(FlightRecord.ARRIVAL_TIME);
+   }
+
+   @Override
+   public int getCRSArrivalTime() {
+      return getInt(FlightRecord.CRS_ARRIVAL_TIME);
+   }
+
+   @Override
+   public Carrier getCarrier() {
+      Carrier result = carrier;
+      if(result == null) {
+         carrier = result = getValue(FlightRecord.CARRIER, repository.getCarrierCodes());
+      }
+      return result;
+   }
+
+   @Override
+   public int getFlightNumber() {
+      return getInt(FlightRecord.FLIGHT_NUMBER);
+   }
+
+   @Override
+   public String getTailNumber() {
+      return getPlane().getTailNumber();
+   }
+
+   @Override
+   public int getActualElapsedTime() {
+      return getInt(FlightRecord.ACTUAL_ELAPSED_TIME);
+   }
+
+   @Override
+   public int getCRSElapsedTime() {
+      return getInt(FlightRecord.CRS_ELAPSED_TIME);
+   }
+
+   @Override
+   public int getAirTime() {
+      return getInt(FlightRecord.AIR_TIME);
+   }
+
+   @Override
+   public int getArrivalDelay() {
+      return getInt(FlightRecord.ARRIVAL_DELAY);
+   }
+
+   @Override
+   public int getDepartureDelay() {
+      return getInt(FlightRecord.DEPARTURE_DELAY);
+   }
+
+   @Override
+   public Airport getOrigin() {
+      Airport result = origin;
+      if(result == null) {
+         origin = result = getValue(FlightRecord.ORIGIN, repository.getAirportCodes());
+      }
+      return result;
+   }
+
+   @Override
+   public Airport getDestination() {
+      Airport result = destination;
+      if(result == null) {
+         destination = result = getValue(FlightRecord.DESTINATION, repository.getAirportCodes());
+      }
+      return result;
+   }
+
+   @Override
+   public int getDistance() {
+      return getInt(FlightRecord.DISTANCE);
+   }
+
+   @Override
+   public int getTaxiIn() {
+      return getInt(FlightRecord.TAXI_IN);
+   }
+
+   @Override
+   public int getTaxiOut() {
+      return getInt(FlightRecord.TAXI_OUT);
+   }
+
+   @Override
+   public boolean cancelled() {
+      return getFlag(FlightRecord.CANCELLED);
+   }
+
+   @Override
+   public CancellationCode getCancellationCode() {
+      return FlightRecord.decodeCancellationCode(row, start(FlightRecord.CANCELLATION_CODE),
+                                                 ends[FlightRecord.CANCELLATION_CODE]);
+   }
+
+   @Override
+   public boolean diverted() {
+      return getFlag(FlightRecord.DIVERTED);
+   }
+
+   @Override
+   public int getCarrierDelay() {
+      return getInt(FlightRecord.CARRIER_DELAY);
+   }
+
+   @Override
+   public int getWeatherDelay() {
+      return getInt(FlightRecord.WEATHER_DELAY);
+   }
+
+   @Override
+   public int getNASDelay() {
+      return getInt(FlightRecord.NAS_DELAY);
+   }
+
+   @Override
+   public int getSecurityDelay() {
+      return getInt(FlightRecord.SECURITY_DELAY);
+   }
+
+   @Override
+   public int getLateAircraftDelay() {
+      return getInt(FlightRecord.LATE_AIRCRAFT_DELAY);
+   }
+
+   @Override
+   public String toString() {
+      return new ToStringBuilder(this).append("row", new String(row, ISO_8859_1))
+                                      .toString();
+   }
+}
\ No newline at end of file
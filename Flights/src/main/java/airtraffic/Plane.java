@@ -1,10 +1,9 @@
 package airtraffic;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
 import org.apache.commons.lang3.builder.CompareToBuilder;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /**
@@ -169,14 +168,24 @@ public class Plane implements Comparable<Plane> {
       return new PlaneModel(this.manufacturer, this.modelNumber);
    }
 
+   /**
+    * Planes are identified by their tail number. Planes without a tail
+    * number are all considered equal, as they cannot be told apart.
+    */
    @Override
    public boolean equals(Object obj) {
-      return EqualsBuilder.reflectionEquals(this, obj, false);
+      if(this == obj) {
+         return true;
+      }
+      if(!(obj instanceof Plane)) {
+         return false;
+      }
+      return Objects.equals(this.tailNumber, ((Plane) obj).tailNumber);
    }
 
    @Override
    public int hashCode() {
-      return HashCodeBuilder.reflectionHashCode(this, false);
+      return Objects.hashCode(this.tailNumber);
    }
 
    @Override
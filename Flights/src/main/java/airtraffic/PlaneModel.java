@@ -1,7 +1,8 @@
 package airtraffic;
 
+import java.util.Objects;
+
 import org.apache.commons.lang3.builder.CompareToBuilder;
-import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 /**
@@ -28,7 +29,15 @@ public class PlaneModel implements Comparable<PlaneModel> {
 
    @Override
    public boolean equals(Object obj) {
-      return EqualsBuilder.reflectionEquals(this, obj, false);
+      if(this == obj) {
+         return true;
+      }
+      if(!(obj instanceof PlaneModel)) {
+         return false;
+      }
+      PlaneModel other = (PlaneModel) obj;
+      return Objects.equals(this.manufacturer, other.manufacturer) &&
+             Objects.equals(this.modelNumber, other.modelNumber);
    }
 
    @Override
@@ -0,0 +1,88 @@
+package airtraffic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sorted index of the upper case names of a set of values, such as IATA
+ * codes or carrier names, used to autocomplete what a user has typed. A
+ * value may be indexed under several names. Finding the values for a
+ * prefix is a binary search followed by a scan of the matching names.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class PrefixIndex<V> {
+   private final String[] names;
+   private final Object[] values;
+
+   PrefixIndex(Collection<V> values, List<Function<V, String>> namers) {
+      List<Entry<V>> entries = new ArrayList<>(values.size() * namers.size());
+      for(V value : values) {
+         for(Function<V, String> namer : namers) {
+            String name = namer.apply(value);
+            if(name != null && !name.isEmpty()) {
+               entries.add(new Entry<>(name.toUpperCase(), value));
+            }
+         }
+      }
+      Collections.sort(entries);
+      this.names = new String[entries.size()];
+      this.values = new Object[entries.size()];
+      for(int i = 0; i < names.length; i++) {
+         names[i] = entries.get(i).name;
+         this.values[i] = entries.get(i).value;
+      }
+   }
+
+   /**
+    * Returns up to limit values with a name that starts with the prefix,
+    * ignoring case, in the order of their names.
+    */
+   @SuppressWarnings("unchecked")
+   List<V> find(String prefix, int limit) {
+      String key = prefix.toUpperCase();
+      Set<V> result = new LinkedHashSet<>();
+      for(int i = lowerBound(key); i < names.length && result.size() < limit; i++) {
+         if(!names[i].startsWith(key)) {
+            break;
+         }
+         result.add((V) values[i]);
+      }
+      return new ArrayList<>(result);
+   }
+
+   // names can repeat, so find the first name that is not less than the key
+   private int lowerBound(String key) {
+      int low = 0;
+      int high = names.length;
+      while(low < high) {
+         int middle = (low + high) >>> 1;
+         if(names[middle].compareTo(key) < 0) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private static final class Entry<V> implements Comparable<Entry<V>> {
+      private final String name;
+      private final V value;
+
+      Entry(String name, V value) {
+         this.name = name;
+         this.value = value;
+      }
+
+      @Override
+      public int compareTo(Entry<V> other) {
+         return name.compareTo(other.name);
+      }
+   }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package airtraffic;
+
+import static java.util.stream.Collectors.toMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Reference data, such as the airports, keyed for lookup. Loading starts in
+ * the background as soon as the instance is created, so the airports,
+ * carriers and planes load concurrently while the rest of the repository is
+ * set up. The map is published through a {@link CompletableFuture}, so
+ * threads that read it before loading has finished wait for the single load
+ * rather than starting their own, and reads after that take no lock.
+ *
+ * Once loaded, the values are also put in a {@link PrefixIndex} under their
+ * key and any other names given, so what a user types can be completed
+ * without going back to the file.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class ReferenceData<V> {
+   private final CompletableFuture<Map<String, V>> map;
+   private final CompletableFuture<PrefixIndex<V>> prefixes;
+
+   ReferenceData(Supplier<Stream<V>> source, Function<V, String> key) {
+      this(source, key, Collections.emptyList());
+   }
+
+   ReferenceData(Supplier<Stream<V>> source, Function<V, String> key, 
+      List<Function<V, String>> names) {
+      List<Function<V, String>> namers = new ArrayList<>();
+      namers.add(key);
+      namers.addAll(names);
+      this.map = CompletableFuture.supplyAsync(() -> load(source, key));
+      this.prefixes = map.thenApply(values -> new PrefixIndex<>(values.values(), namers));
+   }
+
+   private static <V> Map<String, V> load(Supplier<Stream<V>> source, Function<V, String> key) {
+      try(Stream<V> stream = source.get()) {
+         return Collections.unmodifiableMap(stream.collect(toMap(key, Function.identity())));
+      }
+   }
+
+   /**
+    * Returns the value for the key, or null if there is none. Waits for
+    * loading to finish the first time it is called.
+    */
+   V get(String key) {
+      return getMap().get(key);
+   }
+
+   /**
+    * Returns up to limit values with a key or name that starts with the
+    * prefix, ignoring case.
+    */
+   List<V> find(String prefix, int limit) {
+      return join(prefixes).find(prefix, limit);
+   }
+
+   Map<String, V> getMap() {
+      return join(map);
+   }
+
+   private static <T> T join(CompletableFuture<T> future) {
+      try {
+         return future.join();
+      } catch (CompletionException e) {
+         if(e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new RepositoryException(e.getCause());
+      }
+   }
+}
\ No newline at end of file
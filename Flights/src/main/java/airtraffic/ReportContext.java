@@ -1,5 +1,13 @@
 package airtraffic;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.beryx.textio.TextTerminal;
 
 
@@ -7,6 +15,12 @@ import org.beryx.textio.TextTerminal;
  * Provides a convenient way to pass around settings used by most report
  * implementations.
  *
+ * A context covers either a single year or a set of years. The flight
+ * reports combine every year returned by {@link #getYears()}, including
+ * those that list individual dates or flights, which pick them from all of
+ * the years. The airport, carrier, plane and live reports only cover
+ * {@link #getYear()}, which is the first year.
+ *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
 public final class ReportContext {
@@ -21,6 +35,8 @@ public final class ReportContext {
    private int distance;
    private int limit = Integer.MAX_VALUE;
    private int year;
+   private SortedSet<Integer> years;
+   private Duration duration;
 
    public String getState() {
       return state;
@@ -148,6 +164,47 @@ public final class ReportContext {
 
    public ReportContext setYear(int year) {
       this.year = year;
+      this.years = null;
+      return this;
+   }
+
+   /**
+    * Returns the years covered by this context in ascending order.
+    */
+   public SortedSet<Integer> getYears() {
+      if(years == null) {
+         return Collections.unmodifiableSortedSet(new TreeSet<>(Collections.singleton(year)));
+      }
+      return years;
+   }
+
+   public ReportContext setYears(Collection<Integer> years) {
+      if(years.isEmpty()) {
+         throw new IllegalArgumentException("No years specified");
+      }
+      this.years = Collections.unmodifiableSortedSet(new TreeSet<>(years));
+      this.year = this.years.first();
+      return this;
+   }
+
+   /**
+    * Sets the years from first to last inclusive.
+    */
+   public ReportContext setYears(int first, int last) {
+      return setYears(IntStream.rangeClosed(first, last)
+                               .boxed()
+                               .collect(Collectors.toList()));
+   }
+
+   /**
+    * Returns how long live reports follow the live flight file.
+    */
+   public Duration getDuration() {
+      return duration;
+   }
+
+   public ReportContext setDuration(Duration duration) {
+      this.duration = duration;
       return this;
    }
 }
\ No newline at end of file
@@ -1,7 +1,8 @@
 package airtraffic;
 
-import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.io.FileUtils.lineIterator;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.stream.Collectors.toList;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -11,18 +12,32 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.apache.commons.io.LineIterator;
 import org.simpleflatmapper.csv.CellValueReader;
 import org.simpleflatmapper.csv.CsvMapper;
 import org.simpleflatmapper.csv.CsvMapperFactory;
@@ -94,12 +109,34 @@ public final class Repository {
    private final Path carrierPath;
    private final Path planePath;
    private final Map<Integer, Path> flightPaths;
-   private Map<String, Airport> airportMap;
-   private Map<String, Carrier> carrierMap;
-   private Map<String, Plane> planeMap;
+   private final Path livePath;
+   private final boolean lazyFlights;
+   private final YearCache<FlightTable> flightTables;
+   private final YearCache<FlightSnapshot> flightSnapshots = 
+      new YearCache<>(this::openFlightSnapshot, Integer.MAX_VALUE);
+   private final YearCache<FlightIndex> flightIndexes = 
+      new YearCache<>(this::loadFlightIndex, Integer.MAX_VALUE);
+   private final YearCache<FlightCube> flightCubes = 
+      new YearCache<>(this::loadFlightCube, Integer.MAX_VALUE);
+   private volatile ExecutorService yearExecutor;
+   private volatile AirportIndex airportIndex;
+   private volatile DistanceMatrix distanceMatrix;
+   private final ReferenceData<Airport> airports;
+   private final ReferenceData<Carrier> carriers;
+   private final ReferenceData<Plane> planes;
+   private final CodeDictionary<Airport> airportCodes = new CodeDictionary<>(this::getAirport);
+   private final CodeDictionary<Carrier> carrierCodes = new CodeDictionary<>(this::getCarrier);
+   private final CodeDictionary<Plane> planeCodes = new CodeDictionary<>(this::resolvePlane);
 
    public Repository() {
-      Config config = getConfig();
+      this(getConfig());
+   }
+
+   /**
+    * Creates a repository for the files named by the given configuration
+    * instead of the config.yaml file.
+    */
+   public Repository(Config config) {
       Map<Integer, String> pathMap = config.getFlightPaths();
       this.flightPaths = new HashMap<>();
       for(Entry<Integer, String> e: pathMap.entrySet()) {
@@ -117,9 +154,22 @@ public final class Repository {
       this.airportPath = getAndValidatePath(config.getAirportPath());
       this.carrierPath = getAndValidatePath(config.getCarrierPath());
       this.planePath = getAndValidatePath(config.getPlanePath());
+      // the live file may not have been created yet
+      this.livePath = config.getLivePath() == null ? null : Paths.get(config.getLivePath());
+      this.lazyFlights = config.isLazyFlights();
+      // tables take hundreds of megabytes each, so only the most recently
+      // used are kept and a scan of many years does not hold all of them
+      this.flightTables = new YearCache<>(this::loadFlightTable, 
+                                          config.getFlightTableCacheSize());
+      // start loading the reference data while the caller gets on with
+      // other work, so the first parallel scan finds it ready
+      this.airports = new ReferenceData<>(this::getAirportStream, Airport::getIATA);
+      this.carriers = new ReferenceData<>(this::getCarrierStream, Carrier::getCode, 
+                                          Collections.singletonList(Carrier::getName));
+      this.planes = new ReferenceData<>(this::getPlaneStream, Plane::getTailNumber);
    }
 
-   private Config getConfig() {
+   private static Config getConfig() {
       Config config;
       try {
          Reader reader = new FileReader("config.yaml");
@@ -160,20 +210,51 @@ public final class Repository {
             .headers(AIRPORT_HEADERS);
    }
 
-   private Map<String, Airport> getAirportMap() {
-      if(airportMap == null) {
-         airportMap = getAirportStream().collect(toMap(Airport::getIATA, Function.identity()));
-      }
-      return airportMap;
-   }
-
    public Airport getAirport(String iata) {
-      return getAirportMap().get(iata.toUpperCase());
+      return airports.get(iata.toUpperCase());
    }
 
    public boolean validAirport(String iata) {
-      return getAirportStream().anyMatch(airport ->  
-         airport.getIATA().equals(iata.toUpperCase()));
+      return getAirport(iata) != null;
+   }
+
+   /**
+    * Returns up to limit airports whose IATA code starts with the prefix,
+    * ignoring case, for completing what a user has typed.
+    */
+   public List<Airport> findAirports(String prefix, int limit) {
+      return airports.find(prefix, limit);
+   }
+
+   /**
+    * Returns the spatial index of every airport, which is built the first
+    * time it is needed.
+    */
+   public AirportIndex getAirportIndex() {
+      if(airportIndex == null) {
+         synchronized(this) {
+            if(airportIndex == null) {
+               airportIndex = new AirportIndex(airports.getMap().values());
+            }
+         }
+      }
+      return airportIndex;
+   }
+
+   /**
+    * Returns the distances between every pair of airports, which are loaded
+    * from the file saved next to the airports, or worked out and saved the
+    * first time they are needed.
+    */
+   public DistanceMatrix getDistanceMatrix() {
+      if(distanceMatrix == null) {
+         synchronized(this) {
+            if(distanceMatrix == null) {
+               distanceMatrix = DistanceMatrix.load(airportPath, airports.getMap().values());
+            }
+         }
+      }
+      return distanceMatrix;
    }
 
    public Stream<Carrier> getCarrierStream() {
@@ -198,59 +279,301 @@ public final class Repository {
             .headers(CARRIER_HEADERS);
    }
 
-   private Map<String, Carrier> getCarrierMap() {
-      if(carrierMap == null) {
-         carrierMap = getCarrierStream().collect(
-            toMap(Carrier::getCode, Function.identity())
-         );
-      }
-      return carrierMap;
-   }
-
    public Carrier getCarrier(String code) {
-      return getCarrierMap().get(code.toUpperCase());
+      return carriers.get(code.toUpperCase());
    }
 
    public boolean validCarrier(String code) {
-      return getCarrierStream().anyMatch(carrier -> 
-         carrier.getCode().equals(code.toUpperCase()));
+      return getCarrier(code) != null;
+   }
+
+   /**
+    * Returns up to limit carriers whose code or name starts with the prefix,
+    * ignoring case, for completing what a user has typed.
+    */
+   public List<Carrier> findCarriers(String prefix, int limit) {
+      return carriers.find(prefix, limit);
    }
 
    public Stream<Flight> getFlightStream(int year) {
-      Path path = flightPaths.get(year);
-      if(path == null) {
-         throw new IllegalArgumentException("No flight data for year " + year);
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      if(snapshot != null) {
+         return snapshot.stream();
+      }
+      FlightSpliterator spliterator = new FlightSpliterator(getFlightPath(year), this);
+      return StreamSupport.stream(spliterator, false)
+                          .onClose(spliterator::close);
+   }
+
+   public Iterator<Flight> getFlightIterator(int year) {
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      if(snapshot != null) {
+         return snapshot.iterator();
+      }
+      return new FlightReader(getFlightPath(year), this);
+   }
+
+   /**
+    * Returns the flights in the given rows of the year, which are usually
+    * found using the {@link FlightIndex}. Only those rows are read, from
+    * the snapshot when there is one and otherwise from the CSV file.
+    */
+   public Stream<Flight> getFlightStream(int year, int[] rows) {
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      if(snapshot != null) {
+         return IntStream.of(rows).mapToObj(snapshot::getFlight);
+      }
+      FlightIndex.RowIterator iterator = getFlightIndex(year).iterator(rows);
+      Spliterator<Flight> spliterator = 
+         Spliterators.spliterator(iterator, rows.length, ORDERED | NONNULL);
+      return StreamSupport.stream(spliterator, false)
+                          .onClose(iterator::close);
+   }
+
+   public Iterator<Flight> getFlightIterator(int year, int[] rows) {
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      if(snapshot != null) {
+         return IntStream.of(rows).mapToObj(snapshot::getFlight).iterator();
+      }
+      return getFlightIndex(year).iterator(rows);
+   }
+
+   /**
+    * Returns the flights in the live flight file and then each flight that
+    * is appended to it, until the given duration has passed. Only the bytes
+    * appended since the last read are parsed, so following the file costs
+    * no more than reading each row once.
+    */
+   public Stream<Flight> getLiveFlightStream(Duration duration) {
+      FlightTail tail = new FlightTail(getLivePath(), duration, this);
+      Spliterator<Flight> spliterator = 
+         Spliterators.spliteratorUnknownSize(tail, ORDERED | NONNULL);
+      return StreamSupport.stream(spliterator, false)
+                          .onClose(tail::close);
+   }
+
+   public Iterator<Flight> getLiveFlightIterator(Duration duration) {
+      return new FlightTail(getLivePath(), duration, this);
+   }
+
+   public boolean hasLiveFlights() {
+      return livePath != null;
+   }
+
+   private Path getLivePath() {
+      if(livePath == null) {
+         throw new IllegalStateException("No live flight file configured");
+      }
+      return livePath;
+   }
+
+   private FlightSnapshot getFlightSnapshot(int year) {
+      return flightSnapshots.get(year);
+   }
+
+   private FlightSnapshot openFlightSnapshot(int year) {
+      Path path = getFlightPath(year);
+      FlightSnapshot snapshot = FlightSnapshot.open(path, this);
+      if(snapshot != null) {
+         logger.debug("Using snapshot for {}", path);
+      }
+      return snapshot;
+   }
+
+   /**
+    * Converts the CSV file for the given year into a binary snapshot that
+    * is used in place of the CSV file from then on. Returns the path of the
+    * snapshot.
+    */
+   public Path createFlightSnapshot(int year) {
+      Path path = FlightSnapshot.write(getFlightPath(year), this);
+      flightSnapshots.remove(year);
+      return path;
+   }
+
+   /**
+    * Returns the origin, destination, carrier and date indexes for the
+    * given year. A saved index is used if it matches the CSV file,
+    * otherwise the index is built and saved on first use.
+    */
+   public FlightIndex getFlightIndex(int year) {
+      return flightIndexes.get(year);
+   }
+
+   private FlightIndex loadFlightIndex(int year) {
+      Path path = getFlightPath(year);
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      FlightIndex index = openFlightIndex(path, snapshot);
+      if(index == null) {
+         logger.info("Building index for {}", path);
+         index = FlightIndex.build(year, path, snapshot, this);
+      }
+      return index;
+   }
+
+   /**
+    * Opens the saved index, or returns null if there is none that can be
+    * used with the given snapshot.
+    */
+   private FlightIndex openFlightIndex(Path path, FlightSnapshot snapshot) {
+      FlightIndex index = FlightIndex.open(path, this);
+      // an index built from a snapshot cannot read rows from the CSV file
+      if(index != null && !index.hasRowOffsets() && snapshot == null) {
+         return null;
+      }
+      return index;
+   }
+
+   /**
+    * Returns the rollup of daily counts and delays for the given year. A
+    * saved cube is used if it matches the CSV file, otherwise the cube is
+    * built and saved on first use. Cubes are kept per year, so adding a
+    * year to the configuration only builds the cube for that year.
+    */
+   public FlightCube getFlightCube(int year) {
+      return flightCubes.get(year);
+   }
+
+   private FlightCube loadFlightCube(int year) {
+      Path path = getFlightPath(year);
+      FlightCube cube = FlightCube.open(path, this);
+      if(cube == null) {
+         logger.info("Building cube for {}", path);
+         cube = FlightCube.build(year, path, getFlightSnapshot(year), this);
+      }
+      return cube;
+   }
+
+   /**
+    * Computes a partial result for each of the given years and combines
+    * them in ascending year order. The years are processed concurrently on
+    * a pool with at most one thread per processor, so reading many years
+    * takes about as long as reading the slowest few of them rather than
+    * all of them in turn. The function must not call this method itself.
+    */
+   public <T> T reduceYears(Collection<Integer> years, IntFunction<T> function,
+      BinaryOperator<T> combiner) {
+      List<Integer> sorted = years.stream().sorted().collect(toList());
+      if(sorted.isEmpty()) {
+         throw new IllegalArgumentException("No years specified");
+      }
+      if(sorted.size() == 1) {
+         return function.apply(sorted.get(0));
+      }
+      ExecutorService executor = getYearExecutor();
+      List<Future<T>> futures = new ArrayList<>(sorted.size());
+      for(int year : sorted) {
+         futures.add(executor.submit(() -> function.apply(year)));
       }
       try {
-         return Files.lines(path)
-                     .skip(1)            // skip header
-                     .map(s -> new Flight(s, this));
-      } catch (IOException e) {
+         T result = futures.get(0).get();
+         for(int i = 1; i < futures.size(); i++) {
+            result = combiner.apply(result, futures.get(i).get());
+         }
+         return result;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
          throw new RepositoryException(e);
+      } catch (ExecutionException e) {
+         if(e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new RepositoryException(e.getCause());
+      } finally {
+         for(Future<T> future : futures) {
+            future.cancel(true);
+         }
       }
    }
 
-   public Iterator<Flight> getFlightIterator(int year) {
-      final Path path = flightPaths.get(year);
-      try {
-         return new Iterator<Flight>() {
-            private LineIterator iterator;
-            {
-               iterator = lineIterator(path.toFile());
-               iterator.next();     // skip header
-            }
-            @Override
-            public boolean hasNext() {
-               return iterator.hasNext();
-            }
-            @Override
-            public Flight next() {
-               return new Flight(iterator.next(), Repository.this);
+   private ExecutorService getYearExecutor() {
+      if(yearExecutor == null) {
+         synchronized(this) {
+            if(yearExecutor == null) {
+               AtomicInteger count = new AtomicInteger();
+               yearExecutor = Executors.newFixedThreadPool(
+                  Runtime.getRuntime().availableProcessors(), task -> {
+                     Thread thread = new Thread(task, "flight-year-" + count.incrementAndGet());
+                     thread.setDaemon(true);
+                     return thread;
+                  });
             }
-         };
-      } catch (IOException e) {
-         throw new RepositoryException(e);
+         }
       }
+      return yearExecutor;
+   }
+
+   /**
+    * Returns the columnar copy of the flights for the given year. The table
+    * is loaded on first use and shared by later callers. Only the tables of
+    * the most recently used years are kept, as many as the
+    * flightTableCacheSize setting allows, unless they are retained.
+    */
+   public FlightTable getFlightTable(int year) {
+      return flightTables.get(year);
+   }
+
+   /**
+    * Returns the table for the given year and keeps it, whatever the cache
+    * size, until {@link #releaseFlightTable(int)} is called for the year.
+    */
+   public FlightTable retainFlightTable(int year) {
+      return flightTables.pin(year);
+   }
+
+   public void releaseFlightTable(int year) {
+      flightTables.unpin(year);
+   }
+
+   /**
+    * Loads the table for the given year. The index and the cube of the
+    * year are built in the same pass when there is no saved copy of them,
+    * so a year that is read for the first time is only read once.
+    */
+   private FlightTable loadFlightTable(int year) {
+      Path path = getFlightPath(year);
+      FlightSnapshot snapshot = getFlightSnapshot(year);
+      List<FlightSink> sinks = new ArrayList<>();
+      FlightTable.Builder table = new FlightTable.Builder(year, path, snapshot, this);
+      sinks.add(table);
+      FlightIndex.Builder index = null;
+      if(! flightIndexes.contains(year)) {
+         FlightIndex saved = openFlightIndex(path, snapshot);
+         if(saved != null) {
+            flightIndexes.offer(year, saved);
+         } else {
+            index = new FlightIndex.Builder(year, path);
+            sinks.add(index);
+         }
+      }
+      FlightCube.Builder cube = null;
+      if(! flightCubes.contains(year)) {
+         FlightCube saved = FlightCube.open(path, this);
+         if(saved != null) {
+            flightCubes.offer(year, saved);
+         } else {
+            cube = new FlightCube.Builder(year, path);
+            sinks.add(cube);
+         }
+      }
+      FlightScan.run(path, snapshot, this, sinks.toArray(new FlightSink[0]));
+      if(index != null) {
+         logger.info("Building index for {}", path);
+         flightIndexes.offer(year, index.build(this));
+      }
+      if(cube != null) {
+         logger.info("Building cube for {}", path);
+         flightCubes.offer(year, cube.build(this));
+      }
+      return table.build();
+   }
+
+   private Path getFlightPath(int year) {
+      Path path = flightPaths.get(year);
+      if(path == null) {
+         throw new IllegalArgumentException("No flight data for year " + year);
+      }
+      return path;
    }
 
    public Stream<Plane> getPlaneStream() {
@@ -273,17 +596,85 @@ public final class Repository {
       }
    }
 
-   private Map<String, Plane> getPlaneMap() {
-      if(planeMap == null) {
-         planeMap = getPlaneStream().collect(
-            toMap(Plane::getTailNumber, Function.identity())
-         );
+   public Plane getPlane(String tailNumber) {
+      return planes.get(tailNumber);
+   }
+
+   /**
+    * Returns the plane for a tail number found in the flight data. Tail
+    * numbers that are not in the plane data get a placeholder plane, which
+    * is created once per tail number by the plane dictionary.
+    */
+   private Plane resolvePlane(String tailNumber) {
+      Plane plane = tailNumber.isEmpty() ? null : getPlane(tailNumber);
+      if(plane == null) {
+         plane = new Plane();
+         plane.setTailNumber(tailNumber.isEmpty() ? null : tailNumber);
       }
-      return planeMap;
+      return plane;
    }
 
-   public Plane getPlane(String tailNumber) {
-      return getPlaneMap().get(tailNumber);
+   /**
+    * Returns the airport for a code found in a {@link FlightTable}. The
+    * codes are assigned by the repository, so they are the same in the
+    * tables of every year.
+    */
+   public Airport getAirportByCode(int code) {
+      return airportCodes.decode(code);
+   }
+
+   /**
+    * Returns the route for a key made with {@link Route#key(int, int)}. The
+    * codes found in the flight data are used, so a route to an airport that
+    * is not in the reference data still has its IATA code.
+    */
+   public Route getRoute(long key) {
+      return new Route(airportCodes.getKey(Route.getHigherCode(key)),
+                       airportCodes.getKey(Route.getLowerCode(key)));
+   }
+
+   /**
+    * Returns the great circle distance in miles between the airports of the
+    * route for a key made with {@link Route#key(int, int)}, or NaN if either
+    * airport is not in the reference data.
+    */
+   public double getRouteDistance(long key) {
+      Airport first = getAirportByCode(Route.getHigherCode(key));
+      Airport second = getAirportByCode(Route.getLowerCode(key));
+      if(first == null || second == null) {
+         return Double.NaN;
+      }
+      return getDistanceMatrix().getDistance(first.getIATA(), second.getIATA());
+   }
+
+   public Carrier getCarrierByCode(int code) {
+      return carrierCodes.decode(code);
+   }
+
+   CodeDictionary<Airport> getAirportCodes() {
+      return airportCodes;
+   }
+
+   CodeDictionary<Carrier> getCarrierCodes() {
+      return carrierCodes;
+   }
+
+   CodeDictionary<Plane> getPlaneCodes() {
+      return planeCodes;
+   }
+
+   /**
+    * Returns the flight for a row read from a CSV file. When lazyFlights is
+    * set in the configuration the row is kept as a {@link LazyFlight} and
+    * each field is decoded when it is read, so reports that filter on a few
+    * fields skip decoding the rest.
+    */
+   Flight newFlight(FlightRecord record) {
+      int rowLength = record.getRowOffset(FlightRecord.FIELD_COUNT - 1);
+      if(lazyFlights && rowLength <= LazyFlight.MAX_ROW_LENGTH) {
+         return new LazyFlight(record, this);
+      }
+      return new EagerFlight(record, this);
    }
 
    public Set<Integer> getFlightYears() {
@@ -2,16 +2,46 @@ package airtraffic;
 
 /**
  * Immutable domain class used to represent the pairing of 2 airports.
+ * Routes have no direction, so the airports are kept in a canonical order
+ * and equality, hashing and ordering only compare the two codes.
+ *
+ * Reports that group flights by route use the long returned by
+ * {@link #key(int, int)} instead, which packs the codes of the two airports
+ * and needs no allocation. A Route is only created to show a route, using
+ * {@link Repository#getRoute(long)}.
  *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
 public class Route implements Comparable<Route> {
-   private final String first;
+   private final String first;     // the greater of the two codes
    private final String second;
 
    public Route(String first, String second) {
-      this.first = first;
-      this.second = second;
+      boolean ordered = first.compareTo(second) >= 0;
+      this.first = ordered ? first : second;
+      this.second = ordered ? second : first;
+   }
+
+   /**
+    * Returns the key of the route between the airports with the given
+    * codes, which is the same whichever airport is given first.
+    */
+   public static long key(int airport1, int airport2) {
+      return ((long) Math.min(airport1, airport2) << 32) | Math.max(airport1, airport2);
+   }
+
+   /**
+    * Returns the lower airport code of a route key.
+    */
+   public static int getLowerCode(long key) {
+      return (int) (key >>> 32);
+   }
+
+   /**
+    * Returns the higher airport code of a route key.
+    */
+   public static int getHigherCode(long key) {
+      return (int) key;
    }
 
    @Override
@@ -20,24 +50,22 @@ public class Route implements Comparable<Route> {
          return false;
       }
       Route other = (Route)obj;
-      return (this.first.equals(other.first) && this.second.equals(other.second)) ||
-             (this.first.equals(other.second) && this.second.equals(other.first));
+      return this.first.equals(other.first) && this.second.equals(other.second);
    }
 
    @Override
    public int hashCode() {
-      return this.first.hashCode() + this.second.hashCode();
+      return 31 * this.first.hashCode() + this.second.hashCode();
    }
 
    @Override
    public String toString() {
-      return first.compareTo(second) >= 0 ? 
-         first + " <-> " + second : 
-         second + " <-> " + first;
+      return first + " <-> " + second;
    }
 
    @Override
    public int compareTo(Route other) {
-      return this.toString().compareTo(other.toString());
+      int result = this.first.compareTo(other.first);
+      return result != 0 ? result : this.second.compareTo(other.second);
    }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package airtraffic;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntFunction;
+
+/**
+ * Values loaded for a year, such as the table or the cube of the year,
+ * kept for later callers. Each value is loaded by the first thread that
+ * asks for it, outside of any lock, and threads asking for the same year
+ * in the meantime wait for that load rather than starting their own, so
+ * loading one year never holds up another.
+ *
+ * At most capacity values are kept, dropping the least recently used one
+ * first. A value that is pinned is kept until it is unpinned, whatever the
+ * capacity, and does not count towards it.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class YearCache<T> {
+   private final IntFunction<T> loader;
+   private final int capacity;
+   private final Map<Integer, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+   YearCache(IntFunction<T> loader, int capacity) {
+      if(capacity < 0) {
+         throw new IllegalArgumentException("Capacity must not be negative");
+      }
+      this.loader = loader;
+      this.capacity = capacity;
+   }
+
+   /**
+    * Returns the value for the year, loading it if it is not kept.
+    */
+   T get(int year) {
+      return get(year, false);
+   }
+
+   /**
+    * Returns the value for the year and keeps it until {@link #unpin(int)}
+    * is called as many times as this method.
+    */
+   T pin(int year) {
+      return get(year, true);
+   }
+
+   synchronized void unpin(int year) {
+      Entry<T> entry = entries.get(year);
+      if(entry != null && entry.pins > 0) {
+         --entry.pins;
+         evict();
+      }
+   }
+
+   /**
+    * Keeps a value that was loaded elsewhere, unless one is already kept or
+    * being loaded for the year.
+    */
+   synchronized void offer(int year, T value) {
+      if(!entries.containsKey(year)) {
+         Entry<T> entry = new Entry<>(() -> value);
+         entry.task.run();
+         entries.put(year, entry);
+         evict();
+      }
+   }
+
+   synchronized boolean contains(int year) {
+      return entries.containsKey(year);
+   }
+
+   synchronized void remove(int year) {
+      entries.remove(year);
+   }
+
+   private T get(int year, boolean pin) {
+      Entry<T> entry;
+      boolean load = false;
+      synchronized(this) {
+         entry = entries.get(year);
+         if(entry == null) {
+            entry = new Entry<>(() -> loader.apply(year));
+            entries.put(year, entry);
+            load = true;
+         }
+         if(pin) {
+            ++entry.pins;
+         }
+         evict();
+      }
+      if(load) {
+         entry.task.run();
+         synchronized(this) {
+            evict();
+         }
+      }
+      try {
+         return entry.task.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RepositoryException(e);
+      } catch (ExecutionException e) {
+         // forget the failure, so the next caller tries again
+         synchronized(this) {
+            entries.remove(year, entry);
+         }
+         if(e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         if(e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+         }
+         throw new RepositoryException(e.getCause());
+      }
+   }
+
+   /**
+    * Drops the least recently used values that are not pinned until no
+    * more than capacity of them are left. Values still being loaded are
+    * kept, so the threads waiting for them share the one load.
+    */
+   private void evict() {
+      int evictable = 0;
+      for(Entry<T> entry : entries.values()) {
+         if(entry.isEvictable()) {
+            ++evictable;
+         }
+      }
+      Iterator<Entry<T>> iterator = entries.values().iterator();
+      while(evictable > capacity && iterator.hasNext()) {
+         if(iterator.next().isEvictable()) {
+            iterator.remove();
+            --evictable;
+         }
+      }
+   }
+
+   private static final class Entry<T> {
+      private final FutureTask<T> task;
+      private int pins;
+
+      Entry(Callable<T> loader) {
+         this.task = new FutureTask<>(loader);
+      }
+
+      boolean isEvictable() {
+         return pins == 0 && task.isDone();
+      }
+   }
+}
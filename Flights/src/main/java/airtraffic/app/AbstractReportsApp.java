@@ -10,6 +10,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import javax.enterprise.inject.se.SeContainer;
 import javax.enterprise.inject.se.SeContainerInitializer;
 import org.beryx.textio.TextIO;
@@ -36,6 +38,7 @@ public abstract class AbstractReportsApp {
    private static final String METHOD_NAME_PREFIX = "report";
    private static final int METHOD_PARAMETER_COUNT = 1;
    private static final Class<?> METHOD_RETURN_TYPE = Void.TYPE;
+   private static final int SUGGESTION_LIMIT = 8;
 
    private final Logger logger = LoggerFactory.getLogger(AbstractReportsApp.class);
    private final TextIO io = TextIoFactory.getTextIO();
@@ -101,18 +104,26 @@ public abstract class AbstractReportsApp {
    }
 
    protected int readYear(int min, int max) {
+      return readYear("Year", min, max);
+   }
+
+   private int readYear(String prompt, int min, int max) {
       return io.newIntInputReader()
                .withDefaultValue(max)
                .withMinVal(min)
                .withMaxVal(max)
-               .read("Year");
+               .read(prompt);
    }
 
    protected Airport readAirport(String prompt) {
       String iata = io.newStringInputReader()
                       .withValueChecker((val, item) -> repository.validAirport(val) 
                           ? Collections.emptyList() 
-                          : Arrays.asList("Unknown airport specified") 
+                          : unknownValue("Unknown airport specified",
+                                         repository.findAirports(val, SUGGESTION_LIMIT)
+                                                   .stream()
+                                                   .map(Airport::getIATA)
+                                                   .collect(toList()))
                       ).read(prompt);
       return repository.getAirport(iata);
    }
@@ -121,11 +132,22 @@ public abstract class AbstractReportsApp {
       String code = io.newStringInputReader()
                       .withValueChecker((val, item) -> repository.validCarrier(val) 
                           ? Collections.emptyList() 
-                          : Arrays.asList("Unknown carrier specified")
+                          : unknownValue("Unknown carrier specified",
+                                         repository.findCarriers(val, SUGGESTION_LIMIT)
+                                                   .stream()
+                                                   .map(c -> c.getCode() + " (" + c.getName() + ")")
+                                                   .collect(toList()))
                       ).read("Carrier");
       return repository.getCarrier(code);
    }
 
+   private static List<String> unknownValue(String message, List<String> suggestions) {
+      if(suggestions.isEmpty()) {
+         return Arrays.asList(message);
+      }
+      return Arrays.asList(message, "Did you mean " + String.join(", ", suggestions) + "?");
+   }
+
    protected int readYear() {
       Set<Integer> years = repository.getFlightYears();
       int min = years.stream().reduce(Integer::min).get();
@@ -143,6 +165,27 @@ public abstract class AbstractReportsApp {
       return year;
    }
 
+   /**
+    * Reads a range of years and returns the years in that range that have
+    * flight data.
+    */
+   protected SortedSet<Integer> readYears() {
+      SortedSet<Integer> years = new TreeSet<>(repository.getFlightYears());
+      if(years.size() > 1) {
+         terminal.println("There is flight data for the following years:");
+         terminal.println(years.toString());
+         int first = readYear("First year", years.first(), years.last());
+         int last = readYear("Last year", first, years.last());
+         years = years.subSet(first, last + 1);
+      } else {
+         terminal.printf("There is flight data for the year %d%s", 
+                         years.first(), 
+                         System.lineSeparator());
+         terminal.println();
+      }
+      return years;
+   }
+
    protected String readState() {
       return readString("State").toUpperCase();
    }
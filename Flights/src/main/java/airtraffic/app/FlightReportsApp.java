@@ -22,7 +22,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsFromOrigin(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setOrigin(readAirport("Origin"));
 
       try (ResultSet rs = impl.reportTotalFlightsFromOrigin(context)) {
@@ -39,7 +39,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsToDestination(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setDestination(readAirport("Destination"));
       try (ResultSet rs = impl.reportTotalFlightsToDestination(context)) {
          if (rs.next()) {
@@ -55,7 +55,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsFromOriginToDestination(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setOrigin(readAirport("Origin"))
              .setDestination(readAirport("Destination"));
 
@@ -76,7 +76,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTopFlightsByOrigin(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
@@ -118,7 +118,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportMostPopularRoutes(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
@@ -138,18 +138,21 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportWorstAverageDepartureDelayByOrigin(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
-      terminal.println("Origin\tDelay (min)");
-      terminal.println(repeat("-", 22));
+      terminal.println("Origin\tDelay (min)\t  P50\t  P90\t  P99");
+      terminal.println(repeat("-", 46));
 
       try (ResultSet rs = impl.reportWorstAverageDepartureDelayByOrigin(context)) {
          while(rs.next()) {
-            terminal.printf("%3s\t\t%.0f\n", 
+            terminal.printf("%3s\t\t%.0f\t%5d\t%5d\t%5d\n", 
                             rs.getString("Origin"), 
-                            rs.getFloat("Delay"));
+                            rs.getFloat("Delay"),
+                            rs.getInt("P50"),
+                            rs.getInt("P90"),
+                            rs.getInt("P99"));
          }
       } catch (SQLException e) {
          throw new ReportException(e);
@@ -158,18 +161,68 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportWorstAverageArrivalDelayByDestination(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
-      terminal.println("Destination\tDelay (min)");
-      terminal.println(repeat("-", 28));
+      terminal.println("Destination\tDelay (min)\t  P50\t  P90\t  P99");
+      terminal.println(repeat("-", 52));
 
       try (ResultSet rs = impl.reportWorstAverageArrivalDelayByDestination(context)) {
          while(rs.next()) {
-            terminal.printf("%3s\t\t%.0f\n",  
+            terminal.printf("%3s\t\t%.0f\t%5d\t%5d\t%5d\n",  
                             rs.getString("Destination"), 
-                            rs.getFloat("Delay"));
+                            rs.getFloat("Delay"),
+                            rs.getInt("P50"),
+                            rs.getInt("P90"),
+                            rs.getInt("P99"));
+         }
+      } catch (SQLException e) {
+         throw new ReportException(e);
+      }
+   }
+
+   public void reportWorstDepartureDelayByRoute(ReportContext context) {
+      FlightReports impl = getBean(FlightReports.class, readStyle());
+      context.setYears(readYears())
+             .setLimit(readLimit(10, 1, 100));
+
+      TextTerminal<?> terminal = context.getTerminal();
+      terminal.println("Route\t\t   Flights\tDelay (min)\t  P50\t  P90\t  P99");
+      terminal.println(repeat("-", 68));
+
+      try (ResultSet rs = impl.reportWorstDepartureDelayByRoute(context)) {
+         while(rs.next()) {
+            terminal.printf("%s\t%,10d\t%.0f\t\t%5d\t%5d\t%5d\n",  
+                            rs.getString("Route"), 
+                            rs.getInt("TotalFlights"),
+                            rs.getFloat("Delay"),
+                            rs.getInt("P50"),
+                            rs.getInt("P90"),
+                            rs.getInt("P99"));
+         }
+      } catch (SQLException e) {
+         throw new ReportException(e);
+      }
+   }
+
+   public void reportMostCircuitousRoutes(ReportContext context) {
+      FlightReports impl = getBean(FlightReports.class, readStyle());
+      context.setYears(readYears())
+             .setLimit(readLimit(10, 1, 100));
+
+      TextTerminal<?> terminal = context.getTerminal();
+      terminal.println("Route\t\t   Flights\t  Distance\tGreat Circle\t    Excess");
+      terminal.println(repeat("-", 78));
+
+      try (ResultSet rs = impl.reportMostCircuitousRoutes(context)) {
+         while(rs.next()) {
+            terminal.printf("%s\t%,10d\t%,10.0f\t  %,10.0f\t%,10.0f\n",  
+                            rs.getString("Route"), 
+                            rs.getInt("TotalFlights"),
+                            rs.getFloat("Distance"),
+                            rs.getFloat("GreatCircle"),
+                            rs.getFloat("Excess"));
          }
       } catch (SQLException e) {
          throw new ReportException(e);
@@ -178,7 +231,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportMostCancelledFlightsByOrigin(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
@@ -198,7 +251,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsByOriginState(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
@@ -218,7 +271,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsByDestinationState(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
+      context.setYears(readYears())
              .setLimit(readLimit(10, 1, 100));
 
       TextTerminal<?> terminal = context.getTerminal();
@@ -283,7 +336,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsByDistanceRange(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear());
+      context.setYears(readYears());
 
       TextTerminal<?> terminal = context.getTerminal();
       terminal.println("Range\t\tCount");
@@ -342,8 +395,8 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalMonthlyFlights(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear())
-             .setLimit(readLimit(10, 1, 100));
+      context.setYears(readYears());
+      context.setLimit(readLimit(10, 1, 12 * context.getYears().size()));
 
       TextTerminal<?> terminal = context.getTerminal();
       terminal.println("Month\t\tCount");
@@ -382,7 +435,7 @@ public class FlightReportsApp extends AbstractReportsApp {
 
    public void reportTotalFlightsByDayOfWeek(ReportContext context) {
       FlightReports impl = getBean(FlightReports.class, readStyle());
-      context.setYear(readYear());
+      context.setYears(readYears());
 
       TextTerminal<?> terminal = context.getTerminal();
       terminal.println("Day of Week\t   Count");
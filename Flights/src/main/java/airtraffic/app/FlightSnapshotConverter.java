@@ -0,0 +1,29 @@
+package airtraffic.app;
+
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import airtraffic.Repository;
+
+
+/**
+ * Converts the flight data files listed in the configuration into binary
+ * snapshots. The repository uses a snapshot in place of its CSV file until
+ * the CSV file is changed, after which this class must be run again.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class FlightSnapshotConverter {
+   private static final Logger logger = LoggerFactory.getLogger(FlightSnapshotConverter.class);
+
+   public static void main(String[] args) {
+      Repository repository = new Repository();
+      for(int year : repository.getFlightYears()) {
+         long start = System.currentTimeMillis();
+         Path path = repository.createFlightSnapshot(year);
+         logger.info("Created {} in {} ms", path, System.currentTimeMillis() - start);
+      }
+   }
+}
@@ -1,6 +1,7 @@
 package airtraffic.app;
 
 import static org.apache.commons.lang3.StringUtils.repeat;
+import java.time.Duration;
 import org.beryx.textio.TextTerminal;
 import airtraffic.ReportContext;
 import airtraffic.reports.LiveReports;
@@ -21,11 +22,7 @@ public class LiveReportsApp extends AbstractReportsApp {
       context.setYear(readYear())
              .setAirport(readAirport("Airport"));
 
-      TextTerminal<?> terminal = context.getTerminal();
-      terminal.printf("Airport metrics for %s\n\n", context.getAirport().getName());
-      terminal.println("     Total\t Cancelled\t  Diverted\t   Origins\tDestinations");
-      terminal.println(repeat("-", 77));
-
+      printAirportHeader(context);
       impl.reportAirportMetrics(context);
    }
 
@@ -34,11 +31,55 @@ public class LiveReportsApp extends AbstractReportsApp {
       context.setYear(readYear())
              .setCarrier(readCarrier());
 
+      printCarrierHeader(context);
+      impl.reportCarrierMetrics(context);
+   }
+
+   public void reportAllAirportAndCarrierMetrics(ReportContext context) {
+      LiveReports impl = getBean(LiveReports.class, readStyle());
+      context.setYear(readYear())
+             .setLimit(readLimit(10, 1, 100));
+
+      TextTerminal<?> terminal = context.getTerminal();
+      terminal.println("     Total\t Cancelled\t  Diverted\t  Airports\t  Carriers");
+      terminal.println(repeat("-", 73));
+
+      impl.reportAllMetrics(context);
+   }
+
+   public void reportLiveAirportMetrics(ReportContext context) {
+      LiveReports impl = getBean(LiveReports.class, readStyle());
+      context.setAirport(readAirport("Airport"))
+             .setDuration(readDuration());
+
+      printAirportHeader(context);
+      impl.followAirportMetrics(context);
+   }
+
+   public void reportLiveCarrierMetrics(ReportContext context) {
+      LiveReports impl = getBean(LiveReports.class, readStyle());
+      context.setCarrier(readCarrier())
+             .setDuration(readDuration());
+
+      printCarrierHeader(context);
+      impl.followCarrierMetrics(context);
+   }
+
+   private Duration readDuration() {
+      return Duration.ofMinutes(readInt("Minutes to follow the live file", 1, 24 * 60));
+   }
+
+   private void printAirportHeader(ReportContext context) {
+      TextTerminal<?> terminal = context.getTerminal();
+      terminal.printf("Airport metrics for %s\n\n", context.getAirport().getName());
+      terminal.println("     Total\t Cancelled\t  Diverted\t   Origins\tDestinations");
+      terminal.println(repeat("-", 77));
+   }
+
+   private void printCarrierHeader(ReportContext context) {
       TextTerminal<?> terminal = context.getTerminal();
       terminal.printf("Carrier metrics for %s\n\n", context.getCarrier().getName());
       terminal.println("     Total\t Cancelled\t  Diverted\t  Airports");
       terminal.println(repeat("-", 59));
-
-      impl.reportCarrierMetrics(context);
    }
 }
\ No newline at end of file
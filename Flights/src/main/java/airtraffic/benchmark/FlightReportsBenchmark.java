@@ -10,6 +10,7 @@ import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import airtraffic.ReportContext;
+import airtraffic.reports.FlightReportBatch;
 import airtraffic.reports.FlightReports;
 import airtraffic.reports.iterator.IteratorFlightReports;
 import airtraffic.reports.stream.StreamFlightReports;
@@ -138,6 +139,34 @@ public class FlightReportsBenchmark extends AbstractReportsBenchmark {
       streamImpl.reportWorstAverageArrivalDelayByDestination(context);
    }
 
+   @Benchmark
+   public void iteratorWorstDepartureDelayByRoute() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      iteratorImpl.reportWorstDepartureDelayByRoute(context);
+   }
+
+   @Benchmark
+   public void streamWorstDepartureDelayByRoute() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      streamImpl.reportWorstDepartureDelayByRoute(context);
+   }
+
+   @Benchmark
+   public void iteratorMostCircuitousRoutes() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      iteratorImpl.reportMostCircuitousRoutes(context);
+   }
+
+   @Benchmark
+   public void streamMostCircuitousRoutes() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      streamImpl.reportMostCircuitousRoutes(context);
+   }
+
    @Benchmark
    public void iteratorMostCancelledFlightsByOrigin() {
       ReportContext context = createReportContext().setYear(2008)
@@ -339,4 +368,25 @@ public class FlightReportsBenchmark extends AbstractReportsBenchmark {
                                                    .setLimit(10);
       streamImpl.reportMostFlightsByCarrierByDay(context);
    }
-}
\ No newline at end of file
+
+   @Benchmark
+   public void streamReportsOneByOne() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      streamImpl.reportTopFlightsByOrigin(context);
+      streamImpl.reportMostPopularRoutes(context);
+      streamImpl.reportMostCancelledFlightsByOrigin(context);
+      streamImpl.reportTotalFlightsByDistanceRange(context);
+   }
+
+   @Benchmark
+   public void streamReportBatch() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      new FlightReportBatch(streamImpl).add(FlightReports::reportTopFlightsByOrigin, context)
+                                       .add(FlightReports::reportMostPopularRoutes, context)
+                                       .add(FlightReports::reportMostCancelledFlightsByOrigin, context)
+                                       .add(FlightReports::reportTotalFlightsByDistanceRange, context)
+                                       .execute();
+   }
+}
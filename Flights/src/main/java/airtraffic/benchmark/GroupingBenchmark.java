@@ -0,0 +1,109 @@
+package airtraffic.benchmark;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import airtraffic.Airport;
+import airtraffic.Flight;
+import airtraffic.Plane;
+import airtraffic.Repository;
+
+/**
+ * Measures grouping and filtering flights by airport and plane, which is
+ * what most of the reports spend their time on once the data is loaded.
+ * The reflective variants use keys that compare the way the domain
+ * classes used to, so they serve as a baseline.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 1, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, timeUnit = TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class GroupingBenchmark extends AbstractReportsBenchmark {
+   private List<Flight> flights;
+   private Airport origin;
+
+   @Setup
+   public void loadFlights() {
+      Repository repository = createReportContext().getRepository();
+      flights = repository.getFlightStream(2008).collect(toList());
+      origin = repository.getAirport("IAH");
+   }
+
+   @Benchmark
+   public Map<Airport, Long> groupByOrigin() {
+      return flights.stream().collect(groupingBy(Flight::getOrigin, counting()));
+   }
+
+   @Benchmark
+   public Map<ReflectiveKey, Long> groupByOriginReflective() {
+      return flights.stream()
+                    .collect(groupingBy(flight -> new ReflectiveKey(flight.getOrigin()),
+                                        counting()));
+   }
+
+   @Benchmark
+   public Map<Plane, Long> groupByPlane() {
+      return flights.stream().collect(groupingBy(Flight::getPlane, counting()));
+   }
+
+   @Benchmark
+   public Map<ReflectiveKey, Long> groupByPlaneReflective() {
+      return flights.stream()
+                    .collect(groupingBy(flight -> new ReflectiveKey(flight.getPlane()),
+                                        counting()));
+   }
+
+   @Benchmark
+   public long filterByOrigin() {
+      return flights.stream()
+                    .filter(flight -> flight.getOrigin().equals(origin))
+                    .count();
+   }
+
+   @Benchmark
+   public long filterByOriginReflective() {
+      return flights.stream()
+                    .filter(flight -> EqualsBuilder.reflectionEquals(flight.getOrigin(),
+                                                                     origin, false))
+                    .count();
+   }
+
+   /**
+    * Wraps a domain object so that it is compared using reflection.
+    */
+   static final class ReflectiveKey {
+      private final Object value;
+
+      ReflectiveKey(Object value) {
+         this.value = value;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         return obj instanceof ReflectiveKey &&
+                EqualsBuilder.reflectionEquals(value, ((ReflectiveKey) obj).value, false);
+      }
+
+      @Override
+      public int hashCode() {
+         return HashCodeBuilder.reflectionHashCode(value, false);
+      }
+   }
+}
@@ -49,4 +49,18 @@ public class LiveReportsBenchmark extends AbstractReportsBenchmark {
                                                    .setCarrierByCode("UA");
       streamImpl.reportCarrierMetrics(context);
    }
+
+   @Benchmark
+   public void iteratorAllMetrics() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      iteratorImpl.reportAllMetrics(context);
+   }
+
+   @Benchmark
+   public void streamAllMetrics() {
+      ReportContext context = createReportContext().setYear(2008)
+                                                   .setLimit(10);
+      streamImpl.reportAllMetrics(context);
+   }
 }
\ No newline at end of file
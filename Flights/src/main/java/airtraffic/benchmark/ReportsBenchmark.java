@@ -10,6 +10,7 @@ public class ReportsBenchmark {
       Options opt = new OptionsBuilder().include(AirportReportsBenchmark.class.getSimpleName())
                                         .include(CarrierReportsBenchmark.class.getSimpleName())
                                         .include(FlightReportsBenchmark.class.getSimpleName())
+                                        .include(GroupingBenchmark.class.getSimpleName())
                                         .include(LiveReportsBenchmark.class.getSimpleName())
                                         .include(PlaneReportsBenchmark.class.getSimpleName())
                                         .forks(1)
@@ -26,6 +26,10 @@ public class AirportMetrics extends FlightBasedMetrics<Airport>
       super(airport);
    }
 
+   AirportMetrics(Airport airport, boolean shared) {
+      super(airport, shared);
+   }
+
    @Override
    public int compareTo(AirportMetrics other) {
       return this.getSubject().compareTo(other.getSubject());
@@ -43,12 +47,16 @@ public class AirportMetrics extends FlightBasedMetrics<Airport>
                case NAS:      totalCancelledNAS.increment();      break;
                case SECURITY: totalCancelledSecurity.increment(); break;
             }
+         } else {
+            departureDelays.add(flight.getDepartureDelay());
          }
       } else if(flight.getDestination().equals(getSubject())) {
          totalDestinations.increment();
          // diversions are counted only for the destination airport
          if(flight.diverted()) {
             totalDiverted.increment();
+         } else if(!flight.cancelled()) {
+            arrivalDelays.add(flight.getArrivalDelay());
          }
       } else {
          throw new IllegalArgumentException("Wrong airport");
@@ -58,6 +66,26 @@ public class AirportMetrics extends FlightBasedMetrics<Airport>
       return this;
    }
 
+   /**
+    * Adds the counts of other metrics for the same airport to these
+    * metrics and returns them.
+    */
+   public AirportMetrics merge(AirportMetrics other) {
+      mergeTotals(other);
+      totalCancelledCarrier.add(other.totalCancelledCarrier.sum());
+      totalCancelledWeather.add(other.totalCancelledWeather.sum());
+      totalCancelledNAS.add(other.totalCancelledNAS.sum());
+      totalCancelledSecurity.add(other.totalCancelledSecurity.sum());
+      totalOrigins.add(other.totalOrigins.sum());
+      totalDestinations.add(other.totalDestinations.sum());
+      return this;
+   }
+
+   @Override
+   public AirportMetrics snapshot() {
+      return new AirportMetrics(getSubject()).merge(this);
+   }
+
    public long getTotalOrigins() {
       return totalOrigins.longValue();
    }
@@ -97,28 +125,7 @@ public class AirportMetrics extends FlightBasedMetrics<Airport>
    }
 
    public static BiConsumer<Map<String, AirportMetrics>, Map<String, AirportMetrics>> combiner() {
-      return (map1, map2) -> {
-         map1.entrySet()
-             .stream()
-             .forEach(e -> {
-                String airport = e.getKey();
-                AirportMetrics metrics = map2.get(airport);
-                if(metrics != null) {
-                   map1.merge(airport, metrics, (metrics1, metrics2) -> {
-                      if(!metrics1.getSubject().equals(metrics2.getSubject())) {
-                         throw new IllegalArgumentException("Wrong airport");
-                      }
-                      AirportMetrics result = new AirportMetrics(metrics1.getSubject());
-                      result.totalFlights.add(metrics1.totalFlights.longValue()); 
-                      result.totalFlights.add(metrics2.totalFlights.longValue());
-                      result.totalCancelled.add(metrics1.totalCancelled.longValue());
-                      result.totalCancelled.add(metrics2.totalCancelled.longValue());
-                      result.totalDiverted.add(metrics1.totalDiverted.longValue());
-                      result.totalDiverted.add(metrics2.totalDiverted.longValue());
-                      return result;
-                   });
-                }
-             });
-      };
+      return (map1, map2) -> map2.forEach((airport, metrics) -> 
+         map1.merge(airport, metrics, AirportMetrics::merge));
    }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package airtraffic.metrics;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exact set of airports backed by a bitmap over every possible IATA code.
+ * An IATA code is three letters or digits, so the codes map densely onto
+ * 36^3 bits, which is a fixed 5.7KB per set however many flights are
+ * added. Adding an airport that is already present only reads one word,
+ * and merging two sets ORs their words, so its cost does not depend on how
+ * many flights either set has seen.
+ *
+ * Sets may be updated and read from several threads at once. The size is
+ * kept up to date as bits are set, so reading it is constant time. Codes
+ * that are not valid IATA codes are kept in a small overflow set so the
+ * count stays exact.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+final class AirportSet {
+   private static final int RADIX = 36;
+   private static final int CAPACITY = RADIX * RADIX * RADIX;
+
+   private final AtomicLongArray words = new AtomicLongArray((CAPACITY + 63) / 64);
+   private final AtomicInteger size = new AtomicInteger();
+   private final Set<String> others = ConcurrentHashMap.newKeySet();
+
+   void add(String iata) {
+      int index = indexOf(iata);
+      if(index < 0) {
+         others.add(iata);
+      } else {
+         or(index >>> 6, 1L << index);
+      }
+   }
+
+   void addAll(AirportSet other) {
+      for(int i = 0; i < words.length(); i++) {
+         long bits = other.words.get(i);
+         if(bits != 0) {
+            or(i, bits);
+         }
+      }
+      others.addAll(other.others);
+   }
+
+   private void or(int word, long bits) {
+      while(true) {
+         long current = words.get(word);
+         long added = bits & ~current;
+         if(added == 0) {
+            return;
+         }
+         if(words.compareAndSet(word, current, current | added)) {
+            size.addAndGet(Long.bitCount(added));
+            return;
+         }
+      }
+   }
+
+   int size() {
+      return size.get() + others.size();
+   }
+
+   /**
+    * Returns the codes in the set. This decodes the whole bitmap, so it is
+    * meant for reports rather than for every flight.
+    */
+   Set<String> toSet() {
+      Set<String> result = new HashSet<>(others);
+      for(int i = 0; i < words.length(); i++) {
+         long bits = words.get(i);
+         while(bits != 0) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            result.add(codeOf((i << 6) + bit));
+            bits &= bits - 1;
+         }
+      }
+      return Collections.unmodifiableSet(result);
+   }
+
+   private static int indexOf(String iata) {
+      if(iata.length() != 3) {
+         return -1;
+      }
+      int index = 0;
+      for(int i = 0; i < 3; i++) {
+         char c = iata.charAt(i);
+         int digit = c >= '0' && c <= '9' ? c - '0' :
+                     c >= 'A' && c <= 'Z' ? c - 'A' + 10 : -1;
+         if(digit < 0) {
+            return -1;
+         }
+         index = index * RADIX + digit;
+      }
+      return index;
+   }
+
+   private static String codeOf(int index) {
+      char[] chars = new char[3];
+      for(int i = 2; i >= 0; i--) {
+         chars[i] = Character.toUpperCase(Character.forDigit(index % RADIX, RADIX));
+         index /= RADIX;
+      }
+      return new String(chars);
+   }
+}
@@ -1,7 +1,5 @@
 package airtraffic.metrics;
 
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -16,12 +14,17 @@ import airtraffic.Flight;
 public class CarrierMetrics extends FlightBasedMetrics<Carrier> 
    implements Comparable<CarrierMetrics> {
 
-   Set<String> airports = new HashSet<String>();
+   // read by the live report while flights are still being added
+   private final AirportSet airports = new AirportSet();
 
    public CarrierMetrics(Carrier carrier) {
       super(carrier);
    }
 
+   CarrierMetrics(Carrier carrier, boolean shared) {
+      super(carrier, shared);
+   }
+
    @Override
    public int compareTo(CarrierMetrics other) {
       return this.getSubject().compareTo(other.getSubject());
@@ -36,17 +39,43 @@ public class CarrierMetrics extends FlightBasedMetrics<Carrier>
       totalFlights.increment();
       if(flight.cancelled()) {
          totalCancelled.increment();
+      } else {
+         departureDelays.add(flight.getDepartureDelay());
       }
       if(flight.diverted()) {
          totalDiverted.increment();
+      } else if(!flight.cancelled()) {
+         arrivalDelays.add(flight.getArrivalDelay());
       }
       airports.add(flight.getOrigin().getIATA());
       airports.add(flight.getDestination().getIATA());
       return this;
    }
 
+   /**
+    * Adds the counts and airports of other metrics for the same carrier to
+    * these metrics and returns them.
+    */
+   public CarrierMetrics merge(CarrierMetrics other) {
+      mergeTotals(other);
+      airports.addAll(other.airports);
+      return this;
+   }
+
+   @Override
+   public CarrierMetrics snapshot() {
+      return new CarrierMetrics(getSubject()).merge(this);
+   }
+
+   /**
+    * Returns the number of airports this carrier has flown from or to.
+    */
+   public int getTotalAirports() {
+      return airports.size();
+   }
+
    public Set<String> getAirports() {
-      return Collections.unmodifiableSet(airports);
+      return airports.toSet();
    }
 
    public static BiConsumer<Map<String, CarrierMetrics>, Flight> accumulator() { 
@@ -62,30 +91,7 @@ public class CarrierMetrics extends FlightBasedMetrics<Carrier>
    }
 
    public static BiConsumer<Map<String, CarrierMetrics>, Map<String, CarrierMetrics>> combiner() {
-      return (map1, map2) -> {
-         map1.entrySet()
-             .stream()
-             .forEach(e -> {
-                String carrier = e.getKey();
-                CarrierMetrics metrics = map2.get(carrier);
-                if(metrics != null) {
-                   map1.merge(carrier, metrics, (metrics1, metrics2) -> {
-                      if(!metrics1.getSubject().equals(metrics2.getSubject())) {
-                         throw new IllegalArgumentException("Wrong carrier");
-                      }
-                      CarrierMetrics result = new CarrierMetrics(metrics1.getSubject());
-                      result.totalFlights.add(metrics1.totalFlights.longValue());
-                      result.totalFlights.add(metrics2.totalFlights.longValue());
-                      result.totalCancelled.add(metrics1.totalCancelled.longValue());
-                      result.totalCancelled.add(metrics2.totalCancelled.longValue());
-                      result.totalDiverted.add(metrics1.totalDiverted.longValue());
-                      result.totalDiverted.add(metrics2.totalDiverted.longValue());
-                      result.airports.addAll(metrics1.airports);
-                      result.airports.addAll(metrics2.airports);
-                      return result;
-                   });
-                }
-             });
-      };
+      return (map1, map2) -> map2.forEach((carrier, metrics) -> 
+         map1.merge(carrier, metrics, CarrierMetrics::merge));
    }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package airtraffic.metrics;
+
+/**
+ * Distribution of delays in minutes held in a fixed number of buckets, so
+ * percentiles can be estimated without keeping or sorting the delays.
+ * Delays under 32 minutes either way get a bucket per minute. Longer delays
+ * share log-linear buckets, 16 per power of two, so an estimate is within
+ * about 3% of the true delay. Delays beyond 65535 minutes either way are
+ * counted in the last bucket. The exact count, sum, minimum and maximum are
+ * also kept, so the average is not an estimate and no percentile estimate
+ * falls outside the delays that were added.
+ *
+ * Histograms merge by adding their buckets, so histograms filled from
+ * separate parts of the flights add up to the same histogram as one filled
+ * from all of them. A histogram is not thread safe, which suits the
+ * accumulators of a collector that each thread fills on its own. Metrics
+ * that threads add flights to at the same time use
+ * {@link #synchronizedHistogram()} instead.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public class DelayHistogram {
+   private static final int SUB_BITS = 4;
+   private static final int SUB_BUCKETS = 1 << SUB_BITS;
+   private static final int EXACT = SUB_BUCKETS * 2;     // delays below this get their own bucket
+   private static final int MAX_DELAY = (1 << 16) - 1;
+   private static final int HALF = bucketOf(MAX_DELAY) + 1;
+
+   private final long[] counts;
+   private long count;
+   private long sum;
+   private int min = Integer.MAX_VALUE;
+   private int max = Integer.MIN_VALUE;
+
+   public DelayHistogram() {
+      this.counts = new long[HALF * 2];
+   }
+
+   private DelayHistogram(DelayHistogram other) {
+      this.counts = other.counts.clone();
+      this.count = other.count;
+      this.sum = other.sum;
+      this.min = other.min;
+      this.max = other.max;
+   }
+
+   /**
+    * Returns a histogram whose methods are synchronized, so it may be shared
+    * by threads adding flights to the same metrics.
+    */
+   public static DelayHistogram synchronizedHistogram() {
+      return new SynchronizedHistogram();
+   }
+
+   public void add(int minutes) {
+      ++counts[indexOf(minutes)];
+      ++count;
+      sum += minutes;
+      min = Math.min(min, minutes);
+      max = Math.max(max, minutes);
+   }
+
+   public DelayHistogram merge(DelayHistogram other) {
+      DelayHistogram source = other.snapshot();
+      for(int i = 0; i < counts.length; i++) {
+         counts[i] += source.counts[i];
+      }
+      count += source.count;
+      sum += source.sum;
+      min = Math.min(min, source.min);
+      max = Math.max(max, source.max);
+      return this;
+   }
+
+   /**
+    * Returns a histogram with the same buckets that can be read without
+    * holding a lock.
+    */
+   DelayHistogram snapshot() {
+      return this;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public double getAverage() {
+      return (double) sum / count;
+   }
+
+   /**
+    * Returns an estimate of the delay that the given percentage of the
+    * delays do not exceed, such as 90 for the 90th percentile, or 0 if the
+    * histogram is empty. The estimate is the middle of the bucket holding
+    * that delay, limited to the smallest and largest delays added, and 0
+    * and 100 give the exact minimum and maximum.
+    */
+   public int getPercentile(double percentile) {
+      if(count == 0) {
+         return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      // the smallest and largest delays are known exactly
+      if(rank == 1) {
+         return min;
+      }
+      if(rank >= count) {
+         return max;
+      }
+      long seen = 0;
+      for(int i = 0; i < counts.length; i++) {
+         seen += counts[i];
+         if(seen >= rank) {
+            return clamp(valueOf(i));
+         }
+      }
+      return clamp(valueOf(counts.length - 1));
+   }
+
+   private int clamp(int minutes) {
+      return Math.max(min, Math.min(max, minutes));
+   }
+
+   public int getMedian() {
+      return getPercentile(50);
+   }
+
+   private static final class SynchronizedHistogram extends DelayHistogram {
+      @Override
+      public synchronized void add(int minutes) {
+         super.add(minutes);
+      }
+
+      @Override
+      public DelayHistogram merge(DelayHistogram other) {
+         DelayHistogram source = other.snapshot();
+         synchronized(this) {
+            return super.merge(source);
+         }
+      }
+
+      @Override
+      synchronized DelayHistogram snapshot() {
+         return new DelayHistogram(this);
+      }
+
+      @Override
+      public synchronized long getCount() {
+         return super.getCount();
+      }
+
+      @Override
+      public synchronized double getAverage() {
+         return super.getAverage();
+      }
+
+      @Override
+      public synchronized int getPercentile(double percentile) {
+         return super.getPercentile(percentile);
+      }
+   }
+
+   // negative delays are mirrored below HALF, so indexes follow the delays
+   private static int indexOf(int minutes) {
+      if(minutes >= 0) {
+         return HALF + bucketOf(Math.min(minutes, MAX_DELAY));
+      }
+      return HALF - 1 - bucketOf(Math.min(-(long) minutes, MAX_DELAY) - 1);
+   }
+
+   private static int valueOf(int index) {
+      if(index >= HALF) {
+         return midpointOf(index - HALF);
+      }
+      return -(midpointOf(HALF - 1 - index) + 1);
+   }
+
+   private static int bucketOf(long minutes) {
+      int value = (int) minutes;
+      if(value < EXACT) {
+         return value;
+      }
+      int exponent = 31 - Integer.numberOfLeadingZeros(value);
+      int sub = (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+      return EXACT + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+   }
+
+   private static int midpointOf(int bucket) {
+      if(bucket < EXACT) {
+         return bucket;
+      }
+      int exponent = (bucket - EXACT) / SUB_BUCKETS + SUB_BITS + 1;
+      int sub = (bucket - EXACT) % SUB_BUCKETS;
+      int width = 1 << (exponent - SUB_BITS);
+      return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width / 2;
+   }
+}
@@ -3,13 +3,18 @@ package airtraffic.metrics;
 import java.util.Comparator;
 import java.util.concurrent.atomic.LongAdder;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import airtraffic.Flight;
 
 /**
- * Common behavior for classes that report flight-based metrics.
+ * Common behavior for classes that report flight-based metrics. Metrics
+ * are mutable accumulators, so they use identity for equality.
+ *
+ * Metrics for the same subject can be merged. Merging adds every counter,
+ * so it is associative and commutative and new metrics are its identity.
+ * That makes metrics collected from separate parts of the flights, such as
+ * the chunks of a parallel stream, add up to the same numbers as metrics
+ * collected from all of the flights in one pass.
  *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
@@ -17,14 +22,53 @@ public abstract class FlightBasedMetrics<T> {
    protected LongAdder totalFlights = new LongAdder();
    protected LongAdder totalCancelled = new LongAdder();
    protected LongAdder totalDiverted = new LongAdder();
+   // departures that were not cancelled and arrivals that were not
+   // cancelled or diverted, as in the flight delay reports
+   protected final DelayHistogram departureDelays;
+   protected final DelayHistogram arrivalDelays;
    private T subject;
 
    protected FlightBasedMetrics(T subject) {
+      this(subject, false);
+   }
+
+   /**
+    * Creates metrics that threads may add flights to at the same time when
+    * shared is true. The counters allow that anyway, but the histograms
+    * must then be synchronized, which costs a lock per flight, so metrics
+    * filled by one thread at a time should not be shared.
+    */
+   protected FlightBasedMetrics(T subject, boolean shared) {
       this.subject = subject;
+      this.departureDelays = shared ? DelayHistogram.synchronizedHistogram() : new DelayHistogram();
+      this.arrivalDelays = shared ? DelayHistogram.synchronizedHistogram() : new DelayHistogram();
    }
 
    public abstract FlightBasedMetrics<T> addFlight(Flight flight);
 
+   /**
+    * Returns a copy of these metrics that flights added later do not
+    * change. The copy may be taken while flights are being added; each
+    * counter is then copied as it was when read, so counters read one after
+    * another may reflect different numbers of flights.
+    */
+   public abstract FlightBasedMetrics<T> snapshot();
+
+   /**
+    * Adds the counters shared by all metrics. Subclasses call this from
+    * their merge method and then add their own counters.
+    */
+   protected void mergeTotals(FlightBasedMetrics<T> other) {
+      if(!subject.equals(other.subject)) {
+         throw new IllegalArgumentException("Wrong subject");
+      }
+      totalFlights.add(other.totalFlights.sum());
+      totalCancelled.add(other.totalCancelled.sum());
+      totalDiverted.add(other.totalDiverted.sum());
+      departureDelays.merge(other.departureDelays);
+      arrivalDelays.merge(other.arrivalDelays);
+   }
+
    public T getSubject() {
       return subject;
    }
@@ -57,18 +101,16 @@ public abstract class FlightBasedMetrics<T> {
       return totalDiverted.doubleValue() / totalFlights.doubleValue();
    }
 
-   @Override
-   public String toString() {
-      return ToStringBuilder.reflectionToString(this);
+   public DelayHistogram getDepartureDelays() {
+      return departureDelays;
    }
 
-   @Override
-   public boolean equals(Object obj) {
-      return EqualsBuilder.reflectionEquals(this, obj, false);
+   public DelayHistogram getArrivalDelays() {
+      return arrivalDelays;
    }
 
    @Override
-   public int hashCode() {
-      return HashCodeBuilder.reflectionHashCode(this, false);
+   public String toString() {
+      return ToStringBuilder.reflectionToString(this);
    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package airtraffic.metrics;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import airtraffic.Airport;
+import airtraffic.Carrier;
+import airtraffic.Flight;
+
+/**
+ * Metrics for every airport and carrier, updated as flights are added. Any
+ * number of threads may add flights at the same time, for example from a
+ * parallel stream, while other threads read the metrics of any subject.
+ *
+ * The metrics are kept in concurrent maps, so threads adding flights for
+ * different airports rarely contend, and the counters themselves are
+ * {@link LongAdder}s. The delay histograms of the metrics are synchronized,
+ * while metrics created elsewhere use plain ones. The metrics returned by
+ * this class are snapshots rather than the live objects, so callers cannot
+ * add flights to them and they do not change while they are read. A
+ * snapshot taken while flights are being added may have counters that
+ * reflect different numbers of flights.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class LiveMetrics {
+   private final ConcurrentMap<String, AirportMetrics> airports = new ConcurrentHashMap<>(512);
+   private final ConcurrentMap<String, CarrierMetrics> carriers = new ConcurrentHashMap<>(64);
+   private final LongAdder totalFlights = new LongAdder();
+   private final LongAdder totalCancelled = new LongAdder();
+   private final LongAdder totalDiverted = new LongAdder();
+
+   public LiveMetrics addFlight(Flight flight) {
+      getOrCreate(flight.getOrigin()).addFlight(flight);
+      getOrCreate(flight.getDestination()).addFlight(flight);
+      getOrCreate(flight.getCarrier()).addFlight(flight);
+      totalFlights.increment();
+      if(flight.cancelled()) {
+         totalCancelled.increment();
+      }
+      if(flight.diverted()) {
+         totalDiverted.increment();
+      }
+      return this;
+   }
+
+   // computeIfAbsent locks the bin even when the key is present, so the
+   // common case of an existing subject is handled with a plain get
+   private AirportMetrics getOrCreate(Airport airport) {
+      AirportMetrics metrics = airports.get(airport.getIATA());
+      if(metrics == null) {
+         metrics = airports.computeIfAbsent(airport.getIATA(),
+                                            key -> new AirportMetrics(airport, true));
+      }
+      return metrics;
+   }
+
+   private CarrierMetrics getOrCreate(Carrier carrier) {
+      CarrierMetrics metrics = carriers.get(carrier.getCode());
+      if(metrics == null) {
+         metrics = carriers.computeIfAbsent(carrier.getCode(),
+                                            key -> new CarrierMetrics(carrier, true));
+      }
+      return metrics;
+   }
+
+   /**
+    * Returns a snapshot of the metrics for the airport, or null if no
+    * flight to or from it has been added yet.
+    */
+   public AirportMetrics getAirportMetrics(Airport airport) {
+      AirportMetrics metrics = airports.get(airport.getIATA());
+      return metrics != null ? metrics.snapshot() : null;
+   }
+
+   /**
+    * Returns a snapshot of the metrics for the carrier, or null if no
+    * flight by it has been added yet.
+    */
+   public CarrierMetrics getCarrierMetrics(Carrier carrier) {
+      CarrierMetrics metrics = carriers.get(carrier.getCode());
+      return metrics != null ? metrics.snapshot() : null;
+   }
+
+   /**
+    * Returns snapshots of the metrics of every airport seen so far.
+    */
+   public Collection<AirportMetrics> getAirportMetrics() {
+      return airports.values()
+                     .stream()
+                     .map(AirportMetrics::snapshot)
+                     .collect(toList());
+   }
+
+   /**
+    * Returns snapshots of the metrics of every carrier seen so far.
+    */
+   public Collection<CarrierMetrics> getCarrierMetrics() {
+      return carriers.values()
+                     .stream()
+                     .map(CarrierMetrics::snapshot)
+                     .collect(toList());
+   }
+
+   public long getTotalFlights() {
+      return totalFlights.longValue();
+   }
+
+   public long getTotalCancelled() {
+      return totalCancelled.longValue();
+   }
+
+   public long getTotalDiverted() {
+      return totalDiverted.longValue();
+   }
+
+   public int getTotalAirports() {
+      return airports.size();
+   }
+
+   public int getTotalCarriers() {
+      return carriers.size();
+   }
+}
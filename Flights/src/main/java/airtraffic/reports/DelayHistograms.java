@@ -0,0 +1,138 @@
+package airtraffic.reports;
+
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import airtraffic.metrics.DelayHistogram;
+
+/**
+ * Keeps a {@link DelayHistogram} for each key, such as an airport code or
+ * a route packed with {@link airtraffic.Route#key(int, int)}, so reports
+ * can show delay percentiles as well as averages in one pass over the
+ * flights. Keys are held in an open addressing hash table, and each key
+ * costs one fixed-size histogram however many delays are added to it.
+ * Like the other aggregators it can be used as the container of
+ * {@link IntStream#collect}, so each histogram is only filled by one
+ * thread and none of them lock.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class DelayHistograms {
+   private static final int INITIAL_CAPACITY = 1 << 8;
+
+   private long[] keys = new long[INITIAL_CAPACITY];
+   private DelayHistogram[] histograms = new DelayHistogram[INITIAL_CAPACITY];   // null marks an empty slot
+   private int size;
+
+   public void add(long key, int minutes) {
+      getOrCreate(key).add(minutes);
+   }
+
+   public DelayHistograms merge(DelayHistograms other) {
+      for(int slot = 0; slot < other.keys.length; slot++) {
+         if(other.histograms[slot] != null) {
+            getOrCreate(other.keys[slot]).merge(other.histograms[slot]);
+         }
+      }
+      return this;
+   }
+
+   /**
+    * Returns the histogram for the key, or null if nothing was added for it.
+    */
+   public DelayHistogram get(long key) {
+      return histograms[find(key)];
+   }
+
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns up to limit keys ordered by their average delay. Keys with the
+    * same average are kept in ascending key order.
+    */
+   public long[] getKeysByAverage(boolean descending, int limit) {
+      return sortKeys(DelayHistogram::getAverage, descending, limit);
+   }
+
+   /**
+    * Returns up to limit keys ordered by the given percentile of their
+    * delays, such as 90 for the 90th percentile.
+    */
+   public long[] getKeysByPercentile(double percentile, boolean descending, int limit) {
+      return sortKeys(histogram -> histogram.getPercentile(percentile), descending, limit);
+   }
+
+   private long[] sortKeys(ToDoubleFunction<DelayHistogram> value, boolean descending,
+      int limit) {
+      long[] sorted = IntStream.range(0, keys.length)
+                               .filter(slot -> histograms[slot] != null)
+                               .mapToLong(slot -> keys[slot])
+                               .sorted()
+                               .toArray();
+      // percentiles scan the whole histogram, so work them out once per key
+      double[] values = new double[sorted.length];
+      for(int i = 0; i < sorted.length; i++) {
+         values[i] = value.applyAsDouble(get(sorted[i]));
+      }
+      Comparator<Integer> comparator = Comparator.comparingDouble(i -> values[i]);
+      TopKSelector<Integer> selector =
+         new TopKSelector<>(descending ? comparator.reversed() : comparator, limit);
+      for(int i = 0; i < sorted.length; i++) {
+         selector.add(i);
+      }
+      return selector.toList()
+                     .stream()
+                     .mapToLong(i -> sorted[i])
+                     .toArray();
+   }
+
+   private DelayHistogram getOrCreate(long key) {
+      int slot = find(key);
+      DelayHistogram histogram = histograms[slot];
+      if(histogram == null) {
+         if(size * 2 >= keys.length) {
+            rehash(keys.length * 2);
+            slot = find(key);
+         }
+         histogram = histograms[slot] = new DelayHistogram();
+         keys[slot] = key;
+         ++size;
+      }
+      return histogram;
+   }
+
+   /**
+    * Returns the slot holding the given key, or the empty slot where it
+    * would be inserted.
+    */
+   private int find(long key) {
+      int mask = keys.length - 1;
+      int slot = hash(key) & mask;
+      while(histograms[slot] != null && keys[slot] != key) {
+         slot = (slot + 1) & mask;
+      }
+      return slot;
+   }
+
+   private static int hash(long key) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32));
+   }
+
+   private void rehash(int capacity) {
+      long[] oldKeys = keys;
+      DelayHistogram[] oldHistograms = histograms;
+      keys = new long[capacity];
+      histograms = new DelayHistogram[capacity];
+      for(int slot = 0; slot < oldKeys.length; slot++) {
+         if(oldHistograms[slot] != null) {
+            int newSlot = find(oldKeys[slot]);
+            keys[newSlot] = oldKeys[slot];
+            histograms[newSlot] = oldHistograms[slot];
+         }
+      }
+   }
+}
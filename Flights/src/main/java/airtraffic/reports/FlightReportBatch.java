@@ -0,0 +1,145 @@
+package airtraffic.reports;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
+import airtraffic.ReportContext;
+import airtraffic.Repository;
+
+/**
+ * Runs a group of flight reports over a single scan of the flight data.
+ * Most flight reports read the columnar table that the repository builds
+ * for a year, so the batch first loads the table for each distinct year,
+ * which is one pass over that year's file, and then computes the reports
+ * from memory. Reports about a single airport read only that airport's
+ * rows through the {@link airtraffic.FlightIndex} and reports by day or
+ * month read the {@link airtraffic.FlightCube} instead. The index and the
+ * cube are opened from their saved copies, or built in the same pass as
+ * the table when there are none, so a batch of any size scans each year at
+ * most once instead of once per report.
+ *
+ * The tables are retained until every report in the batch has finished,
+ * whatever the size of the repository's table cache, so a context that
+ * covers several years holds the tables of all of them in memory while the
+ * batch runs. If a report fails, the others still run to the end before
+ * the tables are released and the failure is thrown.
+ *
+ * Reports are added as a method of {@link FlightReports} together with the
+ * context to run it with, for example:
+ *
+ * <pre>
+ * List&lt;ResultSet&gt; results =
+ *    new FlightReportBatch(reports).add(FlightReports::reportTopFlightsByOrigin, context)
+ *                                  .add(FlightReports::reportMostPopularRoutes, context)
+ *                                  .execute();
+ * </pre>
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class FlightReportBatch {
+   private final FlightReports reports;
+   private final List<Request> requests = new ArrayList<>();
+
+   public FlightReportBatch(FlightReports reports) {
+      this.reports = reports;
+   }
+
+   public FlightReportBatch add(BiFunction<FlightReports, ReportContext, ResultSet> report,
+      ReportContext context) {
+      requests.add(new Request(report, context));
+      return this;
+   }
+
+   public int size() {
+      return requests.size();
+   }
+
+   /**
+    * Runs every report in the batch and returns their results in the order
+    * the reports were added.
+    */
+   public List<ResultSet> execute() {
+      Set<Scan> scans = 
+         requests.stream()
+                 .flatMap(request -> request.context.getYears()
+                                                    .stream()
+                                                    .map(year -> new Scan(request.context, year)))
+                 .collect(toSet());
+      Queue<Scan> retained = new ConcurrentLinkedQueue<>();
+      try {
+         scans.parallelStream()
+              .forEach(scan -> {
+                 scan.repository.retainFlightTable(scan.year);
+                 retained.add(scan);
+              });
+         // let every report finish before the tables are released, even
+         // when one of them fails, and then throw the first failure
+         Queue<RuntimeException> failures = new ConcurrentLinkedQueue<>();
+         List<ResultSet> results = 
+            requests.parallelStream()
+                    .map(request -> {
+                       try {
+                          return request.report.apply(reports, request.context);
+                       } catch (RuntimeException e) {
+                          failures.add(e);
+                          return null;
+                       }
+                    })
+                    .collect(toList());
+         RuntimeException failure = failures.poll();
+         if(failure != null) {
+            failures.forEach(failure::addSuppressed);
+            throw failure;
+         }
+         return results;
+      } finally {
+         for(Scan scan : retained) {
+            scan.repository.releaseFlightTable(scan.year);
+         }
+      }
+   }
+
+   private static final class Request {
+      private final BiFunction<FlightReports, ReportContext, ResultSet> report;
+      private final ReportContext context;
+
+      Request(BiFunction<FlightReports, ReportContext, ResultSet> report,
+         ReportContext context) {
+         this.report = report;
+         this.context = context;
+      }
+   }
+
+   /**
+    * Identifies the flight data read by a request.
+    */
+   private static final class Scan {
+      private final Repository repository;
+      private final int year;
+
+      Scan(ReportContext context, int year) {
+         this.repository = context.getRepository();
+         this.year = year;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         if(!(obj instanceof Scan)) {
+            return false;
+         }
+         Scan other = (Scan) obj;
+         return repository == other.repository && year == other.year;
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * System.identityHashCode(repository) + year;
+      }
+   }
+}
@@ -21,6 +21,8 @@ public interface FlightReports {
    ResultSet reportMostPopularRoutes(ReportContext context);
    ResultSet reportWorstAverageDepartureDelayByOrigin(ReportContext context);
    ResultSet reportWorstAverageArrivalDelayByDestination(ReportContext context);
+   ResultSet reportWorstDepartureDelayByRoute(ReportContext context);
+   ResultSet reportMostCircuitousRoutes(ReportContext context);
    ResultSet reportMostCancelledFlightsByOrigin(ReportContext context);
    ResultSet reportTotalFlightsByOriginState(ReportContext context);
    ResultSet reportTotalFlightsByDestinationState(ReportContext context);
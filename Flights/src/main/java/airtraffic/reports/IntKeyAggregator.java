@@ -0,0 +1,111 @@
+package airtraffic.reports;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Counts, and optionally sums a value for, keys that are small non-negative
+ * ints such as the codes in a {@link airtraffic.FlightTable} or a day of
+ * the year. Each key indexes a slot in a pair of long arrays, so adding a
+ * value never allocates. Aggregators built on different threads can be
+ * combined with {@link #merge(IntKeyAggregator)}, which makes this class
+ * usable as the container of {@link IntStream#collect}.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class IntKeyAggregator {
+   private long[] counts;
+   private long[] sums;
+
+   public IntKeyAggregator(int capacity) {
+      this.counts = new long[Math.max(capacity, 1)];
+      this.sums = new long[counts.length];
+   }
+
+   public void add(int key) {
+      ensureCapacity(key);
+      ++counts[key];
+   }
+
+   public void add(int key, long value) {
+      ensureCapacity(key);
+      ++counts[key];
+      sums[key] += value;
+   }
+
+   /**
+    * Adds a number of values at once, such as a count that has already
+    * been rolled up.
+    */
+   public void add(int key, long count, long sum) {
+      ensureCapacity(key);
+      counts[key] += count;
+      sums[key] += sum;
+   }
+
+   public IntKeyAggregator merge(IntKeyAggregator other) {
+      ensureCapacity(other.counts.length - 1);
+      for(int key = 0; key < other.counts.length; key++) {
+         counts[key] += other.counts[key];
+         sums[key] += other.sums[key];
+      }
+      return this;
+   }
+
+   public long getCount(int key) {
+      return key < counts.length ? counts[key] : 0;
+   }
+
+   public long getSum(int key) {
+      return key < sums.length ? sums[key] : 0;
+   }
+
+   public double getAverage(int key) {
+      return (double) getSum(key) / getCount(key);
+   }
+
+   /**
+    * Returns every key with a count greater than zero, in ascending order.
+    */
+   public int[] getKeys() {
+      return IntStream.range(0, counts.length)
+                      .filter(key -> counts[key] > 0)
+                      .toArray();
+   }
+
+   /**
+    * Returns up to limit keys ordered by their count.
+    */
+   public int[] getKeysByCount(boolean descending, int limit) {
+      Comparator<Integer> comparator = Comparator.comparingLong(key -> counts[key]);
+      return sortKeys(descending ? comparator.reversed() : comparator, limit);
+   }
+
+   /**
+    * Returns up to limit keys ordered by the average of their values.
+    */
+   public int[] getKeysByAverage(boolean descending, int limit) {
+      Comparator<Integer> comparator = Comparator.comparingDouble(this::getAverage);
+      return sortKeys(descending ? comparator.reversed() : comparator, limit);
+   }
+
+   private int[] sortKeys(Comparator<Integer> comparator, int limit) {
+      TopKSelector<Integer> selector = new TopKSelector<>(comparator, limit);
+      for(int key : getKeys()) {
+         selector.add(key);
+      }
+      return selector.toList()
+                     .stream()
+                     .mapToInt(Integer::intValue)
+                     .toArray();
+   }
+
+   private void ensureCapacity(int key) {
+      if(key >= counts.length) {
+         int capacity = Math.max(key + 1, counts.length * 2);
+         counts = Arrays.copyOf(counts, capacity);
+         sums = Arrays.copyOf(sums, capacity);
+      }
+   }
+}
@@ -0,0 +1,79 @@
+package airtraffic.reports;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import org.beryx.textio.TextTerminal;
+
+/**
+ * Redraws a single line of a live report at a fixed frame rate. The thread
+ * reading flights only updates the metrics, while the renderer samples them
+ * on its own thread ten times a second, so reading never waits for the
+ * terminal however many flights there are.
+ *
+ * Closing the renderer stops the sampling and, once the rendering thread
+ * has finished, draws one last frame after every update has been made, so
+ * the numbers left on the screen are the exact totals:
+ *
+ * <pre>
+ * LiveRenderer renderer = new LiveRenderer(terminal, () -&gt; format(metrics));
+ * try {
+ *    flights.forEach(metrics::addFlight);
+ * } finally {
+ *    renderer.close();
+ * }
+ * </pre>
+ *
+ * The frame supplier is called from the rendering thread, so it must only
+ * read values that are safe to read while they are being updated.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class LiveRenderer implements AutoCloseable {
+   private static final int FRAMES_PER_SECOND = 10;
+   private static final long FRAME_INTERVAL = 1000 / FRAMES_PER_SECOND;
+
+   private final TextTerminal<?> terminal;
+   private final Supplier<String> frame;
+   private final ScheduledExecutorService executor;
+
+   /**
+    * Starts drawing the frames returned by the supplier.
+    */
+   public LiveRenderer(TextTerminal<?> terminal, Supplier<String> frame) {
+      this.terminal = terminal;
+      this.frame = frame;
+      this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+         Thread thread = new Thread(task, "live-renderer");
+         thread.setDaemon(true);
+         return thread;
+      });
+      executor.scheduleAtFixedRate(this::render, 0, FRAME_INTERVAL, MILLISECONDS);
+   }
+
+   private void render() {
+      terminal.print(frame.get());
+      terminal.moveToLineStart();
+   }
+
+   /**
+    * Stops the sampling and draws the final frame. The final frame is only
+    * drawn once the rendering thread has terminated, so it is never printed
+    * over a frame that is still being drawn.
+    */
+   @Override
+   public void close() {
+      executor.shutdown();
+      try {
+         if(executor.awaitTermination(1, SECONDS)) {
+            render();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
@@ -11,4 +11,17 @@ import airtraffic.ReportContext;
 public interface LiveReports {
    void reportAirportMetrics(ReportContext context);
    void reportCarrierMetrics(ReportContext context);
+
+   /**
+    * Tracks the metrics of every airport and carrier in a single scan and
+    * lists the busiest of each.
+    */
+   void reportAllMetrics(ReportContext context);
+
+   /**
+    * Same as the airport and carrier metrics reports, but for the flights appended to the live
+    * flight file for the duration of the context.
+    */
+   void followAirportMetrics(ReportContext context);
+   void followCarrierMetrics(ReportContext context);
 }
\ No newline at end of file
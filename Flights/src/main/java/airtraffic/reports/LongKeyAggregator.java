@@ -0,0 +1,170 @@
+package airtraffic.reports;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Counts, and optionally sums a value for, keys that are too sparse to
+ * index an array directly. This is typically a pair of codes packed into a
+ * long with {@link #pack(int, int)}, such as an airport and a day of the
+ * year. Keys are held in an open addressing hash table made of primitive
+ * arrays, so adding a value only allocates when the table grows.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class LongKeyAggregator {
+   private static final int INITIAL_CAPACITY = 1 << 10;
+
+   private long[] keys;
+   private long[] counts;     // zero marks an empty slot
+   private long[] sums;
+   private int size;
+
+   public LongKeyAggregator() {
+      allocate(INITIAL_CAPACITY);
+   }
+
+   public static long pack(int high, int low) {
+      return ((long) high << 32) | (low & 0xFFFFFFFFL);
+   }
+
+   public static int high(long key) {
+      return (int) (key >>> 32);
+   }
+
+   public static int low(long key) {
+      return (int) key;
+   }
+
+   public void add(long key) {
+      add(key, 1, 0);
+   }
+
+   public void add(long key, long value) {
+      add(key, 1, value);
+   }
+
+   /**
+    * Adds a number of values at once, such as a count that has already
+    * been rolled up. The count must be greater than zero.
+    */
+   public void add(long key, long count, long value) {
+      int slot = find(key);
+      if(counts[slot] == 0) {
+         if(size * 2 >= keys.length) {
+            rehash(keys.length * 2);
+            slot = find(key);
+         }
+         keys[slot] = key;
+         ++size;
+      }
+      counts[slot] += count;
+      sums[slot] += value;
+   }
+
+   public LongKeyAggregator merge(LongKeyAggregator other) {
+      for(int slot = 0; slot < other.keys.length; slot++) {
+         if(other.counts[slot] > 0) {
+            add(other.keys[slot], other.counts[slot], other.sums[slot]);
+         }
+      }
+      return this;
+   }
+
+   public long getCount(long key) {
+      int slot = find(key);
+      return counts[slot];
+   }
+
+   public long getSum(long key) {
+      int slot = find(key);
+      return sums[slot];
+   }
+
+   public double getAverage(long key) {
+      int slot = find(key);
+      return (double) sums[slot] / counts[slot];
+   }
+
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns every key that has been added, in ascending order.
+    */
+   public long[] getKeys() {
+      return occupiedSlots().mapToLong(slot -> keys[slot])
+                            .sorted()
+                            .toArray();
+   }
+
+   /**
+    * Returns up to limit keys ordered by their count.
+    */
+   public long[] getKeysByCount(boolean descending, int limit) {
+      Comparator<Integer> comparator = Comparator.comparingLong(slot -> counts[slot]);
+      return sortKeys(descending ? comparator.reversed() : comparator, limit);
+   }
+
+   /**
+    * Returns up to limit keys ordered by the average of their values.
+    */
+   public long[] getKeysByAverage(boolean descending, int limit) {
+      Comparator<Integer> comparator =
+         Comparator.comparingDouble(slot -> (double) sums[slot] / counts[slot]);
+      return sortKeys(descending ? comparator.reversed() : comparator, limit);
+   }
+
+   private long[] sortKeys(Comparator<Integer> comparator, int limit) {
+      TopKSelector<Integer> selector = new TopKSelector<>(comparator, limit);
+      occupiedSlots().forEach(selector::add);
+      return selector.toList()
+                     .stream()
+                     .mapToLong(slot -> keys[slot])
+                     .toArray();
+   }
+
+   private IntStream occupiedSlots() {
+      return IntStream.range(0, keys.length).filter(slot -> counts[slot] > 0);
+   }
+
+   /**
+    * Returns the slot holding the given key, or the empty slot where it
+    * would be inserted.
+    */
+   private int find(long key) {
+      int mask = keys.length - 1;
+      int slot = hash(key) & mask;
+      while(counts[slot] != 0 && keys[slot] != key) {
+         slot = (slot + 1) & mask;
+      }
+      return slot;
+   }
+
+   private static int hash(long key) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32));
+   }
+
+   private void rehash(int capacity) {
+      long[] oldKeys = keys;
+      long[] oldCounts = counts;
+      long[] oldSums = sums;
+      allocate(capacity);
+      for(int slot = 0; slot < oldKeys.length; slot++) {
+         if(oldCounts[slot] > 0) {
+            int newSlot = find(oldKeys[slot]);
+            keys[newSlot] = oldKeys[slot];
+            counts[newSlot] = oldCounts[slot];
+            sums[newSlot] = oldSums[slot];
+         }
+      }
+   }
+
+   private void allocate(int capacity) {
+      keys = new long[capacity];
+      counts = new long[capacity];
+      sums = new long[capacity];
+   }
+}
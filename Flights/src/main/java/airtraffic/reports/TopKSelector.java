@@ -0,0 +1,163 @@
+package airtraffic.reports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the first limit elements, in the order given by a comparator, out
+ * of everything it is offered. The elements are held in a bounded binary
+ * heap with the worst of them at the root, so selecting the top K of N
+ * elements needs O(K) memory rather than buffering and sorting all N.
+ *
+ * Elements that compare equal keep the order in which they were added,
+ * just like a stable sort. Selectors filled from consecutive parts of the
+ * input can be merged, which is what {@link #collector(Comparator, int)}
+ * relies on for parallel streams.
+ *
+ * @author Tony Piazza <tony@piazzaconsulting.com>
+ */
+public final class TopKSelector<T> {
+   private static final int INITIAL_CAPACITY = 16;
+
+   private final Comparator<? super T> comparator;
+   private final int limit;
+   private Object[] elements;
+   private long[] sequences;
+   private int size;
+   private long added;
+
+   public TopKSelector(Comparator<? super T> comparator, int limit) {
+      this.comparator = comparator;
+      this.limit = Math.max(limit, 0);
+      int capacity = Math.min(this.limit, INITIAL_CAPACITY);
+      this.elements = new Object[capacity];
+      this.sequences = new long[capacity];
+   }
+
+   /**
+    * Returns a collector that selects the first limit elements of a stream
+    * in the order given by the comparator.
+    */
+   public static <T> Collector<T, ?, List<T>> collector(Comparator<? super T> comparator,
+      int limit) {
+      return Collector.of(() -> new TopKSelector<T>(comparator, limit),
+                          TopKSelector::add,
+                          TopKSelector::merge,
+                          TopKSelector::toList);
+   }
+
+   public void add(T element) {
+      offer(element, added++);
+   }
+
+   /**
+    * Adds the elements kept by another selector, treating them as if they
+    * were added after every element already offered to this one.
+    */
+   @SuppressWarnings("unchecked")
+   public TopKSelector<T> merge(TopKSelector<T> other) {
+      long offset = added;
+      for(int i = 0; i < other.size; i++) {
+         offer((T) other.elements[i], other.sequences[i] + offset);
+      }
+      added += other.added;
+      return this;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns the selected elements in order.
+    */
+   @SuppressWarnings("unchecked")
+   public List<T> toList() {
+      Integer[] order = new Integer[size];
+      for(int i = 0; i < size; i++) {
+         order[i] = i;
+      }
+      Arrays.sort(order, (i, j) -> compare(i, j));
+      List<T> result = new ArrayList<>(size);
+      for(int i : order) {
+         result.add((T) elements[i]);
+      }
+      return result;
+   }
+
+   private void offer(T element, long sequence) {
+      if(size < limit) {
+         if(size == elements.length) {
+            int capacity = (int) Math.min((long) limit, elements.length * 2L);
+            elements = Arrays.copyOf(elements, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+         }
+         elements[size] = element;
+         sequences[size] = sequence;
+         siftUp(size++);
+      } else if(limit > 0 && compare(element, sequence, 0) < 0) {
+         elements[0] = element;
+         sequences[0] = sequence;
+         siftDown(0);
+      }
+   }
+
+   /**
+    * Moves the element at index up until its parent is no better than it.
+    */
+   private void siftUp(int index) {
+      while(index > 0) {
+         int parent = (index - 1) >>> 1;
+         if(compare(index, parent) <= 0) {
+            break;
+         }
+         swap(index, parent);
+         index = parent;
+      }
+   }
+
+   /**
+    * Moves the element at index down until neither child is worse than it.
+    */
+   private void siftDown(int index) {
+      while(true) {
+         int worst = index;
+         int left = 2 * index + 1;
+         int right = left + 1;
+         if(left < size && compare(left, worst) > 0) {
+            worst = left;
+         }
+         if(right < size && compare(right, worst) > 0) {
+            worst = right;
+         }
+         if(worst == index) {
+            break;
+         }
+         swap(index, worst);
+         index = worst;
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private int compare(int i, int j) {
+      return compare((T) elements[i], sequences[i], j);
+   }
+
+   @SuppressWarnings("unchecked")
+   private int compare(T element, long sequence, int j) {
+      int result = comparator.compare(element, (T) elements[j]);
+      return result != 0 ? result : Long.compare(sequence, sequences[j]);
+   }
+
+   private void swap(int i, int j) {
+      Object element = elements[i];
+      elements[i] = elements[j];
+      elements[j] = element;
+      long sequence = sequences[i];
+      sequences[i] = sequences[j];
+      sequences[j] = sequence;
+   }
+}
@@ -1,17 +1,16 @@
 package airtraffic.reports.iterator;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import airtraffic.reports.TopKSelector;
 
 /**
- * Contains useful methods for accumulation.
+ * Contains useful methods for accumulation. Only the first limit results
+ * are kept while selecting, so a small limit needs little memory however
+ * many subjects pass the filter.
  *
  * @author Tony Piazza <tony@piazzaconsulting.com>
  */
@@ -31,41 +30,27 @@ public final class AccumulatorHelper {
             );
          }
       }
-      List<Entry<K, V>> entries = new ArrayList<>(map.entrySet());
-      Collections.sort(entries, comparator);
-      Map<K, V> result = new LinkedHashMap<>();
-      for (Entry<K, V> entry : entries) {
-         result.put(entry.getKey(), entry.getValue());
+      TopKSelector<Entry<K, V>> entries = new TopKSelector<>(comparator, limit);
+      for(Entry<K, V> entry : map.entrySet()) {
+         entries.add(entry);
       }
-      int count = 0;
-      for(Entry<K, V> entry : result.entrySet()) {
+      for(Entry<K, V> entry : entries.toList()) {
          accumulator.forEach(entry);
-         if(++count >= limit) {
-            break;
-         }
       }
       map.clear();
-      result.clear();
-      entries.clear();
    }
 
    public static <T extends Comparable<T>> void accumulate(Iterator<T> iterator, 
       Comparator<? super T> comparator, int limit, ListAccumulator<T> accumulator) {
-      List<T> list = new ArrayList<>();
+      TopKSelector<T> selector = new TopKSelector<>(comparator, limit);
       while(iterator.hasNext()) {
          T subject = iterator.next();
          if(accumulator.filter(subject)) {
-            list.add(subject);
+            selector.add(subject);
          }
       }
-      Collections.sort(list, comparator);
-      int count = 0;
-      for(T subject : list) {
+      for(T subject : selector.toList()) {
          accumulator.forEach(subject);
-         if(++count >= limit) {
-            break;
-         }         
       }
-      list.clear();
    }
 }
\ No newline at end of file
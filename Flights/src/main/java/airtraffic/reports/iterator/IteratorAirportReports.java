@@ -1,7 +1,5 @@
 package airtraffic.reports.iterator;
 
-import static airtraffic.GeoHelper.distanceFromReferenceComparator;
-import static airtraffic.GeoHelper.getDistance;
 import static airtraffic.GeoLocation.Units.MILES;
 import static airtraffic.metrics.FlightBasedMetrics.highestCancellationRateComparator;
 import static airtraffic.reports.iterator.AccumulatorHelper.accumulate;
@@ -11,10 +9,12 @@ import java.sql.Types;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import airtraffic.Airport;
+import airtraffic.AirportIndex.Neighbor;
 import airtraffic.Flight;
 import airtraffic.GeoLocation;
 import airtraffic.ReportContext;
@@ -70,21 +70,17 @@ public class IteratorAirportReports implements AirportReports {
                                .addColumn("City", Types.VARCHAR)
                                .addColumn("Distance", Types.VARCHAR);
 
-      Iterator<Airport> iterator = context.getRepository().getAirportIterator();
-      accumulate(iterator, distanceFromReferenceComparator(loc, MILES), limit, 
-         new ListAccumulator<Airport>() {
-            @Override public boolean filter(Airport airport) {
-               return getDistance(airport, loc, MILES) <= distance;
-            }
-            @Override public void forEach(Airport airport) {
-               builder.addRow(airport.getIATA(), 
-                              airport.getName(), 
-                              airport.getState(), 
-                              airport.getCity(), 
-                              getDistance(airport, loc, MILES));
-            }
-         }
-      );
+      List<Neighbor> neighbors = context.getRepository()
+                                        .getAirportIndex()
+                                        .withinDistance(loc, distance, MILES);
+      for(int i = 0; i < neighbors.size() && i < limit; i++) {
+         Airport airport = neighbors.get(i).getAirport();
+         builder.addRow(airport.getIATA(), 
+                        airport.getName(), 
+                        airport.getState(), 
+                        airport.getCity(), 
+                        neighbors.get(i).getDistance());
+      }
 
       return builder.build();
    }
@@ -97,7 +93,13 @@ public class IteratorAirportReports implements AirportReports {
                                .addColumn("Name", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER)
                                .addColumn("CancellationRate", Types.DOUBLE)
-                               .addColumn("DiversionRate", Types.DOUBLE);
+                               .addColumn("DiversionRate", Types.DOUBLE)
+                               .addColumn("DepartureP50", Types.INTEGER)
+                               .addColumn("DepartureP90", Types.INTEGER)
+                               .addColumn("DepartureP99", Types.INTEGER)
+                               .addColumn("ArrivalP50", Types.INTEGER)
+                               .addColumn("ArrivalP90", Types.INTEGER)
+                               .addColumn("ArrivalP99", Types.INTEGER);
 
       Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
       Map<Airport, AirportMetrics> map = new HashMap<>();
@@ -131,7 +133,13 @@ public class IteratorAirportReports implements AirportReports {
                         airport.getName(),
                         metrics.getTotalFlights(),
                         metrics.getCancellationRate(),
-                        metrics.getDiversionRate());
+                        metrics.getDiversionRate(),
+                        metrics.getDepartureDelays().getPercentile(50),
+                        metrics.getDepartureDelays().getPercentile(90),
+                        metrics.getDepartureDelays().getPercentile(99),
+                        metrics.getArrivalDelays().getPercentile(50),
+                        metrics.getArrivalDelays().getPercentile(90),
+                        metrics.getArrivalDelays().getPercentile(99));
       }
 
       return builder.build();
@@ -62,7 +62,13 @@ public class IteratorCarrierReports implements CarrierReports {
                                .addColumn("TotalFlights", Types.INTEGER)
                                .addColumn("CancellationRate", Types.DOUBLE)
                                .addColumn("DiversionRate", Types.DOUBLE)
-                               .addColumn("TotalAirports", Types.INTEGER);
+                               .addColumn("TotalAirports", Types.INTEGER)
+                               .addColumn("DepartureP50", Types.INTEGER)
+                               .addColumn("DepartureP90", Types.INTEGER)
+                               .addColumn("DepartureP99", Types.INTEGER)
+                               .addColumn("ArrivalP50", Types.INTEGER)
+                               .addColumn("ArrivalP90", Types.INTEGER)
+                               .addColumn("ArrivalP99", Types.INTEGER);
 
       Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
       accumulate(iterator, comparingByKey(), limit, 
@@ -88,7 +94,13 @@ public class IteratorCarrierReports implements CarrierReports {
                               metrics.getTotalFlights(),
                               metrics.getCancellationRate(),
                               metrics.getDiversionRate(),
-                              metrics.getAirports().size());
+                              metrics.getTotalAirports(),
+                              metrics.getDepartureDelays().getPercentile(50),
+                              metrics.getDepartureDelays().getPercentile(90),
+                              metrics.getDepartureDelays().getPercentile(99),
+                              metrics.getArrivalDelays().getPercentile(50),
+                              metrics.getArrivalDelays().getPercentile(90),
+                              metrics.getArrivalDelays().getPercentile(99));
             }
          }
       );
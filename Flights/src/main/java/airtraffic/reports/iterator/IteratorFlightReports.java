@@ -1,32 +1,41 @@
 package airtraffic.reports.iterator;
 
-import static airtraffic.reports.iterator.AccumulatorHelper.accumulate;
+import static airtraffic.reports.LongKeyAggregator.high;
+import static airtraffic.reports.LongKeyAggregator.low;
+import static airtraffic.reports.LongKeyAggregator.pack;
 import static java.util.Comparator.reverseOrder;
-import static java.util.Map.Entry.comparingByKey;
 import static java.util.Map.Entry.comparingByValue;
 import java.sql.ResultSet;
 import java.sql.Types;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.Year;
 import java.time.YearMonth;
-import java.time.chrono.ChronoLocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
 import airtraffic.Airport;
-import airtraffic.Carrier;
-import airtraffic.Flight;
+import airtraffic.FlightCube;
 import airtraffic.FlightDistanceRange;
+import airtraffic.FlightIndex;
+import airtraffic.FlightTable;
 import airtraffic.ReportContext;
+import airtraffic.Repository;
 import airtraffic.Route;
 import airtraffic.annotations.IteratorStyle;
 import airtraffic.jdbc.ResultSetBuilder;
+import airtraffic.metrics.DelayHistogram;
+import airtraffic.reports.DelayHistograms;
 import airtraffic.reports.FlightReports;
+import airtraffic.reports.IntKeyAggregator;
+import airtraffic.reports.LongKeyAggregator;
+import airtraffic.reports.TopKSelector;
 
 /**
  * Implementation of flight reports using iterator style that was common in
@@ -36,12 +45,10 @@ import airtraffic.reports.FlightReports;
  */
 @IteratorStyle
 public class IteratorFlightReports implements FlightReports {
-   private static final Comparator<Flight> FLIGHT_DISTANCE_COMPARATOR = 
-      new Comparator<Flight>() {
-         @Override public int compare(Flight f1, Flight f2) {
-            return f1.getDistance() - f2.getDistance();
-         }
-      };
+   // day and day of week keys are one-based
+   private static final int DAY_OF_YEAR_KEYS = 367;
+   private static final int DAY_OF_WEEK_KEYS = 8;
+
    private static final List<FlightDistanceRange> DISTANCE_RANGES =
       Arrays.asList(FlightDistanceRange.between(   0,  100), 
                     FlightDistanceRange.between( 101,  250),
@@ -51,47 +58,87 @@ public class IteratorFlightReports implements FlightReports {
                     FlightDistanceRange.between(2501, 5000),
                     FlightDistanceRange.between(5001, 9999));
 
+   private static final BinaryOperator<IntKeyAggregator> INT_KEY_MERGER =
+      new BinaryOperator<IntKeyAggregator>() {
+         @Override public IntKeyAggregator apply(IntKeyAggregator a1, IntKeyAggregator a2) {
+            return a1.merge(a2);
+         }
+      };
+   private static final BinaryOperator<LongKeyAggregator> LONG_KEY_MERGER =
+      new BinaryOperator<LongKeyAggregator>() {
+         @Override public LongKeyAggregator apply(LongKeyAggregator a1, LongKeyAggregator a2) {
+            return a1.merge(a2);
+         }
+      };
+   private static final BinaryOperator<DelayHistograms> HISTOGRAM_MERGER =
+      new BinaryOperator<DelayHistograms>() {
+         @Override public DelayHistograms apply(DelayHistograms h1, DelayHistograms h2) {
+            return h1.merge(h2);
+         }
+      };
+   private static final BinaryOperator<TopKSelector<Object[]>> ROW_MERGER =
+      new BinaryOperator<TopKSelector<Object[]>>() {
+         @Override public TopKSelector<Object[]> apply(TopKSelector<Object[]> s1, 
+            TopKSelector<Object[]> s2) {
+            return s1.merge(s2);
+         }
+      };
+   private static final BinaryOperator<Long> COUNT_ADDER = 
+      new BinaryOperator<Long>() {
+         @Override public Long apply(Long count1, Long count2) {
+            return Long.valueOf(count1.longValue() + count2.longValue());
+         }
+      };
+
    public ResultSet reportTotalFlightsFromOrigin(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final ResultSetBuilder builder = 
           new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                 .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = 0;
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.notCancelled() && flight.getOrigin().equals(origin)) {
-            ++count;
-         }
-      }
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), 
+         new IntFunction<Long>() {
+            @Override public Long apply(int year) {
+               FlightIndex index = repository.getFlightIndex(year);
+               long total = 0;
+               for(int row : index.getOriginRows(origin)) {
+                  if(index.notCancelled(row)) {
+                     ++total;
+                  }
+               }
+               return total;
+            }
+         }, COUNT_ADDER);
 
       return builder.addRow(origin.getName().trim(), count).build();
    }
 
    public ResultSet reportTotalFlightsToDestination(ReportContext context) {
-      final int year = context.getYear();
       final Airport destination = context.getDestination();
       final ResultSetBuilder builder = 
           new ResultSetBuilder().addColumn("Destination", Types.VARCHAR)
                                 .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = 0;
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.notCancelled() && flight.notDiverted() &&  
-            flight.getDestination().equals(destination)) {
-            ++count;
-         }
-      }
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), 
+         new IntFunction<Long>() {
+            @Override public Long apply(int year) {
+               FlightIndex index = repository.getFlightIndex(year);
+               long total = 0;
+               for(int row : index.getDestinationRows(destination)) {
+                  if(index.notCancelled(row) && index.notDiverted(row)) {
+                     ++total;
+                  }
+               }
+               return total;
+            }
+         }, COUNT_ADDER);
 
       return builder.addRow(destination.getName().trim(), count).build();
    }
 
    public ResultSet reportTotalFlightsFromOriginToDestination(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final Airport destination = context.getDestination();
       final ResultSetBuilder builder = 
@@ -99,16 +146,22 @@ public class IteratorFlightReports implements FlightReports {
                                   .addColumn("Destination", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = 0;
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.notCancelled() && flight.notDiverted() &&  
-            flight.getOrigin().equals(origin) &&
-            flight.getDestination().equals(destination)) {
-            ++count;
-         }
-      }
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), 
+         new IntFunction<Long>() {
+            @Override public Long apply(int year) {
+               FlightIndex index = repository.getFlightIndex(year);
+               int[] rows = FlightIndex.intersection(index.getOriginRows(origin), 
+                                                     index.getDestinationRows(destination));
+               long total = 0;
+               for(int row : rows) {
+                  if(index.notCancelled(row) && index.notDiverted(row)) {
+                     ++total;
+                  }
+               }
+               return total;
+            }
+         }, COUNT_ADDER);
 
       return builder.addRow(origin.getName().trim(), 
                             origin.getIATA(), 
@@ -119,231 +172,382 @@ public class IteratorFlightReports implements FlightReports {
    }
 
    public ResultSet reportTopFlightsByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
           new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                 .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Airport>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public Airport getKey(Flight source) {
-               return source.getOrigin();
-            }
-            @Override public void forEach(Entry<Airport, Long> entry) {
-              builder.addRow(entry.getKey().getIATA(), entry.getValue());
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               IntKeyAggregator partial = new IntKeyAggregator(table.getAirportCount());
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row)) {
+                     partial.add(table.getOriginCode(row));
+                  }
+               }
+               return partial;
             }
-         }
-      );
+         }, INT_KEY_MERGER);
+      for(int code : aggregator.getKeysByCount(true, limit)) {
+         builder.addRow(repository.getAirportByCode(code).getIATA(), 
+                        aggregator.getCount(code));
+      }
 
       return builder.build();
    }
 
    public ResultSet reportTopDestinationsFromOrigin(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Airport>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled() && 
-                      source.getOrigin().equals(origin);
-            }
-            @Override public Airport getKey(Flight source) {
-               return source.getDestination();
-            }
-            @Override public void forEach(Entry<Airport, Long> entry) {
-               builder.addRow(entry.getKey().getIATA(), entry.getValue());
+      final Repository repository = context.getRepository();
+      Map<Airport, Long> totals = repository.reduceYears(context.getYears(), 
+         new IntFunction<Map<Airport, Long>>() {
+            @Override public Map<Airport, Long> apply(int year) {
+               FlightIndex index = repository.getFlightIndex(year);
+               int[] rows = index.getOriginRows(origin);
+               Map<Airport, Long> partial = new HashMap<>();
+               for(Airport destination : index.getDestinations()) {
+                  long count = 0;
+                  for(int row : FlightIndex.intersection(rows, index.getDestinationRows(destination))) {
+                     if(index.notCancelled(row)) {
+                        ++count;
+                     }
+                  }
+                  if(count > 0) {
+                     partial.put(destination, count);
+                  }
+               }
+               return partial;
+            }
+         }, 
+         new BinaryOperator<Map<Airport, Long>>() {
+            @Override public Map<Airport, Long> apply(Map<Airport, Long> totals1, 
+               Map<Airport, Long> totals2) {
+               for(Entry<Airport, Long> entry : totals2.entrySet()) {
+                  Long count = totals1.get(entry.getKey());
+                  totals1.put(entry.getKey(), 
+                              count == null ? entry.getValue() : count + entry.getValue());
+               }
+               return totals1;
             }
-         }
-      );
+         });
+      List<Entry<Airport, Long>> entries = new ArrayList<>(totals.entrySet());
+      entries.sort(comparingByValue(reverseOrder()));
+      for(Entry<Airport, Long> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+         builder.addRow(entry.getKey().getIATA(), entry.getValue());
+      }
 
       return builder.build();
    }
 
    public ResultSet reportMostPopularRoutes(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Route>() {
-            @Override public boolean filter(Flight source) {
-               return true;
-            }
-            @Override public Route getKey(Flight source) {
-               return source.getRoute();
-            }
-            @Override public void forEach(Entry<Route, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      LongKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<LongKeyAggregator>() {
+            @Override public LongKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               LongKeyAggregator partial = new LongKeyAggregator();
+               for(int row = 0; row < table.size(); row++) {
+                  int origin = table.getOriginCode(row);
+                  int destination = table.getDestinationCode(row);
+                  partial.add(Route.key(origin, destination));
+               }
+               return partial;
             }
-         }
-      );
+         }, LONG_KEY_MERGER);
+      for(long key : aggregator.getKeysByCount(true, limit)) {
+         builder.addRow(repository.getRoute(key), 
+                        aggregator.getCount(key));
+      }
 
       return builder.build();
    }
 
    public ResultSet reportWorstAverageDepartureDelayByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
-                                  .addColumn("Delay", Types.FLOAT);
-
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new MapAccumulator<Flight, Airport, AverageValue>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public Airport getKey(Flight source) {
-               return source.getOrigin();
-            }
-            @Override public AverageValue initializeValue(Flight source) {
-               return new AverageValue(source.getDepartureDelay());
-            }
-            @Override public AverageValue updateValue(Flight source, AverageValue value) {
-               return value.add(source.getDepartureDelay());
-            }
-            @Override public void forEach(Entry<Airport, AverageValue> entry) {
-               builder.addRow(entry.getKey().getIATA(), 
-                              entry.getValue().getAverage());
-            }
-         }
-      );
+                                  .addColumn("Delay", Types.FLOAT)
+                                  .addColumn("P50", Types.INTEGER)
+                                  .addColumn("P90", Types.INTEGER)
+                                  .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      DelayHistograms histograms = repository.reduceYears(context.getYears(), 
+         new IntFunction<DelayHistograms>() {
+            @Override public DelayHistograms apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               DelayHistograms partial = new DelayHistograms();
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row)) {
+                     partial.add(table.getOriginCode(row), table.getDepartureDelay(row));
+                  }
+               }
+               return partial;
+            }
+         }, HISTOGRAM_MERGER);
+      for(long code : histograms.getKeysByAverage(true, limit)) {
+         DelayHistogram histogram = histograms.get(code);
+         builder.addRow(repository.getAirportByCode((int) code).getIATA(), 
+                        histogram.getAverage(),
+                        histogram.getPercentile(50),
+                        histogram.getPercentile(90),
+                        histogram.getPercentile(99));
+      }
 
       return builder.build();
    }
 
    public ResultSet reportWorstAverageArrivalDelayByDestination(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Destination", Types.VARCHAR)
-                                  .addColumn("Delay", Types.FLOAT);
+                                  .addColumn("Delay", Types.FLOAT)
+                                  .addColumn("P50", Types.INTEGER)
+                                  .addColumn("P90", Types.INTEGER)
+                                  .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      DelayHistograms histograms = repository.reduceYears(context.getYears(), 
+         new IntFunction<DelayHistograms>() {
+            @Override public DelayHistograms apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               DelayHistograms partial = new DelayHistograms();
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row) && table.notDiverted(row)) {
+                     partial.add(table.getDestinationCode(row), table.getArrivalDelay(row));
+                  }
+               }
+               return partial;
+            }
+         }, HISTOGRAM_MERGER);
+      for(long code : histograms.getKeysByAverage(true, limit)) {
+         DelayHistogram histogram = histograms.get(code);
+         builder.addRow(repository.getAirportByCode((int) code).getIATA(), 
+                        histogram.getAverage(),
+                        histogram.getPercentile(50),
+                        histogram.getPercentile(90),
+                        histogram.getPercentile(99));
+      }
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new MapAccumulator<Flight, Airport, AverageValue>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public Airport getKey(Flight source) {
-               return source.getDestination();
-            }
-            @Override public AverageValue initializeValue(Flight source) {
-               return new AverageValue(source.getArrivalDelay());
-            }
-            @Override public AverageValue updateValue(Flight source, AverageValue value) {
-               return value.add(source.getArrivalDelay());
-            }
-            @Override public void forEach(Entry<Airport, AverageValue> entry) {
-               builder.addRow(entry.getKey().getIATA(), 
-                              entry.getValue().getAverage());
+      return builder.build();
+   }
+
+   public ResultSet reportWorstDepartureDelayByRoute(ReportContext context) {
+      final int limit = context.getLimit();
+      final ResultSetBuilder builder = 
+            new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
+                                  .addColumn("TotalFlights", Types.INTEGER)
+                                  .addColumn("Delay", Types.FLOAT)
+                                  .addColumn("P50", Types.INTEGER)
+                                  .addColumn("P90", Types.INTEGER)
+                                  .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      DelayHistograms histograms = repository.reduceYears(context.getYears(), 
+         new IntFunction<DelayHistograms>() {
+            @Override public DelayHistograms apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               DelayHistograms partial = new DelayHistograms();
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row)) {
+                     int origin = table.getOriginCode(row);
+                     int destination = table.getDestinationCode(row);
+                     partial.add(Route.key(origin, destination), 
+                                 table.getDepartureDelay(row));
+                  }
+               }
+               return partial;
+            }
+         }, HISTOGRAM_MERGER);
+      for(long key : histograms.getKeysByPercentile(90, true, limit)) {
+         DelayHistogram histogram = histograms.get(key);
+         builder.addRow(repository.getRoute(key),
+                        histogram.getCount(),
+                        histogram.getAverage(),
+                        histogram.getPercentile(50),
+                        histogram.getPercentile(90),
+                        histogram.getPercentile(99));
+      }
+
+      return builder.build();
+   }
+
+   public ResultSet reportMostCircuitousRoutes(ReportContext context) {
+      final int limit = context.getLimit();
+      final ResultSetBuilder builder = 
+            new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
+                                  .addColumn("TotalFlights", Types.INTEGER)
+                                  .addColumn("Distance", Types.FLOAT)
+                                  .addColumn("GreatCircle", Types.FLOAT)
+                                  .addColumn("Excess", Types.FLOAT);
+
+      final Repository repository = context.getRepository();
+      LongKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<LongKeyAggregator>() {
+            @Override public LongKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               LongKeyAggregator partial = new LongKeyAggregator();
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row) && table.notDiverted(row)) {
+                     int origin = table.getOriginCode(row);
+                     int destination = table.getDestinationCode(row);
+                     partial.add(Route.key(origin, destination), 
+                                 table.getDistance(row));
+                  }
+               }
+               return partial;
             }
+         }, LONG_KEY_MERGER);
+
+      // the great circle distance is looked up once per route
+      final long[] keys = aggregator.getKeys();
+      final double[] greatCircle = new double[keys.length];
+      final double[] excess = new double[keys.length];
+      TopKSelector<Integer> routes = new TopKSelector<>(new Comparator<Integer>() {
+         @Override public int compare(Integer i1, Integer i2) {
+            return Double.compare(excess[i2], excess[i1]);
          }
-      );
+      }, limit);
+      for(int i = 0; i < keys.length; i++) {
+         greatCircle[i] = repository.getRouteDistance(keys[i]);
+         if(!Double.isNaN(greatCircle[i])) {
+            excess[i] = aggregator.getAverage(keys[i]) - greatCircle[i];
+            routes.add(i);
+         }
+      }
+      for(int i : routes.toList()) {
+         builder.addRow(repository.getRoute(keys[i]), 
+                        aggregator.getCount(keys[i]),
+                        aggregator.getAverage(keys[i]),
+                        greatCircle[i],
+                        excess[i]);
+      }
 
       return builder.build();
    }
 
    public ResultSet reportMostCancelledFlightsByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Airport>() {
-            @Override public boolean filter(Flight source) {
-               return source.cancelled();
-            }
-            @Override public Airport getKey(Flight source) {
-               return source.getOrigin();
-            }
-            @Override public void forEach(Entry<Airport, Long> entry) {
-               builder.addRow(entry.getKey().getIATA(), entry.getValue());
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               IntKeyAggregator partial = new IntKeyAggregator(table.getAirportCount());
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.cancelled(row)) {
+                     partial.add(table.getOriginCode(row));
+                  }
+               }
+               return partial;
             }
-         }
-      );
+         }, INT_KEY_MERGER);
+      for(int code : aggregator.getKeysByCount(true, limit)) {
+         builder.addRow(repository.getAirportByCode(code).getIATA(), 
+                        aggregator.getCount(code));
+      }
 
       return builder.build();
    }
 
    public ResultSet reportTotalFlightsByOriginState(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("State", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, String>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public String getKey(Flight source) {
-               return source.getOrigin().getState();
-            }
-            @Override public void forEach(Entry<String, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               IntKeyAggregator partial = new IntKeyAggregator(table.getAirportCount());
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row)) {
+                     partial.add(table.getOriginCode(row));
+                  }
+               }
+               return partial;
             }
-         }
-      );
+         }, INT_KEY_MERGER);
+      addRowsByState(builder, repository, aggregator, limit);
 
       return builder.build();
    }
 
    public ResultSet reportTotalFlightsByDestinationState(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("State", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, String>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public String getKey(Flight source) {
-               return source.getDestination().getState();
-            }
-            @Override public void forEach(Entry<String, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               IntKeyAggregator partial = new IntKeyAggregator(table.getAirportCount());
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row) && table.notDiverted(row)) {
+                     partial.add(table.getDestinationCode(row));
+                  }
+               }
+               return partial;
             }
-         }
-      );
+         }, INT_KEY_MERGER);
+      addRowsByState(builder, repository, aggregator, limit);
 
       return builder.build();
    }
 
+   /**
+    * Folds counts by airport code into counts by the airport's state and
+    * adds the states with the most flights.
+    */
+   private void addRowsByState(ResultSetBuilder builder, Repository repository, 
+      IntKeyAggregator aggregator, int limit) {
+      Map<String, Long> totals = new HashMap<>();
+      for(int code : aggregator.getKeys()) {
+         String state = repository.getAirportByCode(code).getState();
+         Long total = totals.get(state);
+         totals.put(state, (total == null ? 0 : total) + aggregator.getCount(code));
+      }
+      TopKSelector<Entry<String, Long>> entries = 
+         new TopKSelector<>(comparingByValue(reverseOrder()), limit);
+      for(Entry<String, Long> entry : totals.entrySet()) {
+         entries.add(entry);
+      }
+      for(Entry<String, Long> entry : entries.toList()) {
+         builder.addRow(entry.getKey(), entry.getValue());
+      }
+   }
+
    public ResultSet reportLongestFlights(ReportContext context) {
-      return byDistance(context, FLIGHT_DISTANCE_COMPARATOR.reversed());
+      return byDistance(context, true);
    }
 
    public ResultSet reportShortestFlights(ReportContext context) {
-      return byDistance(context, FLIGHT_DISTANCE_COMPARATOR);
+      return byDistance(context, false);
    }
 
-   private ResultSet byDistance(ReportContext context, Comparator<Flight> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDistance(ReportContext context, final boolean longest) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("FlightNumber", Types.VARCHAR)
@@ -353,267 +557,333 @@ public class IteratorFlightReports implements FlightReports {
                                   .addColumn("Destination", Types.VARCHAR)
                                   .addColumn("Distance", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      List<Flight> flights = new ArrayList<>();
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.notCancelled() && flight.notDiverted()) {
-            flights.add(flight);
-         }
-      }
-      Collections.sort(flights, comparator);
-      int count = 0;
-      for(Flight flight : flights) {
-         builder.addRow(flight.getFlightNumber(),
-                        flight.getDate(),
-                        flight.getCarrier().getCode(),
-                        flight.getOrigin().getIATA(),
-                        flight.getDestination().getIATA(),
-                        flight.getDistance());
-         if(++count >= limit) {
-            break;
-         }         
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> flights = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               final FlightTable table = repository.getFlightTable(year);
+               Comparator<Integer> comparator = new Comparator<Integer>() {
+                  @Override public int compare(Integer row1, Integer row2) {
+                     return table.getDistance(row1) - table.getDistance(row2);
+                  }
+               };
+               TopKSelector<Integer> rows = 
+                  new TopKSelector<>(longest ? comparator.reversed() : comparator, limit);
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row) && table.notDiverted(row)) {
+                     rows.add(row);
+                  }
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(5, longest), limit);
+               for(int row : rows.toList()) {
+                  selector.add(new Object[] { table.getFlightNumber(row),
+                                              table.getDate(row),
+                                              table.getCarrier(row).getCode(),
+                                              table.getOrigin(row).getIATA(),
+                                              table.getDestination(row).getIATA(),
+                                              table.getDistance(row) });
+               }
+               return selector;
+            }
+         }, ROW_MERGER);
+      for(Object[] values : flights.toList()) {
+         builder.addRow(values);
       }
 
       return builder.build();
    }
 
    public ResultSet reportTotalFlightsByDistanceRange(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Range", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByKey(), limit, 
-         new MapAccumulator<Flight, FlightDistanceRange, Long>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled() && source.notDiverted();
-            }
-            @Override public FlightDistanceRange getKey(Flight source) {
-               int distance = source.getDistance();
-               for(FlightDistanceRange range : DISTANCE_RANGES) {
-                  if(range.contains(distance)) {
-                     return range;
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightTable table = repository.getFlightTable(year);
+               IntKeyAggregator partial = new IntKeyAggregator(DISTANCE_RANGES.size());
+               for(int row = 0; row < table.size(); row++) {
+                  if(table.notCancelled(row) && table.notDiverted(row)) {
+                     partial.add(FlightDistanceRange.indexOf(DISTANCE_RANGES, 
+                                                                table.getDistance(row)));
                   }
                }
-               throw new IllegalStateException("No range for distance of " + distance);
-            }
-            @Override public Long initializeValue(Flight source) {
-               return Long.valueOf(1);
-            }
-            @Override public Long updateValue(Flight source, Long value) {
-               return Long.valueOf(value.longValue() + 1);
-            }
-            @Override public void forEach(Entry<FlightDistanceRange, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+               return partial;
             }
+         }, INT_KEY_MERGER);
+      // the ranges are listed in ascending order
+      int count = 0;
+      for(int index : aggregator.getKeys()) {
+         builder.addRow(DISTANCE_RANGES.get(index), aggregator.getCount(index));
+         if(++count >= limit) {
+            break;
          }
-      );
+      }
 
       return builder.build();
    }
 
    public ResultSet reportDaysWithLeastCancellations(ReportContext context) {
-      return byDaysWithCancellations(context, comparingByValue());
+      return byDaysWithCancellations(context, false);
    }
 
    public ResultSet reportDaysWithMostCancellations(ReportContext context) {
-      return byDaysWithCancellations(context, comparingByValue(reverseOrder()));
+      return byDaysWithCancellations(context, true);
    }
 
-   private ResultSet byDaysWithCancellations(ReportContext context, 
-      Comparator<Entry<ChronoLocalDate, Long>> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDaysWithCancellations(ReportContext context, final boolean descending) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Date", Types.DATE)
                                   .addColumn("TotalCancellations", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparator, limit, 
-         new CountingAccumulator<Flight, ChronoLocalDate>() {
-            @Override public boolean filter(Flight source) {
-               return source.cancelled();
-            }
-            @Override public ChronoLocalDate getKey(Flight source) {
-               return source.getDate();
-            }
-            @Override public void forEach(Entry<ChronoLocalDate, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> rows = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               int days = Year.of(year).length();
+               IntKeyAggregator aggregator = new IntKeyAggregator(DAY_OF_YEAR_KEYS);
+               for(int day = 1; day <= days; day++) {
+                  aggregator.add(day, cube.getDayCancelled(day), 0);
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(1, descending), limit);
+               for(int day : aggregator.getKeysByCount(descending, limit)) {
+                  selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                              aggregator.getCount(day) });
+               }
+               return selector;
             }
-         }
-      );
+         }, ROW_MERGER);
+      for(Object[] values : rows.toList()) {
+         builder.addRow(values);
+      }
 
       return builder.build();
    }
 
    public ResultSet reportTotalMonthlyFlights(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("YearMonth", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByKey(), limit, 
-         new CountingAccumulator<Flight, YearMonth>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public YearMonth getKey(Flight source) {
-               return source.getYearMonth();
-            }
-            @Override public void forEach(Entry<YearMonth, Long> entry) {
-               builder.addRow(YEAR_MONTH_FORMAT.format(entry.getKey()), 
-                              entry.getValue());
+      final Repository repository = context.getRepository();
+      LongKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<LongKeyAggregator>() {
+            @Override public LongKeyAggregator apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               int days = Year.of(year).length();
+               LongKeyAggregator partial = new LongKeyAggregator();
+               for(int day = 1; day <= days; day++) {
+                  int flights = cube.getDayFlights(day) - cube.getDayCancelled(day);
+                  if(flights > 0) {
+                     partial.add(pack(year, LocalDate.ofYearDay(year, day).getMonthValue()), 
+                                 flights, 0);
+                  }
+               }
+               return partial;
             }
+         }, LONG_KEY_MERGER);
+      // keys are ordered by year and then by month
+      int count = 0;
+      for(long key : aggregator.getKeys()) {
+         builder.addRow(YEAR_MONTH_FORMAT.format(YearMonth.of(high(key), low(key))), 
+                        aggregator.getCount(key));
+         if(++count >= limit) {
+            break;
          }
-      );
+      }
 
       return builder.build();
    }
 
    public ResultSet reportTotalDailyFlights(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Date", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByKey(), limit, 
-         new CountingAccumulator<Flight, ChronoLocalDate>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public ChronoLocalDate getKey(Flight source) {
-               return source.getDate();
-            }
-            @Override public void forEach(Entry<ChronoLocalDate, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> rows = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               int days = Year.of(year).length();
+               IntKeyAggregator aggregator = new IntKeyAggregator(DAY_OF_YEAR_KEYS);
+               for(int day = 1; day <= days; day++) {
+                  aggregator.add(day, cube.getDayFlights(day) - cube.getDayCancelled(day), 0);
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(0, false), limit);
+               for(int day : aggregator.getKeys()) {
+                  selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                              aggregator.getCount(day) });
+               }
+               return selector;
             }
-         }
-      );
+         }, ROW_MERGER);
+      for(Object[] values : rows.toList()) {
+         builder.addRow(values);
+      }
 
       return builder.build();
    }
 
    public ResultSet reportTotalFlightsByDayOfWeek(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("DayOfWeek", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByKey(), limit, 
-         new CountingAccumulator<Flight, DayOfWeek>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public DayOfWeek getKey(Flight source) {
-               return source.getDate().getDayOfWeek();
-            }
-            @Override public void forEach(Entry<DayOfWeek, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      IntKeyAggregator aggregator = repository.reduceYears(context.getYears(), 
+         new IntFunction<IntKeyAggregator>() {
+            @Override public IntKeyAggregator apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               int days = Year.of(year).length();
+               IntKeyAggregator partial = new IntKeyAggregator(DAY_OF_WEEK_KEYS);
+               for(int day = 1; day <= days; day++) {
+                  partial.add(LocalDate.ofYearDay(year, day).getDayOfWeek().getValue(), 
+                                 cube.getDayFlights(day) - cube.getDayCancelled(day), 0);
+               }
+               return partial;
             }
+         }, INT_KEY_MERGER);
+      int count = 0;
+      for(int day : aggregator.getKeys()) {
+         builder.addRow(DayOfWeek.of(day), aggregator.getCount(day));
+         if(++count >= limit) {
+            break;
          }
-      );
+      }
 
       return builder.build();
    }
 
    public ResultSet reportMostFlightsByDay(ReportContext context) {
-      return byDay(context, comparingByValue(reverseOrder()));
+      return byDay(context, true);
    }
 
    public ResultSet reportLeastFlightsByDay(ReportContext context) {
-      return byDay(context, comparingByValue(reverseOrder()));
+      return byDay(context, false);
    }
 
-   private ResultSet byDay(ReportContext context, 
-      Comparator<Entry<ChronoLocalDate, Long>> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDay(ReportContext context, final boolean descending) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Date", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparator, limit, 
-         new CountingAccumulator<Flight, ChronoLocalDate>() {
-            @Override public boolean filter(Flight source) {
-               return source.notCancelled();
-            }
-            @Override public ChronoLocalDate getKey(Flight source) {
-               return source.getDate();
-            }
-            @Override public void forEach(Entry<ChronoLocalDate, Long> entry) {
-               builder.addRow(entry.getKey(), entry.getValue());
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> rows = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               int days = Year.of(year).length();
+               IntKeyAggregator aggregator = new IntKeyAggregator(DAY_OF_YEAR_KEYS);
+               for(int day = 1; day <= days; day++) {
+                  aggregator.add(day, cube.getDayFlights(day) - cube.getDayCancelled(day), 0);
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(1, descending), limit);
+               for(int day : aggregator.getKeysByCount(descending, limit)) {
+                  selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                              aggregator.getCount(day) });
+               }
+               return selector;
             }
-         }
-      );
+         }, ROW_MERGER);
+      for(Object[] values : rows.toList()) {
+         builder.addRow(values);
+      }
 
       return builder.build();
    }
 
    public ResultSet reportMostFlightsByOriginByDay(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                   .addColumn("Date", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Pair<Airport, LocalDate>>() {
-            @Override public boolean filter(Flight flight) {
-               return flight.notCancelled();
-            }
-            @Override public Pair<Airport, LocalDate> getKey(Flight flight) {
-               return Pair.of(flight.getOrigin(), flight.getDate());
-            }
-            @Override public void forEach(Entry<Pair<Airport, LocalDate>, Long> entry) {
-               Pair<Airport, LocalDate> key = entry.getKey();
-               builder.addRow(key.getLeft().getName(), 
-                              key.getRight(), 
-                              entry.getValue());
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> rows = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               LongKeyAggregator aggregator = new LongKeyAggregator();
+               for(int cell = 0; cell < cube.size(); cell++) {
+                  int flights = cube.getFlights(cell) - cube.getCancelled(cell);
+                  if(flights > 0) {
+                     aggregator.add(pack(cube.getOriginCode(cell), cube.getDayOfYear(cell)), flights, 0);
+                  }
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(2, true), limit);
+               for(long key : aggregator.getKeysByCount(true, limit)) {
+                  selector.add(new Object[] { cube.getAirportByCode(high(key)).getName(), 
+                                              LocalDate.ofYearDay(year, low(key)), 
+                                              aggregator.getCount(key) });
+               }
+               return selector;
             }
-         }
-      );
+         }, ROW_MERGER);
+      for(Object[] values : rows.toList()) {
+         builder.addRow(values);
+      }
 
       return builder.build();
    }
 
    public ResultSet reportMostFlightsByCarrierByDay(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
             new ResultSetBuilder().addColumn("Carrier", Types.VARCHAR)
                                   .addColumn("Date", Types.VARCHAR)
                                   .addColumn("TotalFlights", Types.INTEGER);
 
-      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
-      accumulate(iterator, comparingByValue(reverseOrder()), limit, 
-         new CountingAccumulator<Flight, Pair<Carrier, LocalDate>>() {
-            @Override public boolean filter(Flight flight) {
-               return flight.notCancelled();
-            }
-            @Override public Pair<Carrier, LocalDate> getKey(Flight flight) {
-               return Pair.of(flight.getCarrier(), flight.getDate());
-            }
-            @Override public void forEach(Entry<Pair<Carrier, LocalDate>, Long> entry) {
-               Pair<Carrier, LocalDate> key = entry.getKey();
-               builder.addRow(key.getLeft().getName(), 
-                              key.getRight(), 
-                              entry.getValue());
+      final Repository repository = context.getRepository();
+      TopKSelector<Object[]> rows = repository.reduceYears(context.getYears(), 
+         new IntFunction<TopKSelector<Object[]>>() {
+            @Override public TopKSelector<Object[]> apply(int year) {
+               FlightCube cube = repository.getFlightCube(year);
+               LongKeyAggregator aggregator = new LongKeyAggregator();
+               for(int cell = 0; cell < cube.size(); cell++) {
+                  int flights = cube.getFlights(cell) - cube.getCancelled(cell);
+                  if(flights > 0) {
+                     aggregator.add(pack(cube.getCarrierCode(cell), cube.getDayOfYear(cell)), flights, 0);
+                  }
+               }
+               TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(2, true), limit);
+               for(long key : aggregator.getKeysByCount(true, limit)) {
+                  selector.add(new Object[] { cube.getCarrierByCode(high(key)).getName(), 
+                                              LocalDate.ofYearDay(year, low(key)), 
+                                              aggregator.getCount(key) });
+               }
+               return selector;
             }
-         }
-      );
+         }, ROW_MERGER);
+      for(Object[] values : rows.toList()) {
+         builder.addRow(values);
+      }
 
       return builder.build();
    }
-}
\ No newline at end of file
+
+   /**
+    * Orders report rows by the value in a column. Reports over several
+    * years pick their rows from each year on its own and then pick among
+    * those rows with this order.
+    */
+   private static Comparator<Object[]> byColumn(final int column, boolean descending) {
+      Comparator<Object[]> comparator = new Comparator<Object[]>() {
+         @SuppressWarnings("unchecked")
+         @Override public int compare(Object[] values1, Object[] values2) {
+            return ((Comparable<Object>) values1[column]).compareTo(values2[column]);
+         }
+      };
+      return descending ? comparator.reversed() : comparator;
+   }
+}
@@ -1,17 +1,26 @@
 package airtraffic.reports.iterator;
 
+import static airtraffic.metrics.FlightBasedMetrics.highestTotalFlightsComparator;
+import static org.apache.commons.lang3.StringUtils.repeat;
+
 import java.util.Iterator;
+import java.util.function.Supplier;
 
 import org.beryx.textio.TextTerminal;
 
 import airtraffic.Airport;
 import airtraffic.Carrier;
 import airtraffic.Flight;
+import airtraffic.FlightIndex;
 import airtraffic.ReportContext;
+import airtraffic.Repository;
 import airtraffic.annotations.IteratorStyle;
 import airtraffic.metrics.AirportMetrics;
 import airtraffic.metrics.CarrierMetrics;
+import airtraffic.metrics.LiveMetrics;
+import airtraffic.reports.LiveRenderer;
 import airtraffic.reports.LiveReports;
+import airtraffic.reports.TopKSelector;
 
 
 /**
@@ -30,21 +39,18 @@ public class IteratorLiveReports implements LiveReports {
 
       TextTerminal<?> terminal = context.getTerminal();
       final AirportMetrics metrics = new AirportMetrics(airport);
-      Iterator<Flight> iterator = context.getRepository()
-                                         .getFlightIterator(year);
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.getOrigin().equals(airport) || 
-            flight.getDestination().equals(airport)) {
-            metrics.addFlight(flight);
-            terminal.printf("%,10d\t%,10d\t%,10d\t%,10d\t  %,10d", 
-                            metrics.getTotalFlights(), 
-                            metrics.getTotalCancelled(), 
-                            metrics.getTotalDiverted(), 
-                            metrics.getTotalOrigins(), 
-                            metrics.getTotalDestinations());
-            terminal.moveToLineStart();
+      Repository repository = context.getRepository();
+      FlightIndex index = repository.getFlightIndex(year);
+      int[] rows = FlightIndex.union(index.getOriginRows(airport), 
+                                     index.getDestinationRows(airport));
+      Iterator<Flight> iterator = repository.getFlightIterator(year, rows);
+      LiveRenderer renderer = new LiveRenderer(terminal, airportFrame(metrics));
+      try {
+         while(iterator.hasNext()) {
+            metrics.addFlight(iterator.next());
          }
+      } finally {
+         renderer.close();
       }
 
       terminal.println();
@@ -56,21 +62,154 @@ public class IteratorLiveReports implements LiveReports {
 
       TextTerminal<?> terminal = context.getTerminal();
       final CarrierMetrics metrics = new CarrierMetrics(carrier);
-      Iterator<Flight> iterator = context.getRepository()
-                                         .getFlightIterator(year);
-      while(iterator.hasNext()) {
-         Flight flight = iterator.next();
-         if(flight.getCarrier().equals(carrier)) {
-            metrics.addFlight(flight);
-            terminal.printf("%,10d\t%,10d\t%,10d\t%,10d", 
-                            metrics.getTotalFlights(), 
-                            metrics.getTotalCancelled(), 
-                            metrics.getTotalDiverted(), 
-                            metrics.getAirports().size());
-            terminal.moveToLineStart();
+      Repository repository = context.getRepository();
+      int[] rows = repository.getFlightIndex(year).getCarrierRows(carrier);
+      Iterator<Flight> iterator = repository.getFlightIterator(year, rows);
+      LiveRenderer renderer = new LiveRenderer(terminal, carrierFrame(metrics));
+      try {
+         while(iterator.hasNext()) {
+            metrics.addFlight(iterator.next());
+         }
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+   }
+
+   @Override
+   public void reportAllMetrics(ReportContext context) {
+      final int year = context.getYear();
+      final int limit = context.getLimit();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final LiveMetrics metrics = new LiveMetrics();
+      Iterator<Flight> iterator = context.getRepository().getFlightIterator(year);
+      Supplier<String> frame = new Supplier<String>() {
+         @Override public String get() {
+            return String.format("%,10d\t%,10d\t%,10d\t%,10d\t%,10d", 
+                                 metrics.getTotalFlights(), 
+                                 metrics.getTotalCancelled(), 
+                                 metrics.getTotalDiverted(), 
+                                 metrics.getTotalAirports(), 
+                                 metrics.getTotalCarriers());
+         }
+      };
+      LiveRenderer renderer = new LiveRenderer(terminal, frame);
+      try {
+         while(iterator.hasNext()) {
+            metrics.addFlight(iterator.next());
          }
+      } finally {
+         renderer.close();
       }
 
       terminal.println();
+      terminal.println("\nBusiest airports\n");
+      terminal.println("Airport\t     Total\t Cancelled\t  Diverted\t   Origins\tDestinations");
+      terminal.println(repeat("-", 81));
+      TopKSelector<AirportMetrics> airports = 
+         new TopKSelector<>(highestTotalFlightsComparator(), limit);
+      for(AirportMetrics m : metrics.getAirportMetrics()) {
+         airports.add(m);
+      }
+      for(AirportMetrics m : airports.toList()) {
+         terminal.printf("%-7s\t%,10d\t%,10d\t%,10d\t%,10d\t  %,10d\n", 
+                         m.getSubject().getIATA(), 
+                         m.getTotalFlights(), 
+                         m.getTotalCancelled(), 
+                         m.getTotalDiverted(), 
+                         m.getTotalOrigins(), 
+                         m.getTotalDestinations());
+      }
+
+      terminal.println("\nBusiest carriers\n");
+      terminal.println("Carrier\t     Total\t Cancelled\t  Diverted\t  Airports");
+      terminal.println(repeat("-", 63));
+      TopKSelector<CarrierMetrics> carriers = 
+         new TopKSelector<>(highestTotalFlightsComparator(), limit);
+      for(CarrierMetrics m : metrics.getCarrierMetrics()) {
+         carriers.add(m);
+      }
+      for(CarrierMetrics m : carriers.toList()) {
+         terminal.printf("%-7s\t%,10d\t%,10d\t%,10d\t%,10d\n", 
+                         m.getSubject().getCode(), 
+                         m.getTotalFlights(), 
+                         m.getTotalCancelled(), 
+                         m.getTotalDiverted(), 
+                         m.getTotalAirports());
+      }
+   }
+
+   @Override
+   public void followAirportMetrics(ReportContext context) {
+      final Airport airport = context.getAirport();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final AirportMetrics metrics = new AirportMetrics(airport);
+      Repository repository = context.getRepository();
+      Iterator<Flight> iterator = repository.getLiveFlightIterator(context.getDuration());
+      LiveRenderer renderer = new LiveRenderer(terminal, airportFrame(metrics));
+      try {
+         while(iterator.hasNext()) {
+            Flight flight = iterator.next();
+            if(flight.getOrigin().equals(airport) || 
+               flight.getDestination().equals(airport)) {
+               metrics.addFlight(flight);
+            }
+         }
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+   }
+
+   @Override
+   public void followCarrierMetrics(ReportContext context) {
+      final Carrier carrier = context.getCarrier();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final CarrierMetrics metrics = new CarrierMetrics(carrier);
+      Repository repository = context.getRepository();
+      Iterator<Flight> iterator = repository.getLiveFlightIterator(context.getDuration());
+      LiveRenderer renderer = new LiveRenderer(terminal, carrierFrame(metrics));
+      try {
+         while(iterator.hasNext()) {
+            Flight flight = iterator.next();
+            if(flight.getCarrier().equals(carrier)) {
+               metrics.addFlight(flight);
+            }
+         }
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+   }
+
+   private Supplier<String> airportFrame(final AirportMetrics metrics) {
+      return new Supplier<String>() {
+         @Override public String get() {
+            return String.format("%,10d\t%,10d\t%,10d\t%,10d\t  %,10d", 
+                                 metrics.getTotalFlights(), 
+                                 metrics.getTotalCancelled(), 
+                                 metrics.getTotalDiverted(), 
+                                 metrics.getTotalOrigins(), 
+                                 metrics.getTotalDestinations());
+         }
+      };
+   }
+
+   private Supplier<String> carrierFrame(final CarrierMetrics metrics) {
+      return new Supplier<String>() {
+         @Override public String get() {
+            return String.format("%,10d\t%,10d\t%,10d\t%,10d", 
+                                 metrics.getTotalFlights(), 
+                                 metrics.getTotalCancelled(), 
+                                 metrics.getTotalDiverted(), 
+                                 metrics.getTotalAirports());
+         }
+      };
    }
 }
\ No newline at end of file
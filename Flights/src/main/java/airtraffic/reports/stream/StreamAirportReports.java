@@ -1,7 +1,5 @@
 package airtraffic.reports.stream;
 
-import static airtraffic.GeoHelper.distanceFromReferenceComparator;
-import static airtraffic.GeoHelper.getDistance;
 import static airtraffic.GeoLocation.Units.MILES;
 import static airtraffic.metrics.AirportMetrics.accumulator;
 import static airtraffic.metrics.AirportMetrics.combiner;
@@ -59,14 +57,14 @@ public class StreamAirportReports implements AirportReports {
                                .addColumn("Distance", Types.VARCHAR);
 
       context.getRepository()
-             .getAirportStream()
-             .filter(airport -> getDistance(airport, loc, MILES) <= distance)
-             .sorted(distanceFromReferenceComparator(loc, MILES))
-             .forEach(airport -> builder.addRow(airport.getIATA(), 
-                                                airport.getName(), 
-                                                airport.getState(), 
-                                                airport.getCity(),
-                                                getDistance(airport, loc, MILES))
+             .getAirportIndex()
+             .withinDistance(loc, distance, MILES)
+             .stream()
+             .forEach(neighbor -> builder.addRow(neighbor.getAirport().getIATA(), 
+                                                 neighbor.getAirport().getName(), 
+                                                 neighbor.getAirport().getState(), 
+                                                 neighbor.getAirport().getCity(),
+                                                 neighbor.getDistance())
              );
 
       return builder.build();
@@ -80,10 +78,17 @@ public class StreamAirportReports implements AirportReports {
                                .addColumn("Name", Types.VARCHAR)
                                .addColumn("Total", Types.INTEGER)
                                .addColumn("CancellationRate", Types.DOUBLE)
-                               .addColumn("DiversionRate", Types.DOUBLE);
+                               .addColumn("DiversionRate", Types.DOUBLE)
+                               .addColumn("DepartureP50", Types.INTEGER)
+                               .addColumn("DepartureP90", Types.INTEGER)
+                               .addColumn("DepartureP99", Types.INTEGER)
+                               .addColumn("ArrivalP50", Types.INTEGER)
+                               .addColumn("ArrivalP90", Types.INTEGER)
+                               .addColumn("ArrivalP99", Types.INTEGER);
 
       context.getRepository()
              .getFlightStream(year)
+             .parallel()
              .collect(HashMap::new, accumulator(), combiner())
              .values()
              .stream()
@@ -94,7 +99,13 @@ public class StreamAirportReports implements AirportReports {
                                airport.getName(),
                                metrics.getTotalFlights(),
                                metrics.getCancellationRate(),
-                               metrics.getDiversionRate());
+                               metrics.getDiversionRate(),
+                               metrics.getDepartureDelays().getPercentile(50),
+                               metrics.getDepartureDelays().getPercentile(90),
+                               metrics.getDepartureDelays().getPercentile(99),
+                               metrics.getArrivalDelays().getPercentile(50),
+                               metrics.getArrivalDelays().getPercentile(90),
+                               metrics.getArrivalDelays().getPercentile(99));
              });
 
       return builder.build();
@@ -111,6 +122,7 @@ public class StreamAirportReports implements AirportReports {
 
       context.getRepository()
              .getFlightStream(year)
+             .parallel()
              .collect(HashMap::new, accumulator(), combiner())
              .values()
              .stream()
@@ -59,10 +59,17 @@ public class StreamCarrierReports implements CarrierReports {
                                .addColumn("TotalFlights", Types.INTEGER)
                                .addColumn("CancellationRate", Types.DOUBLE)
                                .addColumn("DiversionRate", Types.DOUBLE)
-                               .addColumn("TotalAirports", Types.INTEGER);
+                               .addColumn("TotalAirports", Types.INTEGER)
+                               .addColumn("DepartureP50", Types.INTEGER)
+                               .addColumn("DepartureP90", Types.INTEGER)
+                               .addColumn("DepartureP99", Types.INTEGER)
+                               .addColumn("ArrivalP50", Types.INTEGER)
+                               .addColumn("ArrivalP90", Types.INTEGER)
+                               .addColumn("ArrivalP99", Types.INTEGER);
 
       context.getRepository()
              .getFlightStream(year)
+             .parallel()
              .collect(HashMap::new, accumulator(), combiner())
              .values()
              .stream()
@@ -73,7 +80,13 @@ public class StreamCarrierReports implements CarrierReports {
                                metrics.getTotalFlights(),
                                metrics.getCancellationRate(),
                                metrics.getDiversionRate(),
-                               metrics.getAirports().size());
+                               metrics.getTotalAirports(),
+                               metrics.getDepartureDelays().getPercentile(50),
+                               metrics.getDepartureDelays().getPercentile(90),
+                               metrics.getDepartureDelays().getPercentile(99),
+                               metrics.getArrivalDelays().getPercentile(50),
+                               metrics.getArrivalDelays().getPercentile(90),
+                               metrics.getArrivalDelays().getPercentile(99));
              });
 
       return builder.build();
@@ -89,6 +102,7 @@ public class StreamCarrierReports implements CarrierReports {
 
       context.getRepository()
              .getFlightStream(year)
+             .parallel()
              .collect(HashMap::new, accumulator(), combiner())
              .values()
              .stream()
@@ -1,28 +1,42 @@
 package airtraffic.reports.stream;
 
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingDouble;
 import static java.util.Comparator.comparingInt;
 import static java.util.Comparator.reverseOrder;
-import static java.util.Map.Entry.comparingByKey;
 import static java.util.Map.Entry.comparingByValue;
-import static java.util.stream.Collectors.averagingDouble;
-import static java.util.stream.Collectors.counting;
+import static airtraffic.reports.LongKeyAggregator.high;
+import static airtraffic.reports.LongKeyAggregator.low;
+import static airtraffic.reports.LongKeyAggregator.pack;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
+import static java.util.stream.Collectors.toMap;
 import java.sql.ResultSet;
 import java.sql.Types;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.Map;
+import java.util.stream.IntStream;
 import airtraffic.Airport;
-import airtraffic.Carrier;
-import airtraffic.Flight;
+import airtraffic.FlightCube;
 import airtraffic.FlightDistanceRange;
+import airtraffic.FlightIndex;
+import airtraffic.FlightTable;
 import airtraffic.ReportContext;
+import airtraffic.Repository;
+import airtraffic.Route;
 import airtraffic.annotations.StreamStyle;
 import airtraffic.jdbc.ResultSetBuilder;
+import airtraffic.metrics.DelayHistogram;
+import airtraffic.reports.DelayHistograms;
 import airtraffic.reports.FlightReports;
+import airtraffic.reports.IntKeyAggregator;
+import airtraffic.reports.LongKeyAggregator;
+import airtraffic.reports.TopKSelector;
 
 /**
  * Implementation of flight reports using streams style that was introduced
@@ -32,6 +46,10 @@ import airtraffic.reports.FlightReports;
  */
 @StreamStyle
 public class StreamFlightReports implements FlightReports {
+   // day and day of week keys are one-based
+   private static final int DAY_OF_YEAR_KEYS = 367;
+   private static final int DAY_OF_WEEK_KEYS = 8;
+
    private static final List<FlightDistanceRange> DISTANCE_RANGES =
       Arrays.asList(FlightDistanceRange.between(   0,  100), 
                     FlightDistanceRange.between( 101,  250),
@@ -43,45 +61,43 @@ public class StreamFlightReports implements FlightReports {
 
    @Override
    public ResultSet reportTotalFlightsFromOrigin(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = context.getRepository()
-                          .getFlightStream(year)
-                          .parallel()
-                          .filter(flight -> flight.notCancelled() && 
-                                            flight.getOrigin().equals(origin))
-                          .count();
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), year -> {
+         final FlightIndex index = repository.getFlightIndex(year);
+         return IntStream.of(index.getOriginRows(origin))
+                         .filter(row -> index.notCancelled(row))
+                         .count();
+      }, Long::sum);
 
       return builder.addRow(origin.getName().trim(), count).build();
    }
 
    @Override
    public ResultSet reportTotalFlightsToDestination(ReportContext context) {
-      final int year = context.getYear();
       final Airport destination = context.getDestination();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Destination", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = context.getRepository()
-                          .getFlightStream(year)
-                          .parallel()
-                          .filter(flight -> flight.notCancelled() && 
-                                            flight.notDiverted() && 
-                                            flight.getDestination()
-                                                  .equals(destination))
-                          .count();
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), year -> {
+         final FlightIndex index = repository.getFlightIndex(year);
+         return IntStream.of(index.getDestinationRows(destination))
+                         .filter(row -> index.notCancelled(row) && 
+                                        index.notDiverted(row))
+                         .count();
+      }, Long::sum);
 
       return builder.addRow(destination.getName().trim(), count).build();
    }
 
    @Override
    public ResultSet reportTotalFlightsFromOriginToDestination(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final Airport destination = context.getDestination();
       final ResultSetBuilder builder = 
@@ -89,15 +105,16 @@ public class StreamFlightReports implements FlightReports {
                                .addColumn("Destination", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      long count = context.getRepository()
-                          .getFlightStream(year)
-                          .filter(flight -> flight.notCancelled() && 
-                                            flight.notDiverted() &&
-                                            flight.getOrigin()
-                                                  .equals(origin) &&
-                                            flight.getDestination()
-                                                  .equals(destination))
-                          .count();
+      final Repository repository = context.getRepository();
+      long count = repository.reduceYears(context.getYears(), year -> {
+         final FlightIndex index = repository.getFlightIndex(year);
+         final int[] rows = FlightIndex.intersection(index.getOriginRows(origin), 
+                                                     index.getDestinationRows(destination));
+         return IntStream.of(rows)
+                         .filter(row -> index.notCancelled(row) && 
+                                        index.notDiverted(row))
+                         .count();
+      }, Long::sum);
 
       return builder.addRow(origin.getName().trim(), 
                             origin.getIATA(), 
@@ -109,204 +126,358 @@ public class StreamFlightReports implements FlightReports {
 
    @Override
    public ResultSet reportTopFlightsByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(Flight::getOrigin, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> builder.addRow(entry.getKey().getIATA(), 
-                                                     entry.getValue()));
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row))
+                        .collect(() -> new IntKeyAggregator(table.getAirportCount()),
+                                 (a, row) -> a.add(table.getOriginCode(row)),
+                                 IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeysByCount(true, limit))
+            .forEachOrdered(code -> 
+               builder.addRow(repository.getAirportByCode(code).getIATA(), 
+                              aggregator.getCount(code))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTopDestinationsFromOrigin(ReportContext context) {
-      final int year = context.getYear();
       final Airport origin = context.getOrigin();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(f -> f.notCancelled() && f.getOrigin().equals(origin))
-             .collect(groupingBy(Flight::getDestination, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(e -> 
-                builder.addRow(e.getKey().getIATA(), e.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final Map<Airport, Long> totals = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightIndex index = repository.getFlightIndex(year);
+            final int[] rows = index.getOriginRows(origin);
+            return index.getDestinations()
+                        .stream()
+                        .collect(toMap(destination -> destination,
+                                       destination -> IntStream.of(FlightIndex.intersection(rows, index.getDestinationRows(destination)))
+                                                               .filter(row -> index.notCancelled(row))
+                                                               .count()));
+         }, (totals1, totals2) -> {
+            totals2.forEach((destination, count) -> totals1.merge(destination, count, Long::sum));
+            return totals1;
+         });
+
+      totals.entrySet()
+            .stream()
+            .filter(e -> e.getValue() > 0)
+            .sorted(comparingByValue(reverseOrder()))
+            .limit(limit)
+            .forEachOrdered(e -> builder.addRow(e.getKey().getIATA(), e.getValue()));
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportMostPopularRoutes(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .collect(groupingBy(Flight::getRoute, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final LongKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .collect(LongKeyAggregator::new,
+                                 (a, row) -> {
+                                    int origin = table.getOriginCode(row);
+                                    int destination = table.getDestinationCode(row);
+                                    a.add(Route.key(origin, destination));
+                                 },
+                                 LongKeyAggregator::merge);
+         }, LongKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeysByCount(true, limit))
+            .forEachOrdered(key -> 
+               builder.addRow(repository.getRoute(key), 
+                              aggregator.getCount(key))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportWorstAverageDepartureDelayByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
-                               .addColumn("Delay", Types.FLOAT);
-
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(f -> f.notCancelled())
-             .collect(groupingBy(Flight::getOrigin, 
-                                 averagingDouble(f -> f.getDepartureDelay())))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey().getIATA(), entry.getValue())
-             );
+                               .addColumn("Delay", Types.FLOAT)
+                               .addColumn("P50", Types.INTEGER)
+                               .addColumn("P90", Types.INTEGER)
+                               .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      final DelayHistograms histograms = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row))
+                        .collect(DelayHistograms::new,
+                                 (h, row) -> h.add(table.getOriginCode(row), 
+                                                   table.getDepartureDelay(row)),
+                                 DelayHistograms::merge);
+         }, DelayHistograms::merge);
+
+      Arrays.stream(histograms.getKeysByAverage(true, limit))
+            .forEachOrdered(code -> {
+               DelayHistogram histogram = histograms.get(code);
+               builder.addRow(repository.getAirportByCode((int) code).getIATA(), 
+                              histogram.getAverage(),
+                              histogram.getPercentile(50),
+                              histogram.getPercentile(90),
+                              histogram.getPercentile(99));
+            });
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportWorstAverageArrivalDelayByDestination(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Destination", Types.VARCHAR)
-                               .addColumn("Delay", Types.FLOAT);
-
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(f -> f.notCancelled() && f.notDiverted())
-             .collect(groupingBy(Flight::getDestination, 
-                                 averagingDouble(f -> f.getArrivalDelay())))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey().getIATA(), entry.getValue())
-             );
+                               .addColumn("Delay", Types.FLOAT)
+                               .addColumn("P50", Types.INTEGER)
+                               .addColumn("P90", Types.INTEGER)
+                               .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      final DelayHistograms histograms = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row) && table.notDiverted(row))
+                        .collect(DelayHistograms::new,
+                                 (h, row) -> h.add(table.getDestinationCode(row), 
+                                                   table.getArrivalDelay(row)),
+                                 DelayHistograms::merge);
+         }, DelayHistograms::merge);
+
+      Arrays.stream(histograms.getKeysByAverage(true, limit))
+            .forEachOrdered(code -> {
+               DelayHistogram histogram = histograms.get(code);
+               builder.addRow(repository.getAirportByCode((int) code).getIATA(), 
+                              histogram.getAverage(),
+                              histogram.getPercentile(50),
+                              histogram.getPercentile(90),
+                              histogram.getPercentile(99));
+            });
+
+      return builder.build();
+   }
+
+   @Override
+   public ResultSet reportWorstDepartureDelayByRoute(ReportContext context) {
+      final int limit = context.getLimit();
+      final ResultSetBuilder builder = 
+         new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
+                               .addColumn("TotalFlights", Types.INTEGER)
+                               .addColumn("Delay", Types.FLOAT)
+                               .addColumn("P50", Types.INTEGER)
+                               .addColumn("P90", Types.INTEGER)
+                               .addColumn("P99", Types.INTEGER);
+
+      final Repository repository = context.getRepository();
+      final DelayHistograms histograms = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row))
+                        .collect(DelayHistograms::new,
+                                 (h, row) -> {
+                                    int origin = table.getOriginCode(row);
+                                    int destination = table.getDestinationCode(row);
+                                    h.add(Route.key(origin, destination),
+                                          table.getDepartureDelay(row));
+                                 },
+                                 DelayHistograms::merge);
+         }, DelayHistograms::merge);
+
+      Arrays.stream(histograms.getKeysByPercentile(90, true, limit))
+            .forEachOrdered(key -> {
+               DelayHistogram histogram = histograms.get(key);
+               builder.addRow(repository.getRoute(key), 
+                              histogram.getCount(),
+                              histogram.getAverage(),
+                              histogram.getPercentile(50),
+                              histogram.getPercentile(90),
+                              histogram.getPercentile(99));
+            });
+
+      return builder.build();
+   }
+
+   @Override
+   public ResultSet reportMostCircuitousRoutes(ReportContext context) {
+      final int limit = context.getLimit();
+      final ResultSetBuilder builder = 
+         new ResultSetBuilder().addColumn("Route", Types.VARCHAR)
+                               .addColumn("TotalFlights", Types.INTEGER)
+                               .addColumn("Distance", Types.FLOAT)
+                               .addColumn("GreatCircle", Types.FLOAT)
+                               .addColumn("Excess", Types.FLOAT);
+
+      final Repository repository = context.getRepository();
+      final LongKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row) && table.notDiverted(row))
+                        .collect(LongKeyAggregator::new,
+                                 (a, row) -> {
+                                    int origin = table.getOriginCode(row);
+                                    int destination = table.getDestinationCode(row);
+                                    a.add(Route.key(origin, destination), 
+                                          table.getDistance(row));
+                                 },
+                                 LongKeyAggregator::merge);
+         }, LongKeyAggregator::merge);
+
+      // the great circle distance is looked up once per route
+      final long[] keys = aggregator.getKeys();
+      final double[] greatCircle = 
+         Arrays.stream(keys).mapToDouble(repository::getRouteDistance).toArray();
+      final Comparator<Integer> comparator = 
+         comparingDouble(i -> aggregator.getAverage(keys[i]) - greatCircle[i]);
+      IntStream.range(0, keys.length)
+               .filter(i -> !Double.isNaN(greatCircle[i]))
+               .boxed()
+               .collect(TopKSelector.collector(comparator.reversed(), limit))
+               .forEach(i -> {
+                  double distance = aggregator.getAverage(keys[i]);
+                  builder.addRow(repository.getRoute(keys[i]), 
+                                 aggregator.getCount(keys[i]),
+                                 distance,
+                                 greatCircle[i],
+                                 distance - greatCircle[i]);
+               });
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportMostCancelledFlightsByOrigin(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(f -> f.cancelled())
-             .collect(groupingBy(Flight::getOrigin, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey().getIATA(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.cancelled(row))
+                        .collect(() -> new IntKeyAggregator(table.getAirportCount()),
+                                 (a, row) -> a.add(table.getOriginCode(row)),
+                                 IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeysByCount(true, limit))
+            .forEachOrdered(code -> 
+               builder.addRow(repository.getAirportByCode(code).getIATA(), 
+                              aggregator.getCount(code))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalFlightsByOriginState(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("State", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .map(flight -> flight.getOrigin())
-             .collect(groupingBy(Airport::getState, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row))
+                        .collect(() -> new IntKeyAggregator(table.getAirportCount()),
+                                 (a, row) -> a.add(table.getOriginCode(row)),
+                                 IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeys())
+            .boxed()
+            .collect(groupingBy(code -> repository.getAirportByCode(code).getState(),
+                                summingLong(aggregator::getCount)))
+            .entrySet()
+            .stream()
+            .sorted(comparingByValue(reverseOrder()))
+            .limit(limit)
+            .forEachOrdered(entry -> 
+               builder.addRow(entry.getKey(), entry.getValue())
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalFlightsByDestinationState(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("State", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .parallel()
-             .filter(flight -> flight.notCancelled() && flight.notDiverted())
-             .map(flight -> flight.getDestination())
-             .collect(groupingBy(Airport::getState, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEachOrdered(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row) && table.notDiverted(row))
+                        .collect(() -> new IntKeyAggregator(table.getAirportCount()),
+                                 (a, row) -> a.add(table.getDestinationCode(row)),
+                                 IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeys())
+            .boxed()
+            .collect(groupingBy(code -> repository.getAirportByCode(code).getState(),
+                                summingLong(aggregator::getCount)))
+            .entrySet()
+            .stream()
+            .sorted(comparingByValue(reverseOrder()))
+            .limit(limit)
+            .forEachOrdered(entry -> 
+               builder.addRow(entry.getKey(), entry.getValue())
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportLongestFlights(ReportContext context) {
-      return byDistance(context, comparingInt(Flight::getDistance).reversed());
+      return byDistance(context, true);
    }
 
    @Override
    public ResultSet reportShortestFlights(ReportContext context) {
-      return byDistance(context, comparingInt(Flight::getDistance));
+      return byDistance(context, false);
    }
 
-   private ResultSet byDistance(ReportContext context, Comparator<Flight> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDistance(ReportContext context, boolean longest) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("FlightNumber", Types.VARCHAR)
@@ -316,242 +487,323 @@ public class StreamFlightReports implements FlightReports {
                                .addColumn("Destination", Types.VARCHAR)
                                .addColumn("Distance", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled() && flight.notDiverted())
-             .sorted(comparator)
-             .limit(limit)
-             .forEach(flight -> 
-                builder.addRow(flight.getFlightNumber(),
-                               flight.getDate(),
-                               flight.getCarrier().getCode(),
-                               flight.getOrigin().getIATA(),
-                               flight.getDestination().getIATA(),
-                               flight.getDistance())
-             );
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> flights = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            final Comparator<Integer> comparator = comparingInt(table::getDistance);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(5, longest), limit);
+            scan(table)
+                 .filter(row -> table.notCancelled(row) && table.notDiverted(row))
+                 .boxed()
+                 .collect(TopKSelector.collector(longest ? comparator.reversed() : comparator, 
+                                                 limit))
+                 .forEach(row -> 
+                    selector.add(new Object[] { table.getFlightNumber(row),
+                                                table.getDate(row),
+                                                table.getCarrier(row).getCode(),
+                                                table.getOrigin(row).getIATA(),
+                                                table.getDestination(row).getIATA(),
+                                                table.getDistance(row) })
+                 );
+            return selector;
+         }, TopKSelector::merge);
+
+      flights.toList().forEach(builder::addRow);
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalFlightsByDistanceRange(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Range", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .parallel()
-             .filter(flight -> flight.notCancelled() && flight.notDiverted())
-             .collect(groupingBy(FlightDistanceRange.classifier(DISTANCE_RANGES),
-                                 counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByKey())
-             .limit(limit)
-             .forEach(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightTable table = repository.getFlightTable(year);
+            return scan(table)
+                        .filter(row -> table.notCancelled(row) && table.notDiverted(row))
+                        .collect(() -> new IntKeyAggregator(DISTANCE_RANGES.size()),
+                                 (a, row) -> a.add(FlightDistanceRange.indexOf(
+                                                      DISTANCE_RANGES, table.getDistance(row))),
+                                 IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      // the ranges are listed in ascending order
+      Arrays.stream(aggregator.getKeys())
+            .limit(limit)
+            .forEach(index -> 
+               builder.addRow(DISTANCE_RANGES.get(index), aggregator.getCount(index))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportDaysWithLeastCancellations(ReportContext context) {
-      return byDaysWithCancellations(context, comparingByValue());
+      return byDaysWithCancellations(context, false);
    }
 
    @Override
    public ResultSet reportDaysWithMostCancellations(ReportContext context) {
-      return byDaysWithCancellations(context, comparingByValue(reverseOrder()));
+      return byDaysWithCancellations(context, true);
    }
 
-   private ResultSet byDaysWithCancellations(ReportContext context, 
-      Comparator<Entry<LocalDate, Long>> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDaysWithCancellations(ReportContext context, boolean descending) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Date", Types.DATE)
                                .addColumn("TotalCancellations", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.cancelled())
-             .collect(groupingBy(Flight::getDate, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparator)
-             .limit(limit)
-             .forEach(entry ->
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> rows = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            final IntKeyAggregator aggregator = 
+               cube.days()
+                   .collect(() -> new IntKeyAggregator(DAY_OF_YEAR_KEYS),
+                            (a, day) -> a.add(day, cube.getDayCancelled(day), 0),
+                            IntKeyAggregator::merge);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(1, descending), limit);
+            Arrays.stream(aggregator.getKeysByCount(descending, limit))
+                  .forEachOrdered(day -> 
+                     selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                                 aggregator.getCount(day) })
+                  );
+            return selector;
+         }, TopKSelector::merge);
+
+      rows.toList().forEach(builder::addRow);
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalMonthlyFlights(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("YearMonth", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(Flight::getYearMonth, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByKey())
-             .limit(limit)
-             .forEach(entry ->
-                builder.addRow(YEAR_MONTH_FORMAT.format(entry.getKey()), 
-                               entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final LongKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            return cube.days()
+                       .filter(day -> cube.getDayFlights(day) > cube.getDayCancelled(day))
+                       .collect(LongKeyAggregator::new,
+                                (a, day) -> a.add(pack(year, LocalDate.ofYearDay(year, day)
+                                                                      .getMonthValue()), 
+                                                  cube.getDayFlights(day) - 
+                                                  cube.getDayCancelled(day), 
+                                                  0),
+                                LongKeyAggregator::merge);
+         }, LongKeyAggregator::merge);
+
+      // keys are ordered by year and then by month
+      Arrays.stream(aggregator.getKeys())
+            .limit(limit)
+            .forEach(key ->
+               builder.addRow(YEAR_MONTH_FORMAT.format(YearMonth.of(high(key), low(key))), 
+                              aggregator.getCount(key))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalDailyFlights(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Date", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(Flight::getDate, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByKey())
-             .limit(limit)
-             .forEach(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> rows = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            final IntKeyAggregator aggregator = 
+               cube.days()
+                   .collect(() -> new IntKeyAggregator(DAY_OF_YEAR_KEYS),
+                            (a, day) -> a.add(day, cube.getDayFlights(day) - cube.getDayCancelled(day), 0),
+                            IntKeyAggregator::merge);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(0, false), limit);
+            Arrays.stream(aggregator.getKeys())
+                  .forEachOrdered(day -> 
+                     selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                                 aggregator.getCount(day) })
+                  );
+            return selector;
+         }, TopKSelector::merge);
+
+      rows.toList().forEach(builder::addRow);
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportTotalFlightsByDayOfWeek(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("DayOfWeek", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .map(flight -> flight.getDate())
-             .collect(groupingBy(LocalDate::getDayOfWeek, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparingByKey())
-             .limit(limit)
-             .forEach(entry -> 
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final IntKeyAggregator aggregator = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            return cube.days()
+                       .collect(() -> new IntKeyAggregator(DAY_OF_WEEK_KEYS),
+                                (a, day) -> a.add(LocalDate.ofYearDay(year, day)
+                                                           .getDayOfWeek()
+                                                           .getValue(), 
+                                                  cube.getDayFlights(day) - 
+                                                  cube.getDayCancelled(day), 
+                                                  0),
+                                IntKeyAggregator::merge);
+         }, IntKeyAggregator::merge);
+
+      Arrays.stream(aggregator.getKeys())
+            .limit(limit)
+            .forEach(day -> 
+               builder.addRow(DayOfWeek.of(day), aggregator.getCount(day))
+            );
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportMostFlightsByDay(ReportContext context) {
-      return byDay(context, comparingByValue(reverseOrder()));
+      return byDay(context, true);
    }
 
    @Override
    public ResultSet reportLeastFlightsByDay(ReportContext context) {
-      return byDay(context, comparingByValue());
+      return byDay(context, false);
    }
 
-   private ResultSet byDay(ReportContext context, 
-      Comparator<Entry<LocalDate, Long>> comparator) {
-      final int year = context.getYear();
+   private ResultSet byDay(ReportContext context, boolean descending) {
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Date", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(Flight::getDate, counting()))
-             .entrySet()
-             .stream()
-             .sorted(comparator)
-             .limit(limit)
-             .forEach(entry ->
-                builder.addRow(entry.getKey(), entry.getValue())
-             );
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> rows = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            final IntKeyAggregator aggregator = 
+               cube.days()
+                   .collect(() -> new IntKeyAggregator(DAY_OF_YEAR_KEYS),
+                            (a, day) -> a.add(day, cube.getDayFlights(day) - cube.getDayCancelled(day), 0),
+                            IntKeyAggregator::merge);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(1, descending), limit);
+            Arrays.stream(aggregator.getKeysByCount(descending, limit))
+                  .forEachOrdered(day -> 
+                     selector.add(new Object[] { LocalDate.ofYearDay(year, day), 
+                                                 aggregator.getCount(day) })
+                  );
+            return selector;
+         }, TopKSelector::merge);
+
+      rows.toList().forEach(builder::addRow);
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportMostFlightsByOriginByDay(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Origin", Types.VARCHAR)
                                .addColumn("Date", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(flight -> Pair.of(flight.getOrigin(), 
-                                                   flight.getDate()), 
-                                 counting())
-             )
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEach(entry -> {
-                Pair<Airport, LocalDate> key = entry.getKey();
-                builder.addRow(key.getLeft().getName(), 
-                               key.getRight(), 
-                               entry.getValue());
-             });
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> rows = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            final LongKeyAggregator aggregator = 
+               cube.cells()
+                   .filter(cell -> cube.getFlights(cell) > cube.getCancelled(cell))
+                   .collect(LongKeyAggregator::new,
+                            (a, cell) -> a.add(pack(cube.getOriginCode(cell), cube.getDayOfYear(cell)), 
+                                               cube.getFlights(cell) - cube.getCancelled(cell), 
+                                               0),
+                            LongKeyAggregator::merge);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(2, true), limit);
+            Arrays.stream(aggregator.getKeysByCount(true, limit))
+                  .forEachOrdered(key -> 
+                     selector.add(new Object[] { cube.getAirportByCode(high(key)).getName(), 
+                                                 LocalDate.ofYearDay(year, low(key)), 
+                                                 aggregator.getCount(key) })
+                  );
+            return selector;
+         }, TopKSelector::merge);
+
+      rows.toList().forEach(builder::addRow);
 
       return builder.build();
    }
 
    @Override
    public ResultSet reportMostFlightsByCarrierByDay(ReportContext context) {
-      final int year = context.getYear();
       final int limit = context.getLimit();
       final ResultSetBuilder builder = 
          new ResultSetBuilder().addColumn("Carrier", Types.VARCHAR)
                                .addColumn("Date", Types.VARCHAR)
                                .addColumn("TotalFlights", Types.INTEGER);
 
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.notCancelled())
-             .collect(groupingBy(flight -> Pair.of(flight.getCarrier(), 
-                                                   flight.getDate()), 
-                                 counting())
-             )
-             .entrySet()
-             .stream()
-             .sorted(comparingByValue(reverseOrder()))
-             .limit(limit)
-             .forEach(entry -> {
-                Pair<Carrier, LocalDate> key = entry.getKey();
-                builder.addRow(key.getLeft().getName(), 
-                               key.getRight(), 
-                               entry.getValue());
-             });
+      final Repository repository = context.getRepository();
+      final TopKSelector<Object[]> rows = 
+         repository.reduceYears(context.getYears(), year -> {
+            final FlightCube cube = repository.getFlightCube(year);
+            final LongKeyAggregator aggregator = 
+               cube.cells()
+                   .filter(cell -> cube.getFlights(cell) > cube.getCancelled(cell))
+                   .collect(LongKeyAggregator::new,
+                            (a, cell) -> a.add(pack(cube.getCarrierCode(cell), cube.getDayOfYear(cell)), 
+                                               cube.getFlights(cell) - cube.getCancelled(cell), 
+                                               0),
+                            LongKeyAggregator::merge);
+            final TopKSelector<Object[]> selector = new TopKSelector<>(byColumn(2, true), limit);
+            Arrays.stream(aggregator.getKeysByCount(true, limit))
+                  .forEachOrdered(key -> 
+                     selector.add(new Object[] { cube.getCarrierByCode(high(key)).getName(), 
+                                                 LocalDate.ofYearDay(year, low(key)), 
+                                                 aggregator.getCount(key) })
+                  );
+            return selector;
+         }, TopKSelector::merge);
+
+      rows.toList().forEach(builder::addRow);
 
       return builder.build();
    }
-}
\ No newline at end of file
+
+   /**
+    * Returns the rows of a table to scan. Tables are in memory and every
+    * report combines its partial results with a merge, so each table scan
+    * runs in parallel. Years scanned together by reduceYears each get a
+    * parallel scan, but the scans share the common fork/join pool, so they
+    * use no more threads than a single year does.
+    */
+   private static IntStream scan(FlightTable table) {
+      return table.rows().parallel();
+   }
+
+   /**
+    * Orders report rows by the value in a column. Reports over several
+    * years pick their rows from each year on its own and then pick among
+    * those rows with this order.
+    */
+   @SuppressWarnings("unchecked")
+   private static Comparator<Object[]> byColumn(int column, boolean descending) {
+      Comparator<Object[]> comparator = comparing(values -> (Comparable<Object>) values[column]);
+      return descending ? comparator.reversed() : comparator;
+   }
+}
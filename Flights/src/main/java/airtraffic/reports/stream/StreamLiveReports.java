@@ -1,14 +1,26 @@
 package airtraffic.reports.stream;
 
+import static airtraffic.metrics.FlightBasedMetrics.highestTotalFlightsComparator;
+import static org.apache.commons.lang3.StringUtils.repeat;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
 import org.beryx.textio.TextTerminal;
 
 import airtraffic.Airport;
 import airtraffic.Carrier;
+import airtraffic.Flight;
+import airtraffic.FlightIndex;
 import airtraffic.ReportContext;
+import airtraffic.Repository;
 import airtraffic.annotations.StreamStyle;
 import airtraffic.metrics.AirportMetrics;
 import airtraffic.metrics.CarrierMetrics;
+import airtraffic.metrics.LiveMetrics;
+import airtraffic.reports.LiveRenderer;
 import airtraffic.reports.LiveReports;
+import airtraffic.reports.TopKSelector;
 
 
 /**
@@ -26,20 +38,17 @@ public class StreamLiveReports implements LiveReports {
 
       TextTerminal<?> terminal = context.getTerminal();
       final AirportMetrics metrics = new AirportMetrics(airport);
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.getOrigin().equals(airport) || 
-                               flight.getDestination().equals(airport))
-             .forEach(flight -> {
-                metrics.addFlight(flight);
-                terminal.printf("%,10d\t%,10d\t%,10d\t%,10d\t  %,10d", 
-                                metrics.getTotalFlights(), 
-                                metrics.getTotalCancelled(), 
-                                metrics.getTotalDiverted(), 
-                                metrics.getTotalOrigins(), 
-                                metrics.getTotalDestinations());
-                terminal.moveToLineStart();
-             });
+      final Repository repository = context.getRepository();
+      final FlightIndex index = repository.getFlightIndex(year);
+      final int[] rows = FlightIndex.union(index.getOriginRows(airport), 
+                                           index.getDestinationRows(airport));
+      LiveRenderer renderer = new LiveRenderer(terminal, airportFrame(metrics));
+      try {
+         repository.getFlightStream(year, rows)
+                   .forEach(metrics::addFlight);
+      } finally {
+         renderer.close();
+      }
 
       terminal.println();
    }
@@ -51,19 +60,122 @@ public class StreamLiveReports implements LiveReports {
 
       TextTerminal<?> terminal = context.getTerminal();
       final CarrierMetrics metrics = new CarrierMetrics(carrier);
-      context.getRepository()
-             .getFlightStream(year)
-             .filter(flight -> flight.getCarrier().equals(carrier))
-             .forEach(flight -> {
-                metrics.addFlight(flight);
-                terminal.printf("%,10d\t%,10d\t%,10d\t%,10d",
-                                metrics.getTotalFlights(), 
-                                metrics.getTotalCancelled(), 
-                                metrics.getTotalDiverted(), 
-                                metrics.getAirports().size());
-                terminal.moveToLineStart();
-             });
+      final Repository repository = context.getRepository();
+      final int[] rows = repository.getFlightIndex(year).getCarrierRows(carrier);
+      LiveRenderer renderer = new LiveRenderer(terminal, carrierFrame(metrics));
+      try {
+         repository.getFlightStream(year, rows)
+                   .forEach(metrics::addFlight);
+      } finally {
+         renderer.close();
+      }
 
       terminal.println();
    }
+
+   @Override
+   public void reportAllMetrics(ReportContext context) {
+      final int year = context.getYear();
+      final int limit = context.getLimit();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final LiveMetrics metrics = new LiveMetrics();
+      LiveRenderer renderer = new LiveRenderer(terminal, () -> 
+         String.format("%,10d\t%,10d\t%,10d\t%,10d\t%,10d",
+                       metrics.getTotalFlights(), 
+                       metrics.getTotalCancelled(), 
+                       metrics.getTotalDiverted(), 
+                       metrics.getTotalAirports(),
+                       metrics.getTotalCarriers()));
+      try {
+         context.getRepository()
+                .getFlightStream(year)
+                .parallel()
+                .forEach(metrics::addFlight);
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+      terminal.println("\nBusiest airports\n");
+      terminal.println("Airport\t     Total\t Cancelled\t  Diverted\t   Origins\tDestinations");
+      terminal.println(repeat("-", 81));
+      metrics.getAirportMetrics()
+             .stream()
+             .collect(TopKSelector.collector(highestTotalFlightsComparator(), limit))
+             .forEach(m -> terminal.printf("%-7s\t%,10d\t%,10d\t%,10d\t%,10d\t  %,10d\n",
+                                           m.getSubject().getIATA(),
+                                           m.getTotalFlights(), 
+                                           m.getTotalCancelled(), 
+                                           m.getTotalDiverted(), 
+                                           m.getTotalOrigins(), 
+                                           m.getTotalDestinations()));
+
+      terminal.println("\nBusiest carriers\n");
+      terminal.println("Carrier\t     Total\t Cancelled\t  Diverted\t  Airports");
+      terminal.println(repeat("-", 63));
+      metrics.getCarrierMetrics()
+             .stream()
+             .collect(TopKSelector.collector(highestTotalFlightsComparator(), limit))
+             .forEach(m -> terminal.printf("%-7s\t%,10d\t%,10d\t%,10d\t%,10d\n",
+                                           m.getSubject().getCode(),
+                                           m.getTotalFlights(), 
+                                           m.getTotalCancelled(), 
+                                           m.getTotalDiverted(), 
+                                           m.getTotalAirports()));
+   }
+
+   @Override
+   public void followAirportMetrics(ReportContext context) {
+      final Airport airport = context.getAirport();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final AirportMetrics metrics = new AirportMetrics(airport);
+      LiveRenderer renderer = new LiveRenderer(terminal, airportFrame(metrics));
+      try(Stream<Flight> flights = 
+             context.getRepository().getLiveFlightStream(context.getDuration())) {
+         flights.filter(f -> f.getOrigin().equals(airport) || 
+                             f.getDestination().equals(airport))
+                .forEach(metrics::addFlight);
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+   }
+
+   @Override
+   public void followCarrierMetrics(ReportContext context) {
+      final Carrier carrier = context.getCarrier();
+
+      TextTerminal<?> terminal = context.getTerminal();
+      final CarrierMetrics metrics = new CarrierMetrics(carrier);
+      LiveRenderer renderer = new LiveRenderer(terminal, carrierFrame(metrics));
+      try(Stream<Flight> flights = 
+             context.getRepository().getLiveFlightStream(context.getDuration())) {
+         flights.filter(f -> f.getCarrier().equals(carrier))
+                .forEach(metrics::addFlight);
+      } finally {
+         renderer.close();
+      }
+
+      terminal.println();
+   }
+
+   private Supplier<String> airportFrame(AirportMetrics metrics) {
+      return () -> String.format("%,10d\t%,10d\t%,10d\t%,10d\t  %,10d", 
+                                 metrics.getTotalFlights(), 
+                                 metrics.getTotalCancelled(), 
+                                 metrics.getTotalDiverted(), 
+                                 metrics.getTotalOrigins(), 
+                                 metrics.getTotalDestinations());
+   }
+
+   private Supplier<String> carrierFrame(CarrierMetrics metrics) {
+      return () -> String.format("%,10d\t%,10d\t%,10d\t%,10d",
+                                 metrics.getTotalFlights(), 
+                                 metrics.getTotalCancelled(), 
+                                 metrics.getTotalDiverted(), 
+                                 metrics.getTotalAirports());
+   }
 }
\ No newline at end of file
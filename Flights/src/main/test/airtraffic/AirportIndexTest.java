@@ -0,0 +1,50 @@
+package airtraffic;
+
+import static airtraffic.GeoLocation.Units.MILES;
+import static airtraffic.TestAirports.airport;
+import static airtraffic.TestAirports.location;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+class AirportIndexTest {
+    private static final List<Airport> AIRPORTS = Arrays.asList(
+        airport("IAH", 29.98, -95.34),
+        airport("HOU", 29.65, -95.28),
+        airport("DFW", 32.90, -97.04),
+        airport("AUS", 30.19, -97.67),
+        airport("JFK", 40.64, -73.78),
+        airport("LAX", 33.94, -118.41));
+    private static final Airport HOUSTON = location(29.76, -95.37);
+
+    @Test
+    void findAirportsWithinDistance() {
+        AirportIndex index = new AirportIndex(AIRPORTS);
+        assertEquals(codes(index.withinDistance(HOUSTON, 200, MILES)), 
+                     Arrays.asList("HOU", "IAH", "AUS"), "Wrong airports within 200 miles");
+        assertEquals(codes(index.withinDistance(HOUSTON, 5, MILES)), Collections.emptyList(),
+                     "No airport is within 5 miles");
+        for(AirportIndex.Neighbor neighbor : index.withinDistance(HOUSTON, 2000, MILES)) {
+            assertEquals(neighbor.getDistance(), 
+                         GeoHelper.getDistance(neighbor.getAirport(), HOUSTON, MILES), 1e-6,
+                         "Wrong distance for " + neighbor.getAirport().getIATA());
+        }
+    }
+
+    @Test
+    void findNearestAirports() {
+        AirportIndex index = new AirportIndex(AIRPORTS);
+        assertEquals(codes(index.nearest(HOUSTON, 4, MILES)), 
+                     Arrays.asList("HOU", "IAH", "AUS", "DFW"), "Wrong nearest airports");
+        assertEquals(index.nearest(HOUSTON, 10, MILES).size(), AIRPORTS.size(),
+                     "Every airport should be returned");
+    }
+
+    private static List<String> codes(List<AirportIndex.Neighbor> neighbors) {
+        return neighbors.stream().map(neighbor -> neighbor.getAirport().getIATA()).collect(toList());
+    }
+}
@@ -0,0 +1,47 @@
+package airtraffic;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+class CodeDictionaryTest {
+    private final AtomicInteger resolved = new AtomicInteger();
+    private final CodeDictionary<String> dictionary = 
+        new CodeDictionary<>(key -> {
+            resolved.incrementAndGet();
+            return key.toLowerCase();
+        });
+
+    @Test
+    void assignDenseCodes() {
+        assertEquals(dictionary.encode("IAD"), 0, "Wrong code for first key");
+        assertEquals(dictionary.encode("TPA"), 1, "Wrong code for second key");
+        assertEquals(dictionary.encode("IAD"), 0, "Key should keep its code");
+        assertEquals(dictionary.size(), 2, "Wrong size");
+        assertEquals(dictionary.decode(1), "tpa", "Wrong value");
+        assertEquals(dictionary.getKey(1), "TPA", "Wrong key");
+    }
+
+    @Test
+    void encodeKeyWithinBuffer() {
+        byte[] row = "WN,335,IAD,TPA".getBytes(ISO_8859_1);
+        int code = dictionary.encode("IAD");
+        assertEquals(dictionary.encode(row, 7, 3), code, "Key in buffer should match");
+        assertEquals(dictionary.encode(row, 0, 2), 1, "Wrong code for new key");
+        assertEquals(dictionary.lookup("WN"), 1, "Wrong code from lookup");
+        assertEquals(dictionary.lookup("ORD"), -1, "Unknown key should not be added");
+    }
+
+    @Test
+    void resolveEachKeyOnce() {
+        for(int i = 0; i < 1000; i++) {
+            dictionary.encode("N" + (i % 300));
+        }
+        assertEquals(resolved.get(), 300, "Each key should be resolved once");
+        for(int i = 0; i < 300; i++) {
+            assertEquals(dictionary.decode(dictionary.lookup("N" + i)), "n" + i, "Wrong value");
+        }
+    }
+}
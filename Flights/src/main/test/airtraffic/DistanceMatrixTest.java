@@ -0,0 +1,78 @@
+package airtraffic;
+
+import static airtraffic.GeoLocation.Units.MILES;
+import static airtraffic.TestAirports.airport;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+class DistanceMatrixTest {
+    private static final List<Airport> AIRPORTS = Arrays.asList(
+        airport("IAH", 29.98, -95.34),
+        airport("HOU", 29.65, -95.28),
+        airport("DFW", 32.90, -97.04),
+        airport("JFK", 40.64, -73.78),
+        airport("LAX", 33.94, -118.41));
+
+    @Test
+    void distancesMatchGreatCircle() throws IOException {
+        Path source = createSource();
+        try {
+            DistanceMatrix matrix = DistanceMatrix.build(source, AIRPORTS);
+            assertEquals(matrix.size(), AIRPORTS.size(), "Wrong number of airports");
+            for(Airport from : AIRPORTS) {
+                for(Airport to : AIRPORTS) {
+                    double expected = GeoHelper.getDistance(from, to, MILES);
+                    assertEquals(matrix.getDistance(from.getIATA(), to.getIATA()), expected,
+                                 0.1, "Wrong distance from " + from.getIATA() + " to " + to.getIATA());
+                }
+            }
+            assertTrue(Double.isNaN(matrix.getDistance("IAH", "ORD")),
+                       "Distance to an unknown airport should be NaN");
+        } finally {
+            delete(source);
+        }
+    }
+
+    @Test
+    void savedMatrixIsOpenedUntilSourceChanges() throws IOException {
+        Path source = createSource();
+        try {
+            DistanceMatrix built = DistanceMatrix.build(source, AIRPORTS);
+            DistanceMatrix opened = DistanceMatrix.open(source);
+            assertNotNull(opened, "Saved matrix should be opened");
+            for(int i = 0; i < built.size(); i++) {
+                assertEquals(opened.getIATA(i), built.getIATA(i), "Wrong airport at " + i);
+                for(int j = 0; j < built.size(); j++) {
+                    assertEquals(opened.getDistance(i, j), built.getDistance(i, j),
+                                 "Wrong distance from " + i + " to " + j);
+                }
+            }
+            Files.setLastModifiedTime(source, FileTime.fromMillis(0));
+            assertNull(DistanceMatrix.open(source), "Out of date matrix should not be opened");
+        } finally {
+            delete(source);
+        }
+    }
+
+    private static Path createSource() throws IOException {
+        Path source = Files.createTempDirectory("distances").resolve("airports.csv");
+        Files.write(source, "iata,airport,city,state,country,lat,long\n".getBytes());
+        return source;
+    }
+
+    private static void delete(Path source) throws IOException {
+        Files.deleteIfExists(DistanceMatrix.getPath(source));
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(source.getParent());
+    }
+}
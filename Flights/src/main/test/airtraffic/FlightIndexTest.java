@@ -0,0 +1,27 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import org.junit.jupiter.api.Test;
+
+
+class FlightIndexTest {
+    private final int[] rows1 = { 1, 3, 5, 7, 9 };
+    private final int[] rows2 = { 2, 3, 4, 9, 12 };
+
+    @Test
+    void unionOfPostingLists() {
+        assertArrayEquals(FlightIndex.union(rows1, rows2), 
+                          new int[] { 1, 2, 3, 4, 5, 7, 9, 12 }, 
+                          "Wrong union");
+        assertArrayEquals(FlightIndex.union(rows1, new int[0]), rows1, 
+                          "Union with empty list should not change rows");
+    }
+
+    @Test
+    void intersectionOfPostingLists() {
+        assertArrayEquals(FlightIndex.intersection(rows1, rows2), new int[] { 3, 9 }, 
+                          "Wrong intersection");
+        assertArrayEquals(FlightIndex.intersection(rows1, new int[0]), new int[0], 
+                          "Intersection with empty list should be empty");
+    }
+}
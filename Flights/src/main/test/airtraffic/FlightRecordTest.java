@@ -0,0 +1,66 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import airtraffic.Flight.CancellationCode;
+
+
+class FlightRecordTest {
+    private static final String ROW = 
+        "2008,1,3,4,2003,1955,2211,2225,WN,335,N712SW,128,150,116,-14,8," + 
+        "IAD,TPA,810,4,8,0,,0,NA,NA,NA,NA,NA";
+    private static final String CANCELLED_ROW = 
+        "2008,1,3,4,NA,1905,NA,2020,WN,1113,,NA,75,NA,NA,NA," + 
+        "IND,MDW,162,NA,NA,1,B,0,NA,NA,NA,NA,NA";
+    private final FlightRecord record = new FlightRecord();
+
+    @Test
+    void decodeIntegerFields() {
+        record.reset(ROW);
+        assertEquals(record.getInt(FlightRecord.YEAR), 2008, "Wrong year");
+        assertEquals(record.getInt(FlightRecord.DEPARTURE_TIME), 2003, "Wrong departure time");
+        assertEquals(record.getInt(FlightRecord.ARRIVAL_DELAY), -14, "Wrong arrival delay");
+        assertEquals(record.getInt(FlightRecord.DISTANCE), 810, "Wrong distance");
+        assertEquals(record.getInt(FlightRecord.CARRIER_DELAY), 0, "NA should decode as zero");
+    }
+
+    @Test
+    void decodeStringAndFlagFields() {
+        record.reset(ROW);
+        assertEquals(record.getString(FlightRecord.CARRIER), "WN", "Wrong carrier");
+        assertEquals(record.getString(FlightRecord.ORIGIN), "IAD", "Wrong origin");
+        assertEquals(record.getString(FlightRecord.DESTINATION), "TPA", "Wrong destination");
+        assertFalse(record.getFlag(FlightRecord.CANCELLED), "Should not be cancelled");
+        assertNull(record.getCancellationCode(), "Should have no cancellation code");
+    }
+
+    @Test
+    void decodeCancelledRow() {
+        record.reset(CANCELLED_ROW);
+        assertTrue(record.getFlag(FlightRecord.CANCELLED), "Should be cancelled");
+        assertEquals(record.getCancellationCode(), CancellationCode.WEATHER, "Wrong code");
+        assertEquals(record.getLength(FlightRecord.TAIL_NUMBER), 0, "Tail number should be empty");
+        assertEquals(record.getInt(FlightRecord.DEPARTURE_TIME), 0, "NA should decode as zero");
+    }
+
+    @Test
+    void decodeRowWithinLargerBuffer() {
+        byte[] bytes = ("header\n" + ROW + "\n").getBytes();
+        int from = "header\n".length();
+        record.reset(bytes, from, from + ROW.length());
+        assertEquals(record.getInt(FlightRecord.LATE_AIRCRAFT_DELAY), 0, "Wrong last field");
+        assertEquals(record.getInt(FlightRecord.FLIGHT_NUMBER), 335, "Wrong flight number");
+    }
+
+    @Test
+    void decodeInvalidInteger() {
+        record.reset(ROW.replace("2008,", "20X8,"));
+        assertThrows(NumberFormatException.class,
+                     () -> record.getInt(FlightRecord.YEAR),
+                     "Should not decode");
+    }
+}
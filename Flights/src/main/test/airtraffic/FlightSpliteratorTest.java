@@ -0,0 +1,219 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+
+
+class FlightSpliteratorTest {
+    private static final String HEADER =
+        "Year,Month,DayofMonth,DayOfWeek,DepTime,CRSDepTime,ArrTime,CRSArrTime," +
+        "UniqueCarrier,FlightNum,TailNum,ActualElapsedTime,CRSElapsedTime,AirTime," +
+        "ArrDelay,DepDelay,Origin,Dest,Distance,TaxiIn,TaxiOut,Cancelled," +
+        "CancellationCode,Diverted,CarrierDelay,WeatherDelay,NASDelay," +
+        "SecurityDelay,LateAircraftDelay";
+    private static final String[] AIRPORTS = { "IAH", "DFW", "ORD", "ATL", "LAX" };
+
+    @Test
+    void smallFileIsNotSplit() throws IOException {
+        Path directory = createDirectory();
+        try {
+            Path flights = writeFlights(directory, rows(100, "\r\n"), 0);
+            Repository repository = createRepository(directory, flights);
+            FlightSpliterator spliterator = new FlightSpliterator(flights, repository);
+            assertNull(spliterator.trySplit(), "File smaller than the split size should not split");
+            assertEquals(read(spliterator), readSequentially(flights, repository), "Wrong flights");
+            assertEquals(spliterator.getOpenChannels(), 0, "Channel should be closed");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void splitsCoverEveryRowOnce() throws IOException {
+        Path directory = createDirectory();
+        try {
+            Path flights = writeFlights(directory, rows(100000, null), 0);
+            Repository repository = createRepository(directory, flights);
+            List<Spliterator<Flight>> ranges = new ArrayList<>();
+            split(new FlightSpliterator(flights, repository), ranges);
+            assertTrue(ranges.size() > 2, "File should be split more than once");
+            List<String> keys = new ArrayList<>();
+            for(Spliterator<Flight> range : ranges) {
+                keys.addAll(read(range));
+            }
+            assertEquals(keys, readSequentially(flights, repository), "Splits differ from sequential read");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void rowsStraddlingSplitPointAreReadOnce() throws IOException {
+        Path directory = createDirectory();
+        try {
+            List<String> rows = rows(30000, "\r\n");
+            byte[] data = toBytes(rows, 0);
+            // the split point is half way between the first row and the end
+            // of the file, and each blank line at the end moves it one byte,
+            // so try it on a carriage return, on a newline and within a row
+            int first = HEADER.length() + 2;
+            int middle = first + (data.length - first) / 2;
+            int newline = middle + 8;
+            while(data[newline] != '\n') {
+                newline++;
+            }
+            for(int shift : new int[] { newline - 1 - middle, newline - middle,
+                                        newline + 1 - middle, newline + 7 - middle }) {
+                Path flights = writeFlights(directory, rows, shift);
+                Repository repository = createRepository(directory, flights);
+                FlightSpliterator suffix = new FlightSpliterator(flights, repository);
+                Spliterator<Flight> prefix = suffix.trySplit();
+                assertNotNull(prefix, "File should be split");
+                List<String> keys = read(prefix);
+                keys.addAll(read(suffix));
+                assertEquals(keys, readSequentially(flights, repository),
+                             "Wrong flights with split shifted by " + shift);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void shortCircuitLeavesNoChannelOpen() throws IOException {
+        Path directory = createDirectory();
+        try {
+            Path flights = writeFlights(directory, rows(40000, "\n"), 0);
+            Repository repository = createRepository(directory, flights);
+
+            FlightSpliterator spliterator = new FlightSpliterator(flights, repository);
+            try(Stream<Flight> stream = StreamSupport.stream(spliterator, true)
+                                                     .onClose(spliterator::close)) {
+                assertTrue(stream.filter(flight -> flight.getDistance() > 0).findAny().isPresent(),
+                           "Flight should be found");
+            }
+            assertEquals(spliterator.getOpenChannels(), 0, "Channels should be closed with the stream");
+
+            spliterator = new FlightSpliterator(flights, repository);
+            assertEquals(StreamSupport.stream(spliterator, true).count(), 40000L, "Wrong count");
+            assertEquals(spliterator.getOpenChannels(), 0, "Channels should be closed when read");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void split(Spliterator<Flight> spliterator, List<Spliterator<Flight>> ranges) {
+        Spliterator<Flight> prefix = spliterator.trySplit();
+        if(prefix == null) {
+            ranges.add(spliterator);
+        } else {
+            split(prefix, ranges);
+            split(spliterator, ranges);
+        }
+    }
+
+    private static List<String> read(Spliterator<Flight> spliterator) {
+        List<String> keys = new ArrayList<>();
+        spliterator.forEachRemaining(flight -> keys.add(key(flight)));
+        return keys;
+    }
+
+    private static List<String> readSequentially(Path flights, Repository repository) {
+        List<String> keys = new ArrayList<>();
+        FlightReader reader = new FlightReader(flights, repository);
+        while(reader.hasNext()) {
+            keys.add(key(reader.next()));
+        }
+        return keys;
+    }
+
+    private static String key(Flight flight) {
+        return flight.getDate() + " " + flight.getFlightNumber() + " " +
+               flight.getTailNumber() + " " + flight.getDistance();
+    }
+
+    // rows end in the given line separator, or in a mix of both if null
+    private static List<String> rows(int count, String separator) {
+        List<String> rows = new ArrayList<>();
+        Random random = new Random(count);
+        for(int i = 0; i < count; i++) {
+            int origin = random.nextInt(AIRPORTS.length);
+            int destination = (origin + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length;
+            rows.add(String.join(",", "2008",
+                String.valueOf(1 + random.nextInt(12)), String.valueOf(1 + random.nextInt(28)),
+                String.valueOf(1 + random.nextInt(7)), "1200", "1200", "1400", "1400", "WN",
+                String.valueOf(i), "N" + random.nextInt(100), "120", "120", "100",
+                String.valueOf(random.nextInt(60)), String.valueOf(random.nextInt(60)),
+                AIRPORTS[origin], AIRPORTS[destination], String.valueOf(100 + random.nextInt(2000)),
+                "10", "15", "0", "", "0", "NA", "NA", "NA", "NA", "NA") +
+                (separator != null ? separator : random.nextBoolean() ? "\r\n" : "\n"));
+        }
+        return rows;
+    }
+
+    private static byte[] toBytes(List<String> rows, int blankLines) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write((HEADER + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for(String row : rows) {
+            out.write(row.getBytes(StandardCharsets.US_ASCII));
+        }
+        for(int i = 0; i < blankLines; i++) {
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    private static Path writeFlights(Path directory, List<String> rows, int shift)
+        throws IOException {
+        // each blank line adds two bytes, which moves the middle by one
+        return Files.write(directory.resolve("flights.csv"), toBytes(rows, shift));
+    }
+
+    private static Repository createRepository(Path directory, Path flights) {
+        Config config = new Config();
+        config.setAirportPath(directory.resolve("airports.csv").toString());
+        config.setCarrierPath(directory.resolve("carriers.csv").toString());
+        config.setPlanePath(directory.resolve("planes.csv").toString());
+        config.setFlightPaths(Collections.singletonMap(2008, flights.toString()));
+        return new Repository(config);
+    }
+
+    private static Path createDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("spliterator");
+        List<String> airports = new ArrayList<>();
+        airports.add("iata,airport,city,state,country,lat,long");
+        for(String airport : AIRPORTS) {
+            airports.add(airport + "," + airport + " Airport,City,TX,USA,30,-95");
+        }
+        Files.write(directory.resolve("airports.csv"), airports);
+        Files.write(directory.resolve("carriers.csv"),
+                    Collections.singletonList("Code,Description\nWN,Southwest"));
+        Files.write(directory.resolve("planes.csv"),
+                    Collections.singletonList("tailnum,type,manufacturer,issue_date,model,status,aircraft_type,engine_type,year"));
+        return directory;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
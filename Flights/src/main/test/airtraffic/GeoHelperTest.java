@@ -0,0 +1,36 @@
+package airtraffic;
+
+import static airtraffic.GeoLocation.Units.MILES;
+import static airtraffic.TestAirports.location;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+class GeoHelperTest {
+    private static final Airport HOUSTON = location(29.76, -95.37);
+
+    @Test
+    void orderLocationsLessThanAMileApart() {
+        Airport nearer = location(29.765, -95.37);
+        Airport further = location(29.77, -95.37);
+        List<Airport> airports = Arrays.asList(further, nearer);
+        airports.sort(GeoHelper.distanceFromReferenceComparator(HOUSTON, MILES));
+        assertEquals(airports, Arrays.asList(nearer, further), "Wrong order for nearby airports");
+    }
+
+    @Test
+    void batchDistancesMatchSingleDistances() {
+        List<Airport> airports = Arrays.asList(location(29.98, -95.34), location(40.64, -73.78),
+                                               location(33.94, -118.41), HOUSTON);
+        double[] distances = new GeoPoints(airports).getDistances(HOUSTON, MILES);
+        for(int i = 0; i < distances.length; i++) {
+            assertEquals(distances[i], GeoHelper.getDistance(airports.get(i), HOUSTON, MILES), 1e-9,
+                         "Wrong distance for airport " + i);
+        }
+        assertEquals(distances[3], 0.0, 1e-9, "Distance to the same location should be zero");
+        assertTrue(distances[1] > 1380 && distances[1] < 1460, "Houston to New York is about 1,420 miles");
+    }
+}
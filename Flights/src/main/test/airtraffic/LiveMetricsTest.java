@@ -0,0 +1,100 @@
+package airtraffic;
+
+import static airtraffic.TestAirports.airport;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import airtraffic.metrics.AirportMetrics;
+import airtraffic.metrics.CarrierMetrics;
+import airtraffic.metrics.LiveMetrics;
+
+
+// lives in the airtraffic package to build flights without a repository
+class LiveMetricsTest {
+    private static final Airport IAD = airport("IAD");
+    private static final Airport TPA = airport("TPA");
+    private static final Carrier WN = carrier("WN");
+    private static final Flight FLIGHT = flight(IAD, TPA);
+
+    @Test
+    void snapshotIsNotChangedByLaterFlights() {
+        LiveMetrics metrics = new LiveMetrics();
+        assertNull(metrics.getAirportMetrics(IAD), "No metrics before the first flight");
+        metrics.addFlight(FLIGHT).addFlight(FLIGHT);
+        AirportMetrics airport = metrics.getAirportMetrics(IAD);
+        CarrierMetrics carrier = metrics.getCarrierMetrics(WN);
+        metrics.addFlight(FLIGHT);
+        airport.addFlight(FLIGHT);
+
+        assertEquals(airport.getTotalFlights(), Long.valueOf(3), "Snapshot changed with the live metrics");
+        assertEquals(carrier.getTotalFlights(), Long.valueOf(2), "Snapshot changed with the live metrics");
+        assertEquals(carrier.getDepartureDelays().getCount(), 2L, "Snapshot histogram changed");
+        assertEquals(carrier.getTotalAirports(), 2, "Wrong airports");
+        assertEquals(metrics.getAirportMetrics(IAD).getTotalFlights(), Long.valueOf(3),
+                     "Live metrics changed with the snapshot");
+        assertEquals(metrics.getAirportMetrics().size(), 2, "Wrong number of airports");
+    }
+
+    @Test
+    void snapshotsTakenWhileFlightsAreAdded() throws InterruptedException, ExecutionException {
+        final int threads = 4;
+        final int flightsPerThread = 20000;
+        LiveMetrics metrics = new LiveMetrics();
+        metrics.addFlight(FLIGHT);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> adders = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                adders.add(executor.submit(() -> {
+                    for(int j = 0; j < flightsPerThread; j++) {
+                        metrics.addFlight(FLIGHT);
+                    }
+                }));
+            }
+            long previous = 0;
+            while(!adders.stream().allMatch(Future::isDone)) {
+                AirportMetrics snapshot = metrics.getAirportMetrics(IAD);
+                long total = snapshot.getTotalFlights();
+                long departures = snapshot.getDepartureDelays().getCount();
+                assertTrue(total >= previous, "Snapshots should not go backwards");
+                Thread.yield();
+                assertEquals(snapshot.getTotalFlights(), Long.valueOf(total), "Snapshot changed");
+                assertEquals(snapshot.getDepartureDelays().getCount(), departures,
+                             "Snapshot histogram changed");
+                previous = total;
+            }
+            for(Future<?> adder : adders) {
+                adder.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long expected = 1 + (long) threads * flightsPerThread;
+        AirportMetrics airport = metrics.getAirportMetrics(IAD);
+        assertEquals(airport.getTotalFlights(), Long.valueOf(expected), "Wrong total");
+        assertEquals(airport.getDepartureDelays().getCount(), expected, "Wrong departures");
+        assertEquals(metrics.getCarrierMetrics(WN).getArrivalDelays().getCount(), expected,
+                     "Wrong arrivals");
+    }
+
+    private static Flight flight(Airport origin, Airport destination) {
+        String row = "2008,1,3,4,2003,1955,2211,2225,WN,335,,128,150,116,-14,8," +
+                     origin.getIATA() + "," + destination.getIATA() + ",810,4,8," +
+                     "0,,0,NA,NA,NA,NA,NA";
+        return new EagerFlight(new FlightRecord().reset(row), WN, origin, destination, new Plane());
+    }
+
+    private static Carrier carrier(String code) {
+        Carrier carrier = new Carrier();
+        carrier.setCode(code);
+        return carrier;
+    }
+}
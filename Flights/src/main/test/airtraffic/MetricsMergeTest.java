@@ -0,0 +1,126 @@
+package airtraffic;
+
+import static airtraffic.TestAirports.airport;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import airtraffic.Flight.CancellationCode;
+import airtraffic.metrics.AirportMetrics;
+import airtraffic.metrics.CarrierMetrics;
+
+
+// lives in the airtraffic package to build flights without a repository
+class MetricsMergeTest {
+    private static final Airport IAD = airport("IAD");
+    private static final Airport TPA = airport("TPA");
+    private static final Airport MDW = airport("MDW");
+    private static final Carrier WN = carrier("WN");
+    private static final List<Flight> FLIGHTS = Arrays.asList(
+        flight(IAD, TPA, "0,,0"),
+        flight(IAD, TPA, "1,B,0"),
+        flight(TPA, IAD, "0,,1"),
+        flight(IAD, MDW, "1,A,0"),
+        flight(MDW, TPA, "0,,0"),
+        flight(TPA, MDW, "1,C,0"));
+
+    @Test
+    void airportMetricsMergeEveryCounter() {
+        Map<String, AirportMetrics> all = collectAirports(FLIGHTS);
+        Map<String, AirportMetrics> merged = collectAirports(FLIGHTS.subList(0, 2));
+        AirportMetrics.combiner().accept(merged, collectAirports(FLIGHTS.subList(2, 6)));
+
+        assertEquals(merged.keySet(), all.keySet(), "Airports only in the second map were dropped");
+        for(AirportMetrics expected : all.values()) {
+            AirportMetrics actual = merged.get(expected.getSubject().getIATA());
+            assertEquals(actual.getTotalFlights(), expected.getTotalFlights(), "Wrong total");
+            assertEquals(actual.getTotalCancelled(), expected.getTotalCancelled(), "Wrong cancelled");
+            assertEquals(actual.getTotalDiverted(), expected.getTotalDiverted(), "Wrong diverted");
+            assertEquals(actual.getTotalOrigins(), expected.getTotalOrigins(), "Wrong origins");
+            assertEquals(actual.getTotalDestinations(), expected.getTotalDestinations(),
+                         "Wrong destinations");
+            for(CancellationCode code : CancellationCode.values()) {
+                assertEquals(actual.getTotalCancelledByCode(code),
+                             expected.getTotalCancelledByCode(code), "Wrong count for " + code);
+            }
+        }
+    }
+
+    @Test
+    void carrierMetricsMergeAirports() {
+        CarrierMetrics first = new CarrierMetrics(WN);
+        CarrierMetrics second = new CarrierMetrics(WN);
+        for(int i = 0; i < FLIGHTS.size(); i++) {
+            (i < 3 ? first : second).addFlight(FLIGHTS.get(i));
+        }
+        Map<String, CarrierMetrics> map1 = new HashMap<>();
+        Map<String, CarrierMetrics> map2 = new HashMap<>();
+        map2.put("WN", second);
+        CarrierMetrics.combiner().accept(map1, map2);
+        CarrierMetrics.combiner().accept(map1, singleton(first));
+
+        CarrierMetrics merged = map1.get("WN");
+        assertEquals(merged.getTotalFlights(), Long.valueOf(6), "Wrong total");
+        assertEquals(merged.getTotalCancelled(), 3, "Wrong cancelled");
+        assertEquals(merged.getTotalDiverted(), 1, "Wrong diverted");
+        assertEquals(merged.getTotalAirports(), 3, "Wrong airports");
+    }
+
+    @Test
+    void mergeIsAssociativeWithEmptyIdentity() {
+        AirportMetrics left = new AirportMetrics(IAD).merge(metrics(IAD, 0, 2))
+                                                     .merge(metrics(IAD, 2, 6));
+        AirportMetrics right = metrics(IAD, 0, 2).merge(metrics(IAD, 2, 6)
+                                                 .merge(new AirportMetrics(IAD)));
+        assertEquals(left.getTotalFlights(), right.getTotalFlights(), "Wrong total");
+        assertEquals(left.getTotalOrigins(), right.getTotalOrigins(), "Wrong origins");
+        assertEquals(left.getTotalFlights(), Long.valueOf(4), "Wrong total");
+    }
+
+    @Test
+    void mergeRejectsOtherSubject() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new AirportMetrics(IAD).merge(new AirportMetrics(TPA)),
+                     "Metrics for different airports should not merge");
+    }
+
+    private static AirportMetrics metrics(Airport airport, int from, int to) {
+        AirportMetrics metrics = new AirportMetrics(airport);
+        for(Flight flight : FLIGHTS.subList(from, to)) {
+            if(flight.getOrigin().equals(airport) || flight.getDestination().equals(airport)) {
+                metrics.addFlight(flight);
+            }
+        }
+        return metrics;
+    }
+
+    private static Map<String, AirportMetrics> collectAirports(List<Flight> flights) {
+        Map<String, AirportMetrics> map = new HashMap<>();
+        for(Flight flight : flights) {
+            AirportMetrics.accumulator().accept(map, flight);
+        }
+        return map;
+    }
+
+    private static Map<String, CarrierMetrics> singleton(CarrierMetrics metrics) {
+        Map<String, CarrierMetrics> map = new HashMap<>();
+        map.put(metrics.getSubject().getCode(), metrics);
+        return map;
+    }
+
+    private static Flight flight(Airport origin, Airport destination, String status) {
+        String row = "2008,1,3,4,2003,1955,2211,2225,WN,335,,128,150,116,-14,8," +
+                     origin.getIATA() + "," + destination.getIATA() + ",810,4,8," +
+                     status + ",NA,NA,NA,NA,NA";
+        return new EagerFlight(new FlightRecord().reset(row), WN, origin, destination, new Plane());
+    }
+
+    private static Carrier carrier(String code) {
+        Carrier carrier = new Carrier();
+        carrier.setCode(code);
+        return carrier;
+    }
+}
@@ -0,0 +1,41 @@
+package airtraffic;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+
+class PrefixIndexTest {
+    private static final List<Function<String[], String>> NAMERS = 
+        Arrays.asList(carrier -> carrier[0], carrier -> carrier[1]);
+    private static final List<String[]> CARRIERS = Arrays.asList(
+        new String[] { "WN", "Southwest Airlines Co." },
+        new String[] { "AA", "American Airlines Inc." },
+        new String[] { "AS", "Alaska Airlines Inc." },
+        new String[] { "UA", "United Air Lines Inc." });
+
+    @Test
+    void findByCodeOrName() {
+        PrefixIndex<String[]> index = new PrefixIndex<>(CARRIERS, NAMERS);
+        assertEquals(codes(index.find("a", 10)), Arrays.asList("AA", "AS"), "Wrong codes for A");
+        assertEquals(codes(index.find("ALASKA", 10)), Arrays.asList("AS"), "Wrong codes for Alaska");
+        assertEquals(codes(index.find("s", 10)), Arrays.asList("WN"), "Wrong codes for S");
+        assertEquals(codes(index.find("X", 10)), Collections.emptyList(), "Nothing should match X");
+    }
+
+    @Test
+    void stopAtLimitWithoutDuplicates() {
+        PrefixIndex<String[]> index = new PrefixIndex<>(CARRIERS, NAMERS);
+        assertEquals(codes(index.find("", 3)), Arrays.asList("AA", "AS", "WN"),
+                     "Names should be ordered with codes");
+        assertEquals(codes(index.find("A", 1)), Arrays.asList("AA"), "Limit not applied");
+    }
+
+    private static List<String> codes(List<String[]> carriers) {
+        return carriers.stream().map(carrier -> carrier[0]).collect(toList());
+    }
+}
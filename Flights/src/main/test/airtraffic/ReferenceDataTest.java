@@ -0,0 +1,40 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+
+class ReferenceDataTest {
+
+    @Test
+    void loadOnceForConcurrentReaders() {
+        AtomicInteger loads = new AtomicInteger();
+        ReferenceData<String> data = new ReferenceData<>(() -> {
+            loads.incrementAndGet();
+            return Stream.of("IAH", "DFW");
+        }, iata -> iata);
+        long found = IntStream.range(0, 100)
+                              .parallel()
+                              .mapToObj(i -> data.get(i % 2 == 0 ? "IAH" : "ORD"))
+                              .filter(iata -> iata != null)
+                              .count();
+        assertEquals(found, 50L, "Wrong number of lookups found");
+        assertEquals(loads.get(), 1, "Data should be loaded once");
+        assertNull(data.get("ORD"), "Unknown key should not be found");
+    }
+
+    @Test
+    void rethrowLoadFailure() {
+        ReferenceData<String> data = new ReferenceData<>(() -> {
+            throw new RepositoryException(new IOException("missing file"));
+        }, iata -> iata);
+        assertThrows(RepositoryException.class, () -> data.get("IAH"),
+                     "Load failure should reach the reader");
+    }
+}
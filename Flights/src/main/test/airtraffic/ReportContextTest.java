@@ -0,0 +1,27 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+
+class ReportContextTest {
+    @Test
+    void singleYear() {
+        ReportContext context = new ReportContext().setYear(2008);
+        assertEquals(context.getYear(), 2008, "Wrong year");
+        assertEquals(context.getYears().size(), 1, "Wrong number of years");
+        assertEquals(context.getYears().first().intValue(), 2008, "Wrong years");
+    }
+
+    @Test
+    void rangeOfYears() {
+        ReportContext context = new ReportContext().setYears(1987, 2008);
+        assertEquals(context.getYear(), 1987, "First year should be the year");
+        assertEquals(context.getYears().size(), 22, "Wrong number of years");
+        context.setYears(Arrays.asList(2008, 2001, 2008));
+        assertEquals(context.getYears().toString(), "[2001, 2008]", "Wrong years");
+        context.setYear(2005);
+        assertEquals(context.getYears().toString(), "[2005]", "Year should replace range");
+    }
+}
@@ -0,0 +1,26 @@
+package airtraffic;
+
+/**
+ * Builds the airports used by the tests.
+ */
+final class TestAirports {
+    private TestAirports() {
+    }
+
+    static Airport airport(String iata) {
+        Airport airport = new Airport();
+        airport.setIATA(iata);
+        return airport;
+    }
+
+    static Airport airport(String iata, double latitude, double longitude) {
+        Airport airport = airport(iata);
+        airport.setLatitude(latitude);
+        airport.setLongitude(longitude);
+        return airport;
+    }
+
+    static Airport location(double latitude, double longitude) {
+        return airport(null, latitude, longitude);
+    }
+}
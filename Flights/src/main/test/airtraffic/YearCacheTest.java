@@ -0,0 +1,82 @@
+package airtraffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+class YearCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void keepMostRecentlyUsed() {
+        YearCache<String> cache = new YearCache<>(this::load, 2);
+        cache.get(1987);
+        cache.get(1988);
+        cache.get(1987);
+        cache.get(1989);
+        assertTrue(cache.contains(1987), "Recently used year should be kept");
+        assertFalse(cache.contains(1988), "Least recently used year should be dropped");
+        assertEquals(cache.get(1989), "1989", "Wrong value");
+        assertEquals(loads.get(), 3, "Kept years should not be loaded again");
+    }
+
+    @Test
+    void keepPinnedYears() {
+        YearCache<String> cache = new YearCache<>(this::load, 1);
+        cache.pin(1987);
+        cache.get(1988);
+        cache.get(1989);
+        assertTrue(cache.contains(1987), "Pinned year should be kept");
+        cache.unpin(1987);
+        cache.get(1990);
+        assertFalse(cache.contains(1987), "Unpinned year should be dropped");
+    }
+
+    @Test
+    void loadEachYearOnce() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        YearCache<String> cache = new YearCache<>(year -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(year);
+        }, 0);
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++) {
+            int year = 1987 + i % 4;
+            threads[i] = new Thread(() -> cache.get(year));
+            threads[i].start();
+        }
+        Thread.sleep(100);
+        start.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(loads.get(), 4, "Threads should share the load of a year");
+    }
+
+    @Test
+    void retryFailedLoad() {
+        YearCache<String> cache = new YearCache<>(year -> {
+            if(loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("First load fails");
+            }
+            return String.valueOf(year);
+        }, 2);
+        assertThrows(IllegalStateException.class, () -> cache.get(1987),
+                     "Failed load should be thrown");
+        assertEquals(cache.get(1987), "1987", "Failed load should be tried again");
+    }
+
+    private String load(int year) {
+        loads.incrementAndGet();
+        return String.valueOf(year);
+    }
+}
@@ -0,0 +1,45 @@
+package airtraffic.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+
+class AirportSetTest {
+
+    @Test
+    void countDistinctCodes() {
+        AirportSet set = new AirportSet();
+        for(String iata : Arrays.asList("IAH", "DFW", "IAH", "00A", "ZZZ", "DFW")) {
+            set.add(iata);
+        }
+        assertEquals(set.size(), 4, "Wrong size");
+        assertEquals(set.toSet(), new HashSet<>(Arrays.asList("IAH", "DFW", "00A", "ZZZ")),
+                     "Wrong codes");
+    }
+
+    @Test
+    void keepCodesOutsideBitmap() {
+        AirportSet set = new AirportSet();
+        set.add("KIAH");
+        set.add("iah");
+        set.add("IAH");
+        set.add("KIAH");
+        assertEquals(set.size(), 3, "Wrong size");
+    }
+
+    @Test
+    void mergeSets() {
+        AirportSet first = new AirportSet();
+        AirportSet second = new AirportSet();
+        first.add("IAH");
+        first.add("ORD");
+        second.add("ORD");
+        second.add("ATL");
+        second.add("KORD");
+        first.addAll(second);
+        assertEquals(first.size(), 4, "Wrong size after merge");
+        assertEquals(second.size(), 3, "Merge should not change the other set");
+    }
+}
@@ -0,0 +1,75 @@
+package airtraffic.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+
+class DelayHistogramTest {
+
+    @Test
+    void exactPercentilesForShortDelays() {
+        DelayHistogram histogram = new DelayHistogram();
+        for(int minutes = -10; minutes < 20; minutes++) {
+            histogram.add(minutes);
+        }
+        assertEquals(histogram.getCount(), 30L, "Wrong count");
+        assertEquals(histogram.getPercentile(0), -10, "Wrong minimum");
+        assertEquals(histogram.getMedian(), 4, "Wrong median");
+        assertEquals(histogram.getPercentile(100), 19, "Wrong maximum");
+        assertEquals(histogram.getAverage(), 4.5, 0.0, "Average should be exact");
+    }
+
+    @Test
+    void estimateLongDelaysWithinBucketWidth() {
+        for(int minutes : new int[] { 32, 100, 999, 4000, -45, -3000 }) {
+            DelayHistogram histogram = new DelayHistogram();
+            histogram.add(minutes);
+            int estimate = histogram.getMedian();
+            assertTrue(Math.abs(estimate - minutes) <= Math.abs(minutes) / 16, 
+                       "Estimate " + estimate + " too far from " + minutes);
+        }
+    }
+
+    @Test
+    void percentilesStayWithinObservedRange() {
+        DelayHistogram histogram = new DelayHistogram();
+        for(int minutes = 101; minutes <= 179; minutes += 2) {
+            histogram.add(minutes);
+        }
+        histogram.add(183);
+        assertEquals(histogram.getPercentile(100), 183, "Maximum should be exact");
+        assertEquals(histogram.getPercentile(0), 101, "Minimum should be exact");
+        assertTrue(histogram.getPercentile(99) <= 183, "P99 above maximum");
+
+        DelayHistogram single = new DelayHistogram();
+        single.add(179);
+        assertEquals(single.getPercentile(99), 179, "P99 should not exceed maximum");
+
+        DelayHistogram merged = new DelayHistogram().merge(histogram);
+        assertEquals(merged.getPercentile(100), 183, "Merged maximum should be exact");
+    }
+
+    @Test
+    void mergeMatchesSinglePass() {
+        DelayHistogram all = new DelayHistogram();
+        DelayHistogram first = new DelayHistogram();
+        DelayHistogram second = DelayHistogram.synchronizedHistogram();
+        for(int minutes = -50; minutes < 500; minutes += 7) {
+            all.add(minutes);
+            (minutes % 2 == 0 ? first : second).add(minutes);
+        }
+        first.merge(second);
+        assertEquals(first.getCount(), all.getCount(), "Wrong count");
+        assertEquals(first.getAverage(), all.getAverage(), 0.0, "Wrong average");
+        for(int percentile : new int[] { 1, 50, 90, 99 }) {
+            assertEquals(first.getPercentile(percentile), all.getPercentile(percentile),
+                         "Wrong percentile " + percentile);
+        }
+    }
+
+    @Test
+    void emptyHistogram() {
+        assertEquals(new DelayHistogram().getPercentile(90), 0, "Empty should be zero");
+    }
+}
@@ -0,0 +1,175 @@
+package airtraffic.reports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import airtraffic.Config;
+import airtraffic.ReportContext;
+import airtraffic.Repository;
+import airtraffic.reports.stream.StreamFlightReports;
+
+
+class FlightReportBatchTest {
+    private static final int YEAR = 2008;
+    private static final String[] AIRPORTS = { "IAH", "DFW", "ORD", "ATL", "LAX" };
+    private static final String[] CARRIERS = { "WN", "AA", "UA" };
+
+    @Test
+    void batchMatchesReportsRunOneByOne() throws IOException, SQLException {
+        Path directory = createData();
+        try {
+            ReportContext context = createContext(directory);
+            FlightReports reports = new StreamFlightReports();
+            List<BiFunction<FlightReports, ReportContext, ResultSet>> methods =
+                Arrays.asList(FlightReports::reportMostPopularRoutes,
+                              FlightReports::reportTotalFlightsByDistanceRange,
+                              FlightReports::reportTotalMonthlyFlights,
+                              FlightReports::reportTotalFlightsByDayOfWeek);
+            FlightReportBatch batch = new FlightReportBatch(reports);
+            for(BiFunction<FlightReports, ReportContext, ResultSet> method : methods) {
+                batch.add(method, context);
+            }
+            List<ResultSet> results = batch.execute();
+            assertEquals(results.size(), methods.size(), "Wrong number of results");
+            for(int i = 0; i < methods.size(); i++) {
+                assertEquals(rows(results.get(i)), rows(methods.get(i).apply(reports, context)),
+                             "Batched result differs for report " + i);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void tablesReleasedWhenReportFails() throws IOException {
+        Path directory = createData();
+        try {
+            // no table is cached unless it is retained
+            ReportContext context = createContext(directory);
+            Repository repository = context.getRepository();
+            AtomicBoolean retained = new AtomicBoolean();
+            FlightReportBatch batch =
+                new FlightReportBatch(new StreamFlightReports())
+                    .add((reports, c) -> {
+                        retained.set(repository.getFlightTable(YEAR) == repository.getFlightTable(YEAR));
+                        return null;
+                    }, context)
+                    .add((reports, c) -> {
+                        throw new IllegalStateException("Report failed");
+                    }, context);
+            assertThrows(IllegalStateException.class, batch::execute,
+                         "Failure of a report should be thrown");
+            assertTrue(retained.get(), "Table should be retained while the batch runs");
+            assertTrue(repository.getFlightTable(YEAR) != repository.getFlightTable(YEAR),
+                       "Table should be released after the batch fails");
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static ReportContext createContext(Path directory) {
+        Config config = new Config();
+        config.setAirportPath(directory.resolve("airports.csv").toString());
+        config.setCarrierPath(directory.resolve("carriers.csv").toString());
+        config.setPlanePath(directory.resolve("planes.csv").toString());
+        config.setFlightPaths(Collections.singletonMap(YEAR,
+                                                       directory.resolve("flights.csv").toString()));
+        config.setFlightTableCacheSize(0);
+        return new ReportContext().setRepository(new Repository(config))
+                                  .setYear(YEAR)
+                                  .setLimit(10);
+    }
+
+    private static Path createData() throws IOException {
+        Path directory = Files.createTempDirectory("batch");
+        List<String> airports = new ArrayList<>();
+        airports.add("iata,airport,city,state,country,lat,long");
+        for(int i = 0; i < AIRPORTS.length; i++) {
+            airports.add(AIRPORTS[i] + ",Airport " + i + ",City " + i + ",TX,USA,3" + i + ",-9" + i);
+        }
+        Files.write(directory.resolve("airports.csv"), airports);
+        List<String> carriers = new ArrayList<>();
+        carriers.add("Code,Description");
+        for(String carrier : CARRIERS) {
+            carriers.add(carrier + "," + carrier + " Airlines");
+        }
+        Files.write(directory.resolve("carriers.csv"), carriers);
+        Files.write(directory.resolve("planes.csv"),
+                    Collections.singletonList("tailnum,type,manufacturer,issue_date,model,status,aircraft_type,engine_type,year"));
+        Files.write(directory.resolve("flights.csv"), flights(2000));
+        return directory;
+    }
+
+    private static List<String> flights(int count) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Year,Month,DayofMonth,DayOfWeek,DepTime,CRSDepTime,ArrTime,CRSArrTime," +
+                  "UniqueCarrier,FlightNum,TailNum,ActualElapsedTime,CRSElapsedTime,AirTime," +
+                  "ArrDelay,DepDelay,Origin,Dest,Distance,TaxiIn,TaxiOut,Cancelled," +
+                  "CancellationCode,Diverted,CarrierDelay,WeatherDelay,NASDelay," +
+                  "SecurityDelay,LateAircraftDelay");
+        Random random = new Random(11);
+        for(int i = 0; i < count; i++) {
+            int origin = random.nextInt(AIRPORTS.length);
+            int destination = (origin + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length;
+            boolean cancelled = random.nextInt(20) == 0;
+            String actual = cancelled ? "NA" : null;
+            lines.add(String.join(",",
+                String.valueOf(YEAR),
+                String.valueOf(1 + random.nextInt(12)),
+                String.valueOf(1 + random.nextInt(28)),
+                String.valueOf(1 + random.nextInt(7)),
+                actual != null ? actual : "1200", "1200",
+                actual != null ? actual : "1400", "1400",
+                CARRIERS[random.nextInt(CARRIERS.length)],
+                String.valueOf(random.nextInt(3000)),
+                "N" + random.nextInt(100),
+                actual != null ? actual : "120", "120",
+                actual != null ? actual : "100",
+                actual != null ? actual : String.valueOf(random.nextInt(120) - 20),
+                actual != null ? actual : String.valueOf(random.nextInt(120) - 10),
+                AIRPORTS[origin], AIRPORTS[destination],
+                String.valueOf(100 + random.nextInt(2000)),
+                actual != null ? actual : "10",
+                actual != null ? actual : "15",
+                cancelled ? "1" : "0", cancelled ? "A" : "", "0",
+                "NA", "NA", "NA", "NA", "NA"));
+        }
+        return lines;
+    }
+
+    private static List<String> rows(ResultSet rs) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        int columns = rs.getMetaData().getColumnCount();
+        while(rs.next()) {
+            StringBuilder row = new StringBuilder();
+            for(int i = 1; i <= columns; i++) {
+                row.append(rs.getString(i)).append('|');
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
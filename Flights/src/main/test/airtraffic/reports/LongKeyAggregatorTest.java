@@ -0,0 +1,59 @@
+package airtraffic.reports;
+
+import static airtraffic.reports.LongKeyAggregator.high;
+import static airtraffic.reports.LongKeyAggregator.low;
+import static airtraffic.reports.LongKeyAggregator.pack;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+
+class LongKeyAggregatorTest {
+    @Test
+    void packAndUnpackKey() {
+        long key = pack(12, 366);
+        assertEquals(high(key), 12, "Wrong high value");
+        assertEquals(low(key), 366, "Wrong low value");
+        assertEquals(low(pack(1, -1)), -1, "Low value should keep its sign");
+    }
+
+    @Test
+    void countAfterGrowth() {
+        LongKeyAggregator aggregator = new LongKeyAggregator();
+        for(int i = 0; i < 10000; i++) {
+            aggregator.add(pack(i % 3000, i % 7), i);
+        }
+        assertEquals(aggregator.size(), 10000, "Wrong size");
+        assertEquals(aggregator.getCount(pack(5, 5)), 1, "Wrong count");
+        assertEquals(aggregator.getSum(pack(5, 5)), 5, "Wrong sum");
+        assertEquals(aggregator.getCount(pack(5, 7)), 0, "Missing key should have no count");
+    }
+
+    @Test
+    void mergeAndSortByCount() {
+        LongKeyAggregator first = new LongKeyAggregator();
+        LongKeyAggregator second = new LongKeyAggregator();
+        first.add(1);
+        first.add(2, 10);
+        second.add(2, 20);
+        second.add(3);
+        second.add(3);
+        second.add(3);
+        first.merge(second);
+        assertArrayEquals(first.getKeys(), new long[] { 1, 2, 3 }, "Wrong keys");
+        assertArrayEquals(first.getKeysByCount(true, 2), new long[] { 3, 2 }, "Wrong order");
+        assertEquals(first.getAverage(2), 15.0, "Wrong average");
+    }
+
+    @Test
+    void addRolledUpCounts() {
+        LongKeyAggregator aggregator = new LongKeyAggregator();
+        aggregator.add(pack(1, 10), 4, 100);
+        aggregator.add(pack(1, 10), 1, 20);
+        aggregator.add(pack(2, 10), 3, 0);
+        assertEquals(aggregator.getCount(pack(1, 10)), 5, "Wrong count");
+        assertEquals(aggregator.getAverage(pack(1, 10)), 24.0, "Wrong average");
+        assertArrayEquals(aggregator.getKeysByCount(true, 1), new long[] { pack(1, 10) },
+                          "Wrong order");
+    }
+}
@@ -0,0 +1,42 @@
+package airtraffic.reports;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+
+class TopKSelectorTest {
+    @Test
+    void selectSameAsSortAndLimit() {
+        List<Integer> values = new Random(7).ints(10000, 0, 500).boxed().collect(toList());
+        TopKSelector<Integer> selector = new TopKSelector<>(Integer::compare, 10);
+        values.forEach(selector::add);
+        List<Integer> expected = values.stream().sorted().limit(10).collect(toList());
+        assertEquals(selector.toList(), expected, "Wrong elements selected");
+        assertEquals(selector.size(), 10, "Selector should be bounded by its limit");
+    }
+
+    @Test
+    void keepOrderOfEqualElements() {
+        List<String> values = Arrays.asList("bb", "a", "cc", "d", "ee", "f");
+        TopKSelector<String> selector = new TopKSelector<>(comparingInt(String::length), 4);
+        values.forEach(selector::add);
+        assertEquals(selector.toList(), Arrays.asList("a", "d", "f", "bb"), "Ties should be stable");
+    }
+
+    @Test
+    void collectInParallel() {
+        List<Integer> expected = 
+            IntStream.range(0, 100000).map(i -> i % 1000).boxed()
+                     .sorted(comparingInt(i -> -i)).limit(25).collect(toList());
+        List<Integer> actual = 
+            IntStream.range(0, 100000).parallel().map(i -> i % 1000).boxed()
+                     .collect(TopKSelector.collector(comparingInt(i -> -i), 25));
+        assertEquals(actual, expected, "Wrong elements selected in parallel");
+    }
+}